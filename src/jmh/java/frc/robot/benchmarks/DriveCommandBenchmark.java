@@ -0,0 +1,65 @@
+package frc.robot.benchmarks;
+
+import frc.robot.commands.DriveCommand;
+import frc.robot.subsystems.drive.DrivetrainConfig;
+import frc.robot.subsystems.drive.DrivetrainConfigStore;
+import frc.robot.subsystems.drive.HeadingProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One teleop loop of the drive command: read the suppliers, rotate to robot relative and apply to all four modules.
+ * Once spinning from the stick, and once with the stick let go so the heading controller turns the robot.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DriveCommandBenchmark {
+    private DriveCommand driveCommand;
+    private DriveCommand holdingDriveCommand;
+
+    @Setup
+    public void setup(DrivetrainState drivetrain) {
+        HeadingProvider heading = drivetrain.swerveSubsystem.getHeading();
+        driveCommand = new DriveCommand(
+                drivetrain.swerveSubsystem,
+                heading::getContinuousDegrees,
+                () -> 0.3,
+                () -> 0.8,
+                () -> -0.25
+        );
+        holdingDriveCommand = new DriveCommand(
+                drivetrain.swerveSubsystem,
+                heading::getContinuousDegrees,
+                () -> 0,
+                () -> 0.8,
+                () -> -0.25,
+                () -> 90,
+                DrivetrainConfigStore.fixed(DrivetrainConfig.defaults())
+        );
+        holdingDriveCommand.initialize();
+    }
+
+    @Benchmark
+    public void execute() {
+        driveCommand.execute();
+    }
+
+    @Benchmark
+    public void executeHoldingHeading() {
+        holdingDriveCommand.execute();
+    }
+}
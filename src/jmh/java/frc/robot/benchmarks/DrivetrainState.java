@@ -0,0 +1,38 @@
+package frc.robot.benchmarks;
+
+import edu.wpi.first.hal.HAL;
+import frc.robot.subsystems.SwerveSubsystem;
+import frc.robot.subsystems.drive.FakeSignalBackend;
+import frc.robot.subsystems.drive.NoopModuleIO;
+import frc.robot.subsystems.drive.SignalHub;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * A swerve subsystem on mocked hardware, with every module pointed somewhere different so the optimize path gets
+ * exercised.
+ */
+@State(Scope.Benchmark)
+public class DrivetrainState {
+    public FakeSignalBackend signalBackend;
+    public NoopModuleIO[] moduleIOs;
+    public SwerveSubsystem swerveSubsystem;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        HAL.initialize(500, 0);
+
+        moduleIOs = new NoopModuleIO[]{new NoopModuleIO(), new NoopModuleIO(), new NoopModuleIO(), new NoopModuleIO()};
+        signalBackend = new FakeSignalBackend(moduleIOs.length);
+        for (int i = 0; i < moduleIOs.length; i++) {
+            signalBackend.setModuleSignal(i, SignalHub.MODULE_STEER_ABSOLUTE, 0.2 * i);
+            signalBackend.setModuleSignal(i, SignalHub.MODULE_STEER_POSITION, 0.2 * i + 3);
+        }
+        signalBackend.setGyroSignal(SignalHub.GYRO_YAW, 37);
+
+        swerveSubsystem = new SwerveSubsystem(moduleIOs, signalBackend);
+        swerveSubsystem.periodic();
+    }
+}
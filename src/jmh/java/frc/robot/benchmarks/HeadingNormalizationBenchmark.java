@@ -0,0 +1,35 @@
+package frc.robot.benchmarks;
+
+import frc.robot.subsystems.drive.HeadingProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Heading normalization at a few yaws. The gyro yaw is continuous, so after a lot of spinning it can be far from 0, and
+ * the time this takes shouldn't depend on how far.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HeadingNormalizationBenchmark {
+    @Param({"45", "-90", "7200", "-360000"})
+    public double yaw;
+
+    @Benchmark
+    public double normalize() {
+        return HeadingProvider.normalizeDegrees(yaw);
+    }
+}
@@ -0,0 +1,34 @@
+package frc.robot.benchmarks;
+
+import frc.robot.subsystems.drive.NoopModuleIO;
+
+/**
+ * Mocked module hardware where every setpoint write blocks for a while, like a CAN write waiting on the bus.
+ */
+public class LatencyModuleIO extends NoopModuleIO {
+    private final long latencyNanos;
+
+    public LatencyModuleIO(long latencyNanos) {
+        this.latencyNanos = latencyNanos;
+    }
+
+    @Override
+    public void setDriveVelocity(double wheelRotationsPerSecond) {
+        block();
+        super.setDriveVelocity(wheelRotationsPerSecond);
+    }
+
+    @Override
+    public void setSteerPosition(double moduleRotations, double moduleRotationsPerSecond) {
+        block();
+        super.setSteerPosition(moduleRotations, moduleRotationsPerSecond);
+    }
+
+    // Spin rather than sleep, sleeping can't get anywhere near microsecond precision
+    private void block() {
+        long end = System.nanoTime() + latencyNanos;
+        while (System.nanoTime() < end) {
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package frc.robot.benchmarks;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import frc.robot.subsystems.drive.SwerveModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A single module apply, which optimizes the angle in place, next to the WPILib optimize it replaced.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ModuleOptimizeBenchmark {
+    private SwerveModule module;
+    private SwerveModuleState desiredState;
+    private Rotation2d currentAngle;
+
+    @Setup
+    public void setup(DrivetrainState drivetrain) {
+        module = drivetrain.swerveSubsystem.getModules()[1];
+        desiredState = new SwerveModuleState(2.5, Rotation2d.fromDegrees(200));
+        currentAngle = Rotation2d.fromDegrees(72);
+    }
+
+    @Benchmark
+    public void moduleApply() {
+        module.apply(2.5, 200);
+    }
+
+    @Benchmark
+    public SwerveModuleState wpilibOptimize() {
+        return SwerveModuleState.optimize(desiredState, currentAngle);
+    }
+}
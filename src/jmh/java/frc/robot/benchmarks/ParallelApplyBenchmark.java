@@ -0,0 +1,68 @@
+package frc.robot.benchmarks;
+
+import edu.wpi.first.hal.HAL;
+import frc.robot.subsystems.SwerveSubsystem;
+import frc.robot.subsystems.drive.FakeSignalBackend;
+import frc.robot.subsystems.drive.SignalHub;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SwerveSubsystem.apply sending the modules one after another against sending them in parallel, with each setpoint
+ * write blocking for a simulated CAN latency.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelApplyBenchmark {
+    // Long enough that no module misses it, this measures the join and not the deadline
+    private static final double DEADLINE_SECONDS = 0.01;
+
+    @Param({"0", "50000", "200000"})
+    public long canLatencyNanos;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    private SwerveSubsystem swerveSubsystem;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        HAL.initialize(500, 0);
+
+        LatencyModuleIO[] moduleIOs = new LatencyModuleIO[4];
+        for (int i = 0; i < moduleIOs.length; i++) {
+            moduleIOs[i] = new LatencyModuleIO(canLatencyNanos);
+        }
+        FakeSignalBackend signalBackend = new FakeSignalBackend(moduleIOs.length);
+        for (int i = 0; i < moduleIOs.length; i++) {
+            signalBackend.setModuleSignal(i, SignalHub.MODULE_STEER_POSITION, 0.2 * i);
+        }
+
+        swerveSubsystem = new SwerveSubsystem(moduleIOs, signalBackend);
+        if (parallel) {
+            swerveSubsystem.useParallelApply(DEADLINE_SECONDS);
+        }
+        swerveSubsystem.periodic();
+    }
+
+    @Benchmark
+    public void apply() {
+        swerveSubsystem.apply(1.2, -0.4, 0.8);
+    }
+}
@@ -0,0 +1,36 @@
+package frc.robot.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inverse kinematics plus the four module applies, and the signal refresh that runs at the top of every loop.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SwerveSubsystemBenchmark {
+    @Benchmark
+    public void applyTranslateAndSpin(DrivetrainState drivetrain) {
+        drivetrain.swerveSubsystem.apply(1.2, -0.4, 0.8);
+    }
+
+    @Benchmark
+    public void applyStopped(DrivetrainState drivetrain) {
+        drivetrain.swerveSubsystem.apply(0, 0, 0);
+    }
+
+    @Benchmark
+    public void periodic(DrivetrainState drivetrain) {
+        drivetrain.swerveSubsystem.periodic();
+    }
+}
@@ -7,6 +7,11 @@ package frc.robot;
 import edu.wpi.first.wpilibj.TimedRobot;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.telemetry.GcMonitor;
+import frc.robot.telemetry.LoopJitter;
+import frc.robot.telemetry.LoopTimer;
+import frc.robot.telemetry.LoopTiming;
+import frc.robot.telemetry.Telemetry;
 
 /**
  * The VM is configured to automatically run this class, and to call the functions corresponding to
@@ -15,6 +20,11 @@ import edu.wpi.first.wpilibj2.command.CommandScheduler;
  * project.
  */
 public class Robot extends TimedRobot {
+    private static final LoopTimer SCHEDULER_TIMER = LoopTiming.timer("Scheduler");
+
+    // Made with the robot, so its schedule starts as close as possible to TimedRobot's
+    private final LoopJitter loopJitter = new LoopJitter(kDefaultPeriod);
+
     private Command m_autonomousCommand;
 
     private RobotContainer m_robotContainer;
@@ -25,9 +35,21 @@ public class Robot extends TimedRobot {
      */
     @Override
     public void robotInit() {
+        Telemetry.start();
+        GcMonitor.start();
+
         // Instantiate our RobotContainer.  This will perform all our button bindings, and put our
         // autonomous chooser on the dashboard.
         m_robotContainer = new RobotContainer();
+
+        // Last, so the threads started above don't inherit the main thread's real-time priority and core
+        ThreadScheduling.configureCurrentThread(ThreadScheduling.Role.CONTROL);
+    }
+
+    @Override
+    protected void loopFunc() {
+        loopJitter.loopStarted();
+        super.loopFunc();
     }
 
     /**
@@ -43,7 +65,17 @@ public class Robot extends TimedRobot {
         // commands, running already-scheduled commands, removing finished or interrupted commands,
         // and running subsystem periodic() methods.  This must be called from the robot's periodic
         // block in order for anything in the Command-based framework to work.
+        Telemetry.startLoop();
+        loopJitter.log();
+        GcMonitor.update();
+        m_robotContainer.applyConfigReload();
+        m_robotContainer.updateInputs();
+        long start = SCHEDULER_TIMER.start();
         CommandScheduler.getInstance().run();
+        SCHEDULER_TIMER.stop(start);
+        m_robotContainer.recordInputs();
+
+        LoopTiming.publishIfDue();
     }
 
     /**
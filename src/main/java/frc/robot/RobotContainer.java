@@ -4,10 +4,12 @@
 
 package frc.robot;
 
-import com.ctre.phoenixpro.hardware.Pigeon2;
 import edu.wpi.first.math.MathUtil;
-import edu.wpi.first.math.geometry.Rotation2d;
-import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.RobotBase;
+import edu.wpi.first.wpilibj.XboxController;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
 import frc.robot.Constants.OperatorConstants;
@@ -16,14 +18,27 @@ import frc.robot.commands.DriveCommand;
 import frc.robot.commands.ExampleCommand;
 import frc.robot.commands.RobotInitCommand;
 import frc.robot.commands.swervesetup.*;
+import frc.robot.replay.DriverInputs;
+import frc.robot.replay.InputRecorder;
+import frc.robot.sim.ReplayCamera;
 import frc.robot.subsystems.ExampleSubsystem;
 
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.button.CommandXboxController;
 import edu.wpi.first.wpilibj2.command.button.Trigger;
 import frc.robot.subsystems.SwerveSubsystem;
-
-import java.util.function.Supplier;
+import frc.robot.subsystems.drive.DrivetrainConfig;
+import frc.robot.subsystems.drive.DrivetrainConfigStore;
+import frc.robot.subsystems.drive.HeadingProvider;
+import frc.robot.sysid.Mechanism;
+import frc.robot.trajectory.MappedTrajectory;
+import frc.robot.trajectory.PathDefinitions;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.function.DoubleSupplier;
 
 /**
  * This class is where the bulk of the robot should be declared. Since Command-based is a
@@ -32,17 +47,21 @@ import java.util.function.Supplier;
  * subsystems, commands, and trigger mappings) should be declared here.
  */
 public class RobotContainer {
-    private final Pigeon2 pigeon2;
-
     // The robot's subsystems and commands are defined here...
     private final ExampleSubsystem m_exampleSubsystem = new ExampleSubsystem();
-    private final SwerveSubsystem swerveSubsystem = new SwerveSubsystem();
+    private final DrivetrainConfigStore drivetrainConfigs = DrivetrainConfigStore.loadFromDeploy();
+    private final SwerveSubsystem swerveSubsystem = SwerveSubsystem.create(drivetrainConfigs.get());
 
     private final DriveCommand driveCommand;
+    private final MappedTrajectory autoTrajectory;
 
     // Replace with CommandPS4Controller or CommandJoystick if needed
     private final CommandXboxController m_driverController =
             new CommandXboxController(OperatorConstants.kDriverControllerPort);
+    // The same controller, read once a loop so driving can be recorded and replayed
+    private final DriverInputs driverInputs = new DriverInputs(OperatorConstants.kDriverControllerPort);
+    private final InputRecorder inputRecorder;
+    private long driveCommandExecutions = 0;
 
     /**
      * The container for the robot. Contains subsystems, OI devices, and commands.
@@ -50,32 +69,26 @@ public class RobotContainer {
     public RobotContainer() {
         // Configure the trigger bindings
         configureBindings();
-        pigeon2 = new Pigeon2(9);
-        pigeon2.setYaw(0);
 
-        Supplier<Double> joystickRobotSpin = () -> MathUtil.applyDeadband(-m_driverController.getRightX(), 0.1);
+        driveCommand = createDriveCommand(swerveSubsystem, driverInputs, drivetrainConfigs);
+        inputRecorder = startInputRecorder();
 
-        Supplier<Rotation2d> robotHeadingAngle = () -> {
-            double yaw = pigeon2.getYaw().getValue();
-            while (yaw >= 360.0) {
-                yaw -= 360.0;
-            }
-            while (yaw <= 0) {
-                yaw += 360.0;
-            }
-            return Rotation2d.fromDegrees(yaw);
-        };
-        Supplier<Translation2d> joystickRobotMovement = () -> new Translation2d(
-                MathUtil.applyDeadband(-m_driverController.getLeftY(), 0.1),
-                MathUtil.applyDeadband(-m_driverController.getLeftX(), 0.1)
-        );
+        swerveSubsystem.startOdometryThread();
+        if (RobotBase.isSimulation()) {
+            startReplayCamera();
+        }
 
-        driveCommand = new DriveCommand(
-                swerveSubsystem,
-                robotHeadingAngle,
-                joystickRobotSpin,
-                joystickRobotMovement
-        );
+        // Map the auto's trajectory now, so nothing is loaded or generated when the match starts
+        autoTrajectory = loadTrajectory(PathDefinitions.LEAVE_AND_TURN);
+
+        // Measures offsets and checks the drivetrain, and with the robot on blocks, fits the steering gains. Both save
+        // to drivetrain.json, see CalibrationCommand before running them.
+        SmartDashboard.putData("Calibrate drivetrain", new CalibrationCommand(swerveSubsystem, drivetrainConfigs));
+        SmartDashboard.putData("Tune steering gains",
+                CalibrationCommand.tuneSteering(swerveSubsystem, drivetrainConfigs));
+        // Measure the drive and steer feedforward, see SysIdCommand for how much room the drive test needs
+        SmartDashboard.putData("SysId drive", new SysIdCommand(swerveSubsystem, drivetrainConfigs, Mechanism.DRIVE));
+        SmartDashboard.putData("SysId steer", new SysIdCommand(swerveSubsystem, drivetrainConfigs, Mechanism.STEER));
 
         // Set the DriveCommand to control the swerve subsystem by default, unless something else needs it.
         swerveSubsystem.setDefaultCommand(driveCommand);
@@ -86,6 +99,129 @@ public class RobotContainer {
         )).schedule();
     }
 
+    /**
+     * The driver's DriveCommand. Everything it reads comes from the inputs or the subsystem's signal hub, both of which
+     * are recorded, so {@code InputReplay} builds it with this same method and gets the same outputs.
+     */
+    public static DriveCommand createDriveCommand(
+            SwerveSubsystem swerveSubsystem,
+            DriverInputs inputs,
+            DrivetrainConfigStore configs
+    ) {
+        DoubleSupplier joystickRobotSpin =
+                () -> MathUtil.applyDeadband(-inputs.getAxis(XboxController.Axis.kRightX.value), 0.1);
+
+        // Field relative driving only needs the heading's sine and cosine, so it doesn't need wrapping, but it does
+        // need to be where the robot is pointing now rather than when the gyro sampled. Now is when the controller
+        // was read, within a millisecond of when the modules get the setpoints, and unlike the clock it's recorded.
+        HeadingProvider heading = swerveSubsystem.getHeading();
+        DoubleSupplier robotHeadingDegrees = () -> heading.getContinuousDegreesAt(inputs.getTimestampSeconds());
+        DoubleSupplier joystickRobotMovementX =
+                () -> MathUtil.applyDeadband(-inputs.getAxis(XboxController.Axis.kLeftY.value), 0.1);
+        DoubleSupplier joystickRobotMovementY =
+                () -> MathUtil.applyDeadband(-inputs.getAxis(XboxController.Axis.kLeftX.value), 0.1);
+        // Face buttons snap to the field direction they're on the controller, Y downfield
+        DoubleSupplier snapHeadingDegrees = () -> {
+            if (inputs.getButton(XboxController.Button.kY.value)) {
+                return 0;
+            } else if (inputs.getButton(XboxController.Button.kX.value)) {
+                return 90;
+            } else if (inputs.getButton(XboxController.Button.kA.value)) {
+                return 180;
+            } else if (inputs.getButton(XboxController.Button.kB.value)) {
+                return -90;
+            }
+            return Double.NaN;
+        };
+
+        return new DriveCommand(
+                swerveSubsystem,
+                robotHeadingDegrees,
+                joystickRobotSpin,
+                joystickRobotMovementX,
+                joystickRobotMovementY,
+                snapHeadingDegrees,
+                configs
+        );
+    }
+
+    /**
+     * Read the driver's controller. Call once a loop, before the scheduler runs.
+     */
+    public void updateInputs() {
+        driverInputs.update();
+    }
+
+    /**
+     * Record this loop's inputs, sensor values and drivetrain outputs. Call once a loop, after the scheduler runs.
+     * Nothing drives while disabled, so only enabled loops are recorded.
+     */
+    public void recordInputs() {
+        long executions = driveCommand.getExecuteCount();
+        boolean driveCommandRan = executions != driveCommandExecutions;
+        driveCommandExecutions = executions;
+        if (inputRecorder != null && DriverStation.isEnabled()) {
+            inputRecorder.record(driverInputs, swerveSubsystem, driveCommandRan);
+        }
+    }
+
+    /**
+     * Record to a new file next to the data logs, after making room for it, see {@link InputRecorder}.
+     *
+     * @return The recorder, or null if the file couldn't be created, which only costs the recording
+     */
+    private InputRecorder startInputRecorder() {
+        Path directory = Paths.get(DataLogManager.getLogDir());
+        try {
+            InputRecorder.pruneOldRecordings(directory);
+            return InputRecorder.start(InputRecorder.newRecordingFile(directory), swerveSubsystem.getModules().length);
+        } catch (IOException e) {
+            DriverStation.reportError("Failed to start recording inputs: " + e.getMessage(), false);
+            return null;
+        }
+    }
+
+    /**
+     * Switch to the new drivetrain config if drivetrain.json changed, and send the new offsets and gains to the
+     * devices. Call this between loops, before the scheduler runs. Whatever is driving keeps driving while they're
+     * sent.
+     */
+    public void applyConfigReload() {
+        DrivetrainConfig config = drivetrainConfigs.applyPendingReload();
+        if (config != null) {
+            swerveSubsystem.applyConfig(config);
+            RobotInitCommand.reconfigure(swerveSubsystem).schedule();
+        }
+    }
+
+    /**
+     * In simulation, replay recorded tag detections from the deploy directory as if a camera were seeing them, see
+     * {@link ReplayCamera}. Without a recording there, simulation just runs without vision.
+     */
+    private void startReplayCamera() {
+        Path detections = Filesystem.getDeployDirectory().toPath().resolve("detections.csv");
+        if (!Files.exists(detections)) {
+            return;
+        }
+        try {
+            ReplayCamera.load(detections, swerveSubsystem.getVisionIngest()).start();
+        } catch (IOException e) {
+            DriverStation.reportError("Failed to load the camera replay: " + e.getMessage(), false);
+        }
+    }
+
+    /**
+     * @return The trajectory, or null if it couldn't be loaded, which leaves the robot without an auto
+     */
+    private static MappedTrajectory loadTrajectory(String name) {
+        try {
+            return MappedTrajectory.load(name);
+        } catch (IOException e) {
+            DriverStation.reportError("Failed to load trajectory " + name + ": " + e.getMessage(), false);
+            return null;
+        }
+    }
+
     /**
      * Use this method to define your trigger->command mappings. Triggers can be created via the
      * {@link Trigger#Trigger(java.util.function.BooleanSupplier)} constructor with an arbitrary
@@ -111,7 +247,9 @@ public class RobotContainer {
      * @return the command to run in autonomous
      */
     public Command getAutonomousCommand() {
-        // An example command will be run in autonomous
-        return Autos.exampleAuto(m_exampleSubsystem);
+        if (autoTrajectory == null) {
+            return null;
+        }
+        return Autos.followPath(swerveSubsystem, autoTrajectory);
     }
 }
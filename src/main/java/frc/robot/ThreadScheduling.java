@@ -0,0 +1,99 @@
+package frc.robot;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotBase;
+import edu.wpi.first.wpilibj.Threads;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Decides where each of our threads runs on the roboRIO's two cores and how urgently.
+ * <p>
+ * The main robot thread gets core 0 to itself at real-time priority, so it starts each loop on time instead of waiting
+ * behind whatever else happens to be runnable. Everything we run in the background moves to core 1: odometry at a
+ * real-time priority below the main loop's, and telemetry, config and other slow work at normal priority, where both
+ * real-time threads can always get ahead of it. NetworkTables and the rest of WPILib's threads are left where the
+ * system put them.
+ * <p>
+ * Each thread configures itself, by calling {@link #configureCurrentThread} first thing, since priorities can only be
+ * set from inside the thread. Linux threads inherit their parent's priority and core, so a thread started from the main
+ * thread after it's configured starts out real-time on core 0 until it moves itself.
+ * <p>
+ * Java can't pin a thread, so pinning runs {@code taskset} on the thread's own id. That's a process per thread, but
+ * only once, when the thread starts. In simulation nothing is changed, the desktop isn't ours to rearrange.
+ */
+public final class ThreadScheduling {
+    public enum Role {
+        /** The main robot thread, which runs the command scheduler */
+        CONTROL(0, true, 15),
+        /** Threads the main loop hands part of its work to and waits on, like the module workers */
+        CONTROL_WORKER(1, true, 15),
+        /** Odometry, which has to keep up its own rate but never holds up the main loop */
+        ODOMETRY(1, true, 10),
+        /** Telemetry, logging, config and anything else that can wait a few ms */
+        BACKGROUND(1, false, 0);
+
+        private final int core;
+        private final boolean realTime;
+        private final int priority;
+
+        Role(int core, boolean realTime, int priority) {
+            this.core = core;
+            this.realTime = realTime;
+            this.priority = priority;
+        }
+    }
+
+    /**
+     * Set the priority of the thread this is called from and pin it to its role's core. Failures are reported as
+     * warnings, a thread that can't be moved still works, just with more jitter.
+     *
+     * @return Whether the thread was configured, always false in simulation
+     */
+    public static boolean configureCurrentThread(Role role) {
+        if (!RobotBase.isReal()) {
+            return false;
+        }
+
+        String thread = Thread.currentThread().getName();
+        boolean prioritized = Threads.setCurrentThreadPriority(role.realTime, role.priority);
+        if (!prioritized) {
+            DriverStation.reportWarning("Couldn't set the priority of the " + thread + " thread", false);
+        }
+        try {
+            pinCurrentThread(role.core);
+        } catch (IOException e) {
+            DriverStation.reportWarning("Couldn't pin the " + thread + " thread to core " + role.core + ": "
+                    + e.getMessage(), false);
+            return false;
+        }
+        return prioritized;
+    }
+
+    private static void pinCurrentThread(int core) throws IOException {
+        // Links to <pid>/task/<tid> for whichever thread reads it
+        Path self = Files.readSymbolicLink(Paths.get("/proc/thread-self"));
+        String threadId = self.getFileName().toString();
+
+        Process taskset = new ProcessBuilder("taskset", "-p", "-c", Integer.toString(core), threadId)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        try {
+            int exitCode = taskset.waitFor();
+            if (exitCode != 0) {
+                throw new IOException("taskset exited with " + exitCode);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for taskset", e);
+        }
+    }
+
+    private ThreadScheduling() {
+        throw new UnsupportedOperationException("This is a utility class!");
+    }
+}
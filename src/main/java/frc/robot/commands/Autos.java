@@ -5,6 +5,8 @@
 package frc.robot.commands;
 
 import frc.robot.subsystems.ExampleSubsystem;
+import frc.robot.subsystems.SwerveSubsystem;
+import frc.robot.trajectory.MappedTrajectory;
 import edu.wpi.first.wpilibj2.command.CommandBase;
 import edu.wpi.first.wpilibj2.command.Commands;
 
@@ -14,6 +16,11 @@ public final class Autos {
     return Commands.sequence(subsystem.exampleMethodCommand(), new ExampleCommand(subsystem));
   }
 
+  /** Follow a single baked trajectory, starting the pose estimate at its start. */
+  public static CommandBase followPath(SwerveSubsystem swerveSubsystem, MappedTrajectory trajectory) {
+    return new FollowTrajectoryCommand(swerveSubsystem, trajectory, true);
+  }
+
   private Autos() {
     throw new UnsupportedOperationException("This is a utility class!");
   }
@@ -1,49 +1,186 @@
 package frc.robot.commands;
 
-import edu.wpi.first.math.geometry.Rotation2d;
-import edu.wpi.first.math.geometry.Translation2d;
-import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.wpilibj.TimedRobot;
 import edu.wpi.first.wpilibj2.command.CommandBase;
 import frc.robot.subsystems.SwerveSubsystem;
+import frc.robot.subsystems.drive.DrivetrainConfig;
+import frc.robot.subsystems.drive.DrivetrainConfigStore;
+import frc.robot.subsystems.drive.HeadingController;
+import frc.robot.telemetry.LoopTimer;
+import frc.robot.telemetry.LoopTiming;
+import frc.robot.telemetry.Telemetry;
+import frc.robot.telemetry.TelemetryChannel;
 
-import java.util.function.Supplier;
+import java.util.function.DoubleSupplier;
 
+/**
+ * Field relative driving from the driver's sticks.
+ * <p>
+ * While the spin stick is being used, it sets how fast the robot turns. Once it's let go, a {@link HeadingController}
+ * holds the heading the robot slows to a stop at, so it doesn't slowly turn while driving when the modules don't all
+ * get quite the speed they were asked for. Snapping, like a button for each of the four field directions, turns the
+ * robot to that heading and holds it there, until the spin stick is used again.
+ */
 public class DriveCommand extends CommandBase {
-    private static final double SPEED_MULTIPLIER = 4;
-    private static final double SPIN_ROTATIONS_PER_SECOND = Math.PI / 2;
+    private static final LoopTimer EXECUTE_TIMER = LoopTiming.timer("Commands/DriveCommand");
+    private static final TelemetryChannel HEADING_GOAL_CHANNEL = Telemetry.channel("DriveCommand/heading goal");
+    private static final TelemetryChannel HEADING_ERROR_CHANNEL = Telemetry.channel("DriveCommand/heading error");
+    private static final DoubleSupplier NEVER_SNAP = () -> Double.NaN;
 
     private final SwerveSubsystem swerveSubsystem;
-    private final Supplier<Rotation2d> pigeonYawSupplier;
-    private final Supplier<Double> joystickAngleSupplier;
-    private final Supplier<Translation2d> joystickMovementSupplier;
+    private final DrivetrainConfigStore configStore;
+    private final DoubleSupplier pigeonYawDegreesSupplier;
+    private final DoubleSupplier joystickAngleSupplier;
+    private final DoubleSupplier joystickMovementXSupplier;
+    private final DoubleSupplier joystickMovementYSupplier;
+    private final DoubleSupplier snapHeadingDegreesSupplier;
+    private final HeadingController headingController = new HeadingController(TimedRobot.kDefaultPeriod);
+    private DrivetrainConfig constrainedConfig = null;  // The config the heading constraints were last worked out for
+    private boolean holdingHeading = false;
+    private long executeCount = 0;
 
+    /**
+     * All the suppliers are primitive so that nothing gets boxed or allocated in the control loop.
+     *
+     * @param pigeonYawDegreesSupplier  Field relative heading of the robot, counterclockwise positive. Either the
+     *                                  continuous yaw or one wrapped to any range.
+     * @param joystickAngleSupplier     Spin, -1 to 1, counterclockwise positive
+     * @param joystickMovementXSupplier Field relative forward movement, -1 to 1
+     * @param joystickMovementYSupplier Field relative left movement, -1 to 1
+     */
     public DriveCommand(
             SwerveSubsystem swerveSubsystem,
-            Supplier<Rotation2d> pigeonYawSupplier,
-            Supplier<Double> joystickAngleSupplier,
-            Supplier<Translation2d> joystickMovementSupplier
+            DoubleSupplier pigeonYawDegreesSupplier,
+            DoubleSupplier joystickAngleSupplier,
+            DoubleSupplier joystickMovementXSupplier,
+            DoubleSupplier joystickMovementYSupplier
+    ) {
+        this(
+                swerveSubsystem,
+                pigeonYawDegreesSupplier,
+                joystickAngleSupplier,
+                joystickMovementXSupplier,
+                joystickMovementYSupplier,
+                DrivetrainConfigStore.fixed(DrivetrainConfig.defaults())
+        );
+    }
+
+    /**
+     * @param configStore Where to get the top speed and spin rate from. They're read every loop, so a reloaded config
+     *                    takes effect right away.
+     */
+    public DriveCommand(
+            SwerveSubsystem swerveSubsystem,
+            DoubleSupplier pigeonYawDegreesSupplier,
+            DoubleSupplier joystickAngleSupplier,
+            DoubleSupplier joystickMovementXSupplier,
+            DoubleSupplier joystickMovementYSupplier,
+            DrivetrainConfigStore configStore
+    ) {
+        this(
+                swerveSubsystem,
+                pigeonYawDegreesSupplier,
+                joystickAngleSupplier,
+                joystickMovementXSupplier,
+                joystickMovementYSupplier,
+                NEVER_SNAP,
+                configStore
+        );
+    }
+
+    /**
+     * @param joystickAngleSupplier      Spin, -1 to 1, counterclockwise positive. Exactly 0, like inside a deadband,
+     *                                   holds the heading instead.
+     * @param snapHeadingDegreesSupplier Field relative heading to turn to and hold, counterclockwise positive, or NaN
+     *                                   to not snap. The spin stick wins over it.
+     */
+    public DriveCommand(
+            SwerveSubsystem swerveSubsystem,
+            DoubleSupplier pigeonYawDegreesSupplier,
+            DoubleSupplier joystickAngleSupplier,
+            DoubleSupplier joystickMovementXSupplier,
+            DoubleSupplier joystickMovementYSupplier,
+            DoubleSupplier snapHeadingDegreesSupplier,
+            DrivetrainConfigStore configStore
     ) {
         this.swerveSubsystem = swerveSubsystem;
-        this.pigeonYawSupplier = pigeonYawSupplier;
+        this.configStore = configStore;
+        this.pigeonYawDegreesSupplier = pigeonYawDegreesSupplier;
         this.joystickAngleSupplier = joystickAngleSupplier;
-        this.joystickMovementSupplier = joystickMovementSupplier;
+        this.joystickMovementXSupplier = joystickMovementXSupplier;
+        this.joystickMovementYSupplier = joystickMovementYSupplier;
+        this.snapHeadingDegreesSupplier = snapHeadingDegreesSupplier;
         addRequirements(swerveSubsystem);
     }
 
+    @Override
+    public void initialize() {
+        // Whatever drove before may have left the robot turning, start the profile from there
+        headingController.reset(
+                Math.toRadians(pigeonYawDegreesSupplier.getAsDouble()),
+                Math.toRadians(swerveSubsystem.getHeading().getRateDegreesPerSecond())
+        );
+        holdingHeading = false;
+    }
+
     @Override
     public void execute() {
-        Rotation2d direction = pigeonYawSupplier.get();
+        long start = EXECUTE_TIMER.start();
+
+        DrivetrainConfig config = configStore.get();
+        double direction = Math.toRadians(pigeonYawDegreesSupplier.getAsDouble());
 
-        Translation2d movement = joystickMovementSupplier.get();
+        double fieldX = joystickMovementXSupplier.getAsDouble() * config.getMaxSpeedMetersPerSecond();
+        double fieldY = joystickMovementYSupplier.getAsDouble() * config.getMaxSpeedMetersPerSecond();
 
-        double leftRightSpin = joystickAngleSupplier.get();
+        double leftRightSpin = joystickAngleSupplier.getAsDouble();
+        double omega = leftRightSpin * config.getMaxSpinRadiansPerSecond();
+        if (config != constrainedConfig) {
+            headingController.setConstraints(
+                    config.getMaxSpinRadiansPerSecond(),
+                    config.getMaxAngularAccelerationRadiansPerSecondSquared()
+            );
+            constrainedConfig = config;
+        }
 
-        ChassisSpeeds chassisSpeeds = ChassisSpeeds.fromFieldRelativeSpeeds(
-                movement.getX() * SPEED_MULTIPLIER,
-                movement.getY() * SPEED_MULTIPLIER,
-                leftRightSpin * SPIN_ROTATIONS_PER_SECOND,
-                direction
+        double rate = Math.toRadians(swerveSubsystem.getHeading().getRateDegreesPerSecond());
+        if (leftRightSpin != 0) {
+            headingController.reset(direction, rate);
+            holdingHeading = false;
+        } else {
+            double snapHeadingDegrees = snapHeadingDegreesSupplier.getAsDouble();
+            if (!Double.isNaN(snapHeadingDegrees)) {
+                headingController.setGoal(Math.toRadians(snapHeadingDegrees));
+                holdingHeading = true;
+            } else if (!holdingHeading) {
+                headingController.holdWhereStopping();
+                holdingHeading = true;
+            }
+            omega = headingController.calculate(direction, rate);
+        }
+
+        // Same as ChassisSpeeds.fromFieldRelativeSpeeds, rotating the field relative movement by -direction
+        double cos = Math.cos(direction);
+        double sin = Math.sin(direction);
+        swerveSubsystem.apply(
+                fieldX * cos + fieldY * sin,
+                -fieldX * sin + fieldY * cos,
+                omega
         );
-        swerveSubsystem.apply(chassisSpeeds);
+
+        HEADING_GOAL_CHANNEL.log(Math.toDegrees(headingController.getGoalRadians()));
+        double headingError = MathUtil.angleModulus(headingController.getGoalRadians() - direction);
+        HEADING_ERROR_CHANNEL.log(Math.toDegrees(headingError));
+
+        executeCount++;
+        EXECUTE_TIMER.stop(start);
+    }
+
+    /**
+     * @return How many times this has driven the robot, so a recording can tell which loops it ran in
+     */
+    public long getExecuteCount() {
+        return executeCount;
     }
 }
@@ -0,0 +1,91 @@
+package frc.robot.commands;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.CommandBase;
+import frc.robot.subsystems.SwerveSubsystem;
+import frc.robot.telemetry.LoopTimer;
+import frc.robot.telemetry.LoopTiming;
+import frc.robot.telemetry.Telemetry;
+import frc.robot.telemetry.TelemetryChannel;
+import frc.robot.trajectory.MappedTrajectory;
+import frc.robot.trajectory.TrajectorySample;
+
+/**
+ * Follow a baked trajectory. The trajectory's velocity is the feedforward, and proportional feedback on the pose
+ * estimate pulls the robot back onto the path.
+ */
+public class FollowTrajectoryCommand extends CommandBase {
+    private static final LoopTimer EXECUTE_TIMER = LoopTiming.timer("Commands/FollowTrajectoryCommand");
+    private static final TelemetryChannel X_ERROR_CHANNEL = Telemetry.channel("Trajectory/x error");
+    private static final TelemetryChannel Y_ERROR_CHANNEL = Telemetry.channel("Trajectory/y error");
+    private static final TelemetryChannel HEADING_ERROR_CHANNEL = Telemetry.channel("Trajectory/heading error");
+
+    // Meters per second per meter of error, and radians per second per radian of error
+    private static final double TRANSLATION_KP = 2.0;
+    private static final double HEADING_KP = 3.0;
+
+    private final SwerveSubsystem swerveSubsystem;
+    private final MappedTrajectory trajectory;
+    private final boolean resetPose;
+    private final TrajectorySample sample = new TrajectorySample();
+    private double startTime;
+
+    /**
+     * @param resetPose Whether to reset the pose estimate to the start of the trajectory, for the first path of an auto
+     */
+    public FollowTrajectoryCommand(SwerveSubsystem swerveSubsystem, MappedTrajectory trajectory, boolean resetPose) {
+        this.swerveSubsystem = swerveSubsystem;
+        this.trajectory = trajectory;
+        this.resetPose = resetPose;
+        addRequirements(swerveSubsystem);
+    }
+
+    @Override
+    public void initialize() {
+        if (resetPose) {
+            trajectory.sample(0, sample);
+            swerveSubsystem.resetPose(new Pose2d(sample.xMeters, sample.yMeters, new Rotation2d(sample.headingRadians)));
+        }
+        startTime = Timer.getFPGATimestamp();
+    }
+
+    @Override
+    public void execute() {
+        long start = EXECUTE_TIMER.start();
+
+        trajectory.sample(Timer.getFPGATimestamp() - startTime, sample);
+        Pose2d pose = swerveSubsystem.getPose();
+        double heading = pose.getRotation().getRadians();
+
+        double xError = sample.xMeters - pose.getX();
+        double yError = sample.yMeters - pose.getY();
+        double headingError = MathUtil.angleModulus(sample.headingRadians - heading);
+
+        double fieldX = sample.vxMetersPerSecond + TRANSLATION_KP * xError;
+        double fieldY = sample.vyMetersPerSecond + TRANSLATION_KP * yError;
+        double omega = sample.omegaRadiansPerSecond + HEADING_KP * headingError;
+
+        // Same field to robot relative rotation as DriveCommand
+        double cos = Math.cos(heading);
+        double sin = Math.sin(heading);
+        swerveSubsystem.apply(fieldX * cos + fieldY * sin, -fieldX * sin + fieldY * cos, omega);
+
+        X_ERROR_CHANNEL.log(xError);
+        Y_ERROR_CHANNEL.log(yError);
+        HEADING_ERROR_CHANNEL.log(headingError);
+        EXECUTE_TIMER.stop(start);
+    }
+
+    @Override
+    public boolean isFinished() {
+        return Timer.getFPGATimestamp() - startTime >= trajectory.getTotalTimeSeconds();
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        swerveSubsystem.apply(0, 0, 0);
+    }
+}
@@ -1,33 +1,97 @@
 package frc.robot.commands;
 
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.CommandBase;
 import frc.robot.subsystems.SwerveSubsystem;
+import frc.robot.subsystems.drive.DeviceConfigurator;
 
 /**
  * This command is designed to initialize the robot on power on. It, nor anything it calls should move any motors or do
  * anything that could cause the robot to move. We return true from {@link Command#runsWhenDisabled()} so we can
  * schedule this command inside the robot container and everything should be ready to go by the time we enable the
  * robot.
+ * <p>
+ * Every device is configured in parallel in the background. This command only watches, publishing each device's
+ * status to SmartDashboard under "Device config", and finishes when every device is done. It requires the swerve
+ * subsystem so nothing drives it until then.
+ * <p>
+ * Reconfiguring after a config reload, see {@link #reconfigure(SwerveSubsystem)}, doesn't require the subsystem.
+ * Whatever is driving keeps driving while the new offsets and gains go out, instead of being cancelled and leaving
+ * the motors running their last request until every device is done.
  */
 public class RobotInitCommand extends CommandBase {
+    private static final String STATUS_PREFIX = "Device config/";
+
     private final SwerveSubsystem swerveSubsystem;
+    private DeviceConfigurator configurator;
+    private DeviceConfigurator.Status[] publishedStatuses;
+    private int[] publishedAttempts;
 
     public RobotInitCommand(
             SwerveSubsystem swerveSubsystem
     ) {
+        this(swerveSubsystem, true);
+    }
+
+    private RobotInitCommand(SwerveSubsystem swerveSubsystem, boolean requireSubsystem) {
         this.swerveSubsystem = swerveSubsystem;
-        addRequirements(this.swerveSubsystem);
+        if (requireSubsystem) {
+            addRequirements(this.swerveSubsystem);
+        }
+    }
+
+    /**
+     * Send a reloaded config to the devices and watch them, without taking the subsystem from whatever is driving it.
+     * Safe to schedule while enabled.
+     */
+    public static RobotInitCommand reconfigure(SwerveSubsystem swerveSubsystem) {
+        return new RobotInitCommand(swerveSubsystem, false);
     }
 
     @Override
-    public boolean isFinished() {
-        return true;  // Execute always runs once, so it's safe to just always assume we're finished
+    public void initialize() {
+        configurator = swerveSubsystem.configureDevices();
+        publishedStatuses = new DeviceConfigurator.Status[configurator.getDeviceCount()];
+        publishedAttempts = new int[configurator.getDeviceCount()];
     }
 
     @Override
     public void execute() {
-        swerveSubsystem.init();
+        publishStatuses();
+    }
+
+    @Override
+    public boolean isFinished() {
+        return configurator.isDone();
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        publishStatuses();
+        if (interrupted) {
+            // Configuration carries on in the background, the statuses on the dashboard keep whatever we saw last
+            return;
+        }
+        for (int i = 0; i < configurator.getDeviceCount(); i++) {
+            if (!configurator.isConfigured(i)) {
+                DriverStation.reportError("Failed to configure " + configurator.getName(i), false);
+            }
+        }
+    }
+
+    // Only publish what changed, the statuses sit still most of the time
+    private void publishStatuses() {
+        for (int i = 0; i < configurator.getDeviceCount(); i++) {
+            DeviceConfigurator.Status status = configurator.getStatus(i);
+            int attempts = configurator.getAttempts(i);
+            if (status != publishedStatuses[i] || attempts != publishedAttempts[i]) {
+                publishedStatuses[i] = status;
+                publishedAttempts[i] = attempts;
+                SmartDashboard.putString(STATUS_PREFIX + configurator.getName(i), status + " (attempt " + attempts + ")");
+            }
+        }
     }
 
     /**
@@ -0,0 +1,431 @@
+package frc.robot.commands.swervesetup;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj2.command.CommandBase;
+import frc.robot.subsystems.SwerveSubsystem;
+import frc.robot.subsystems.drive.DeviceConfigurator;
+import frc.robot.subsystems.drive.DrivetrainConfig;
+import frc.robot.subsystems.drive.DrivetrainConfigStore;
+import frc.robot.subsystems.drive.SwerveModule;
+import frc.robot.telemetry.LoopTimer;
+import frc.robot.telemetry.LoopTiming;
+
+import java.io.IOException;
+
+/**
+ * Automated swerve calibration. This does the measuring parts of steps 1 through 5 in a few seconds and writes the
+ * results into drivetrain.json, which the robot then reloads by itself.
+ * <p>
+ * Before running it, put the robot on the ground with room to drive half a meter forward and spin in place, and turn
+ * every wheel by hand so it points straight forward with the bevel gears all facing the same side. Then enable and
+ * start "Calibrate drivetrain" from the dashboard. In order, it:
+ * <ol>
+ *     <li>Averages each CANcoder for half a second and sets the magnetic offsets so those readings become 0</li>
+ *     <li>Sends the new offsets to the CANcoders</li>
+ *     <li>Steps every module from 0 to 80 degrees. A module that turns the wrong way has its steer motor and CANcoder
+ *     disagreeing on direction.</li>
+ *     <li>Drives forward slowly. Every wheel has to reach its speed, and the robot shouldn't turn, which it would if one
+ *     drive motor were inverted.</li>
+ *     <li>Spins counterclockwise. The gyro has to read that as a positive turn.</li>
+ * </ol>
+ * The results are on the dashboard under "Calibration/". If the offsets and steering both check out they're saved,
+ * even if the drive or gyro checks fail, since those need hardware or config fixes that calibration can't make.
+ * <p>
+ * The steering gains are fitted separately, by "Tune steering gains" from {@link #tuneSteering}, with the robot up on
+ * blocks so no wheel touches the ground. It does the same step, and fits new gains from its overshoot and peak time.
+ * The fit assumes nothing but the module's own inertia resists the steering, and on the ground the tread scrubbing on
+ * the carpet would throw it off. Run it after the offsets are calibrated, it steers from them.
+ * <p>
+ * On the robot the saved file lives in the deploy directory, and the next deploy overwrites it. Copy
+ * /home/lvuser/deploy/drivetrain.json back into src/main/deploy to keep the results.
+ * <p>
+ * The manual steps are still around for when something fails here and you need to look at it yourself.
+ */
+public class CalibrationCommand extends CommandBase {
+    private static final LoopTimer EXECUTE_TIMER = LoopTiming.timer("Commands/CalibrationCommand");
+    private static final int OFFSET_SAMPLE_COUNT = 500 / 20;  // Half a second split into 20 ms chunks
+    private static final int REFRESH_WAIT_COUNT = 100 / 20;
+    private static final int HOLD_COUNT = 500 / 20;
+    private static final int STEP_SAMPLE_COUNT = 800 / 20;
+    private static final int DRIVE_COUNT = 1000 / 20;
+    private static final int SPIN_COUNT = 1000 / 20;
+    private static final double LOOP_SECONDS = 0.02;
+
+    // A wheel that moves while its offset is being measured spreads the readings out and shrinks their mean length
+    private static final double MIN_OFFSET_CONSISTENCY = 0.999;
+    private static final double STEP_DEGREES = 80;
+    private static final double STEP_TOLERANCE_DEGREES = 20;
+    private static final double DRIVE_SPEED_METERS_PER_SECOND = 0.5;
+    private static final double MAX_DRIVE_TURN_DEGREES = 5;
+    private static final double SPIN_RADIANS_PER_SECOND = 1;
+    private static final double MIN_SPIN_DEGREES = 20;
+
+    // What the fitted steering gains aim for: settle in 150 ms without more than about 2% overshoot
+    private static final double TARGET_DAMPING_RATIO = 0.8;
+    private static final double TARGET_SETTLING_SECONDS = 0.15;
+    // Don't move the gains further than this from the current ones in one run, in case the fit is off
+    private static final double MAX_GAIN_CHANGE = 2;
+
+    private enum Phase {
+        MEASURE_OFFSETS,
+        CONFIGURE_OFFSETS,
+        HOLD_STEERING,
+        STEP_STEERING,
+        DRIVE_FORWARD,
+        SPIN,
+        DONE
+    }
+
+    private final SwerveSubsystem swerveSubsystem;
+    private final DrivetrainConfigStore configStore;
+    private final boolean wheelsUp;  // Only the steering step, and fit the gains from it
+    private final double[] offsetSin;
+    private final double[] offsetCos;
+    private final double[] stepStart;
+    private final double[][] stepDegrees;
+    private Phase phase;
+    private int counter;
+    private DrivetrainConfig calibrated;
+    private DeviceConfigurator configurator;
+    private double startYawDegrees;
+    private boolean offsetsOk;
+    private boolean steeringOk;
+    private boolean driveOk;
+    private boolean gyroOk;
+
+    /**
+     * Calibrate with the robot on the ground, see above.
+     */
+    public CalibrationCommand(SwerveSubsystem swerveSubsystem, DrivetrainConfigStore configStore) {
+        this(swerveSubsystem, configStore, false);
+    }
+
+    private CalibrationCommand(SwerveSubsystem swerveSubsystem, DrivetrainConfigStore configStore, boolean wheelsUp) {
+        this.swerveSubsystem = swerveSubsystem;
+        this.configStore = configStore;
+        this.wheelsUp = wheelsUp;
+
+        int moduleCount = swerveSubsystem.getModules().length;
+        offsetSin = new double[moduleCount];
+        offsetCos = new double[moduleCount];
+        stepStart = new double[moduleCount];
+        stepDegrees = new double[moduleCount][STEP_SAMPLE_COUNT];
+
+        addRequirements(swerveSubsystem);
+    }
+
+    /**
+     * Fit the steering gains from a step, with the robot up on blocks so none of the wheels touch the ground. Only the
+     * gains are saved.
+     */
+    public static CalibrationCommand tuneSteering(SwerveSubsystem swerveSubsystem, DrivetrainConfigStore configStore) {
+        return new CalibrationCommand(swerveSubsystem, configStore, true);
+    }
+
+    @Override
+    public void initialize() {
+        phase = Phase.MEASURE_OFFSETS;
+        counter = 0;
+        calibrated = swerveSubsystem.getConfig();
+        configurator = null;
+        offsetsOk = false;
+        steeringOk = false;
+        driveOk = false;
+        gyroOk = false;
+        for (int i = 0; i < offsetSin.length; i++) {
+            offsetSin[i] = 0;
+            offsetCos[i] = 0;
+        }
+        if (wheelsUp) {
+            // The offsets are already calibrated, nothing to check
+            offsetsOk = true;
+            nextPhase(Phase.HOLD_STEERING, "Checking steering, keep the wheels off the ground");
+        } else {
+            status("Measuring offsets, don't touch the wheels");
+        }
+    }
+
+    @Override
+    public void execute() {
+        long start = EXECUTE_TIMER.start();
+
+        SwerveModule[] modules = swerveSubsystem.getModules();
+        counter++;
+        switch (phase) {
+            case MEASURE_OFFSETS:
+                // Leave the steering alone, the wheels are where they were put by hand
+                for (int i = 0; i < modules.length; i++) {
+                    modules[i].setDriveDutyCycle(0);
+                    double angle = modules[i].getAbsolutePosition() * 2 * Math.PI;
+                    offsetSin[i] += Math.sin(angle);
+                    offsetCos[i] += Math.cos(angle);
+                }
+                if (counter >= OFFSET_SAMPLE_COUNT) {
+                    measureOffsets();
+                    if (!offsetsOk) {
+                        phase = Phase.DONE;
+                        break;
+                    }
+                    swerveSubsystem.applyConfig(calibrated);
+                    configurator = swerveSubsystem.configureDevices();
+                    nextPhase(Phase.CONFIGURE_OFFSETS, "Sending offsets");
+                }
+                break;
+            case CONFIGURE_OFFSETS:
+                if (!configurator.isDone()) {
+                    counter = 0;
+                } else if (!configurator.allConfigured()) {
+                    offsetsOk = false;
+                    status("Couldn't configure the CANcoders, check the RobotInitCommand results");
+                    phase = Phase.DONE;
+                } else if (counter >= REFRESH_WAIT_COUNT) {
+                    // Give the signals a few loops to pick up the new offsets before steering from them
+                    nextPhase(Phase.HOLD_STEERING, "Checking steering");
+                }
+                break;
+            case HOLD_STEERING:
+                for (SwerveModule module : modules) {
+                    module.apply(0, 0);
+                }
+                if (counter >= HOLD_COUNT) {
+                    for (int i = 0; i < modules.length; i++) {
+                        stepStart[i] = modules[i].getSteerPositionRotations();
+                    }
+                    nextPhase(Phase.STEP_STEERING, "Checking steering");
+                }
+                break;
+            case STEP_STEERING:
+                for (int i = 0; i < modules.length; i++) {
+                    modules[i].apply(0, STEP_DEGREES);
+                    // The signals are refreshed before commands run, so sample k is the response k loops after the step
+                    stepDegrees[i][counter - 1] = (modules[i].getSteerPositionRotations() - stepStart[i]) * 360;
+                }
+                if (counter >= STEP_SAMPLE_COUNT) {
+                    checkSteering();
+                    if (!steeringOk || wheelsUp) {
+                        phase = Phase.DONE;
+                        break;
+                    }
+                    startYawDegrees = swerveSubsystem.getYawDegrees();
+                    nextPhase(Phase.DRIVE_FORWARD, "Checking drive directions");
+                }
+                break;
+            case DRIVE_FORWARD:
+                swerveSubsystem.apply(DRIVE_SPEED_METERS_PER_SECOND, 0, 0);
+                if (counter >= DRIVE_COUNT) {
+                    checkDrive(modules);
+                    swerveSubsystem.apply(0, 0, 0);
+                    startYawDegrees = swerveSubsystem.getYawDegrees();
+                    nextPhase(Phase.SPIN, "Checking the gyro");
+                }
+                break;
+            case SPIN:
+                swerveSubsystem.apply(0, 0, SPIN_RADIANS_PER_SECOND);
+                if (counter >= SPIN_COUNT) {
+                    double turned = swerveSubsystem.getYawDegrees() - startYawDegrees;
+                    gyroOk = turned >= MIN_SPIN_DEGREES;
+                    SmartDashboard.putString("Calibration/Gyro", gyroOk
+                            ? String.format("OK, turned %.0f degrees", turned)
+                            : String.format("Turned %.0f degrees counterclockwise, check the gyro's mounting and ID", turned));
+                    swerveSubsystem.apply(0, 0, 0);
+                    phase = Phase.DONE;
+                }
+                break;
+            case DONE:
+                break;
+        }
+
+        EXECUTE_TIMER.stop(start);
+    }
+
+    @Override
+    public boolean isFinished() {
+        return phase == Phase.DONE;
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        swerveSubsystem.apply(0, 0, 0);
+        if (interrupted) {
+            // Put the old offsets back, the new ones weren't checked
+            swerveSubsystem.applyConfig(configStore.get());
+            swerveSubsystem.configureDevices();
+            status("Interrupted, nothing saved");
+            return;
+        }
+        if (!offsetsOk || !steeringOk) {
+            // The status already says what failed
+            swerveSubsystem.applyConfig(configStore.get());
+            swerveSubsystem.configureDevices();
+            return;
+        }
+
+        try {
+            configStore.save(calibrated);
+            if (wheelsUp) {
+                status("Saved steering gains, copy drivetrain.json off the robot to keep them");
+            } else {
+                status(driveOk && gyroOk
+                        ? "Saved, copy drivetrain.json off the robot to keep it"
+                        : "Saved offsets, but fix the drive or gyro problems");
+            }
+        } catch (IOException e) {
+            DriverStation.reportError("Failed to save the calibration: " + e.getMessage(), false);
+            status("Couldn't save: " + e.getMessage());
+        }
+    }
+
+    private void nextPhase(Phase next, String message) {
+        phase = next;
+        counter = 0;
+        status(message);
+    }
+
+    private static void status(String message) {
+        SmartDashboard.putString("Calibration/Status", message);
+    }
+
+    /**
+     * The CANcoder reads raw position plus offset, so the offset that makes the current reading 0 is the current offset
+     * minus the reading. The readings are averaged as angles, so ones on either side of 0 don't average to 0.5.
+     */
+    private void measureOffsets() {
+        double[] offsets = new double[offsetSin.length];
+        offsetsOk = true;
+        for (int i = 0; i < offsets.length; i++) {
+            double consistency = Math.hypot(offsetSin[i], offsetCos[i]) / OFFSET_SAMPLE_COUNT;
+            double measured = Math.atan2(offsetSin[i], offsetCos[i]) / (2 * Math.PI);
+            offsets[i] = MathUtil.inputModulus(calibrated.getMagneticOffset(i) - measured, -0.5, 0.5);
+
+            String name = calibrated.getModuleName(i);
+            if (consistency < MIN_OFFSET_CONSISTENCY) {
+                offsetsOk = false;
+                SmartDashboard.putString("Calibration/" + name + " offset", "Wheel moved while measuring");
+                status(name + " moved while measuring its offset");
+            } else {
+                SmartDashboard.putString("Calibration/" + name + " offset", String.format("%.4f", offsets[i]));
+            }
+        }
+        if (offsetsOk) {
+            calibrated = calibrated.withMagneticOffsets(offsets);
+        }
+    }
+
+    /**
+     * Check every module turned toward the step, and with the wheels up, fit new steering gains from how it got there.
+     * <p>
+     * With the wheel off the ground, steering is close to a motor driving an inertia, so volts to angle is
+     * K / (s (τ s + 1)). Closing a loop around that with P on the error and D on the measurement gives
+     * s² + (1 + K kD) / τ s + K kP / τ, a second order system. Its overshoot gives the damping ratio ζ, and with the
+     * peak time that gives the natural frequency ωn. Matching those up gives K / τ = ωn² / kP and
+     * 1 / τ = 2 ζ ωn - (K / τ) kD, and from there new gains for the target damping and settling time. On the ground,
+     * scrub adds friction that isn't in that model, so there the step only checks the direction.
+     */
+    private void checkSteering() {
+        double kP = calibrated.getSteerKP();
+        double kD = calibrated.getSteerKD();
+        double gainSum = 0;
+        double inverseTauSum = 0;
+        int fitCount = 0;
+        steeringOk = true;
+
+        for (int i = 0; i < stepDegrees.length; i++) {
+            double[] response = stepDegrees[i];
+            String name = calibrated.getModuleName(i);
+
+            double end = 0;
+            for (int k = response.length - 5; k < response.length; k++) {
+                end += response[k] / 5;
+            }
+            if (Math.abs(end - STEP_DEGREES) > STEP_TOLERANCE_DEGREES) {
+                steeringOk = false;
+                SmartDashboard.putString("Calibration/" + name + " steering", String.format(
+                        "Turned %.0f degrees instead of %.0f, check the steer motor inversion", end, STEP_DEGREES));
+                status(name + " didn't steer to the target");
+                continue;
+            }
+            if (!wheelsUp) {
+                SmartDashboard.putString("Calibration/" + name + " steering", "OK");
+                continue;
+            }
+
+            int peakIndex = 0;
+            for (int k = 1; k < response.length; k++) {
+                if (response[k] > response[peakIndex]) {
+                    peakIndex = k;
+                }
+            }
+            double overshoot = (response[peakIndex] - STEP_DEGREES) / STEP_DEGREES;
+            if (overshoot <= 0.005 || peakIndex == 0) {
+                // No overshoot to fit, which means the loop is already at least critically damped
+                SmartDashboard.putString("Calibration/" + name + " steering", "OK, no overshoot");
+                continue;
+            }
+
+            double logOvershoot = Math.log(overshoot);
+            double damping = -logOvershoot / Math.sqrt(Math.PI * Math.PI + logOvershoot * logOvershoot);
+            double naturalFrequency = Math.PI / (peakIndex * LOOP_SECONDS * Math.sqrt(1 - damping * damping));
+            double gainOverTau = naturalFrequency * naturalFrequency / kP;
+            double inverseTau = 2 * damping * naturalFrequency - gainOverTau * kD;
+            SmartDashboard.putString("Calibration/" + name + " steering", String.format(
+                    "OK, %.0f%% overshoot at %.0f ms", overshoot * 100, peakIndex * LOOP_SECONDS * 1000));
+            if (inverseTau <= 0) {
+                // Doesn't fit the model, probably from sampling a fast step at only 50 Hz
+                continue;
+            }
+            gainSum += gainOverTau;
+            inverseTauSum += inverseTau;
+            fitCount++;
+        }
+
+        if (!wheelsUp) {
+            return;
+        }
+        if (!steeringOk || fitCount == 0) {
+            SmartDashboard.putString("Calibration/Steer gains", String.format("Unchanged, kP %.3f kD %.4f", kP, kD));
+            return;
+        }
+
+        double gainOverTau = gainSum / fitCount;
+        double inverseTau = inverseTauSum / fitCount;
+        double targetFrequency = 4 / (TARGET_DAMPING_RATIO * TARGET_SETTLING_SECONDS);
+        double newKP = MathUtil.clamp(targetFrequency * targetFrequency / gainOverTau,
+                kP / MAX_GAIN_CHANGE, kP * MAX_GAIN_CHANGE);
+        // Work out the damping from the kP actually used, so clamping it doesn't also throw off the damping
+        double frequency = Math.sqrt(gainOverTau * newKP);
+        double newKD = Math.max(0, (2 * TARGET_DAMPING_RATIO * frequency - inverseTau) / gainOverTau);
+        newKD = MathUtil.clamp(newKD, kD / MAX_GAIN_CHANGE, kD * MAX_GAIN_CHANGE);
+
+        calibrated = calibrated.withSteerGains(newKP, newKD);
+        SmartDashboard.putString("Calibration/Steer gains", String.format(
+                "kP %.3f kD %.4f, was kP %.3f kD %.4f", newKP, newKD, kP, kD));
+    }
+
+    /**
+     * Each drive motor's loop only sees its own encoder, so an inverted motor still reaches its speed, it just pushes
+     * the wrong way. That shows up as the robot turning instead.
+     */
+    private void checkDrive(SwerveModule[] modules) {
+        driveOk = true;
+        for (int i = 0; i < modules.length; i++) {
+            double speed = modules[i].getDriveVelocityMetersPerSecond();
+            // The module may have flipped its wheel around and be driving backwards
+            if (Math.abs(Math.abs(speed) - DRIVE_SPEED_METERS_PER_SECOND) > DRIVE_SPEED_METERS_PER_SECOND / 2) {
+                driveOk = false;
+                SmartDashboard.putString("Calibration/" + modules[i].name + " drive", String.format(
+                        "%.2f m/s instead of %.2f, check the drive motor", speed, DRIVE_SPEED_METERS_PER_SECOND));
+            } else {
+                SmartDashboard.putString("Calibration/" + modules[i].name + " drive", "OK");
+            }
+        }
+
+        double turned = swerveSubsystem.getYawDegrees() - startYawDegrees;
+        boolean straight = Math.abs(turned) <= MAX_DRIVE_TURN_DEGREES;
+        driveOk &= straight;
+        SmartDashboard.putString("Calibration/Drive straight", straight
+                ? "OK"
+                : String.format("Turned %.0f degrees driving forward, one side's drive motors are inverted", turned));
+    }
+}
@@ -1,9 +1,12 @@
 package frc.robot.commands.swervesetup;
 
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.CommandBase;
 import frc.robot.subsystems.SwerveSubsystem;
 import frc.robot.subsystems.drive.SwerveModule;
+import frc.robot.telemetry.LoopTimer;
+import frc.robot.telemetry.LoopTiming;
+import frc.robot.telemetry.Telemetry;
+import frc.robot.telemetry.TelemetryChannel;
 
 /**
  * Swerve Setup step 1: Zeroing the rotation encoder
@@ -36,19 +39,29 @@ import frc.robot.subsystems.drive.SwerveModule;
  * wheels forward shows 0 for the rotation in the dashboard.
  */
 public class Step1ZeroRotationEncoder extends CommandBase {
+    private static final LoopTimer EXECUTE_TIMER = LoopTiming.timer("Commands/Step1ZeroRotationEncoder");
     static final int PAUSE_COUNT = 10_000 / 20;  // 10 seconds split into 20 ms chunks
     private final SwerveSubsystem swerveSubsystem;
+    private final TelemetryChannel[] rotationChannels;
     private int counter = 0;
     private boolean moving = false;
 
     public Step1ZeroRotationEncoder(SwerveSubsystem swerveSubsystem) {
         this.swerveSubsystem = swerveSubsystem;
 
+        SwerveModule[] modules = swerveSubsystem.getModules();
+        rotationChannels = new TelemetryChannel[modules.length];
+        for (int i = 0; i < modules.length; i++) {
+            rotationChannels[i] = Telemetry.dashboardChannel(modules[i].name + " rotation");
+        }
+
         addRequirements(swerveSubsystem);
     }
 
     @Override
     public void execute() {
+        long start = EXECUTE_TIMER.start();
+
         counter++;
         if (counter >= PAUSE_COUNT) {
             counter = 0;
@@ -56,14 +69,18 @@ public class Step1ZeroRotationEncoder extends CommandBase {
             moving = !moving;  // Every 10 seconds, switch from not moving to moving or vice-versa
         }
 
-        for (SwerveModule module : swerveSubsystem.getModules()) {
-            SmartDashboard.putNumber(module.config.name + " rotation", module.rotationEncoder.getAbsolutePosition().getValue());
+        SwerveModule[] modules = swerveSubsystem.getModules();
+        for (int i = 0; i < modules.length; i++) {
+            SwerveModule module = modules[i];
+            rotationChannels[i].log(module.getAbsolutePosition());
 
             if (moving) {
-                module.moveMotor.set(0.1);  // Move at a slow speed, so you can tell which direction it's moving in
+                module.setDriveDutyCycle(0.1);  // Move at a slow speed, so you can tell which direction it's moving in
             } else {
-                module.moveMotor.set(0);  // Stop the motor. This allows adjusting the rotation manually to find the magnetic offset
+                module.setDriveDutyCycle(0);  // Stop the motor. This allows adjusting the rotation manually to find the magnetic offset
             }
         }
+
+        EXECUTE_TIMER.stop(start);
     }
 }
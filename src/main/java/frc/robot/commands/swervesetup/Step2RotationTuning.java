@@ -1,11 +1,13 @@
 package frc.robot.commands.swervesetup;
 
-import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.CommandBase;
 import frc.robot.subsystems.SwerveSubsystem;
 import frc.robot.subsystems.drive.SwerveModule;
+import frc.robot.telemetry.LoopTimer;
+import frc.robot.telemetry.LoopTiming;
+import frc.robot.telemetry.Telemetry;
+import frc.robot.telemetry.TelemetryChannel;
 
 /**
  * Swerve Setup step 2: Rotation Tuning
@@ -60,20 +62,31 @@ import frc.robot.subsystems.drive.SwerveModule;
  * through these tuning steps again. Luckily most of the tuning can be done purely based on the dashboard outputs.
  */
 public class Step2RotationTuning extends CommandBase {
+    private static final LoopTimer EXECUTE_TIMER = LoopTiming.timer("Commands/Step2RotationTuning");
     static final int PAUSE_COUNT = 10_000 / 20;  // 10 seconds split into 20 ms chunks
     private final SwerveSubsystem swerveSubsystem;
+    private final TelemetryChannel desiredAngleChannel = Telemetry.dashboardChannel("Desired Angle");
+    private final TelemetryChannel[] rotationChannels;
     private int counter = 0;
     private int desiredAngle = 0;
 
     public Step2RotationTuning(SwerveSubsystem swerveSubsystem) {
         this.swerveSubsystem = swerveSubsystem;
 
+        SwerveModule[] modules = swerveSubsystem.getModules();
+        rotationChannels = new TelemetryChannel[modules.length];
+        for (int i = 0; i < modules.length; i++) {
+            rotationChannels[i] = Telemetry.dashboardChannel(modules[i].name + " rotation");
+        }
+
         addRequirements(swerveSubsystem);
     }
 
     @Override
     public void execute() {
-        SmartDashboard.putNumber("Desired Angle", desiredAngle);
+        long start = EXECUTE_TIMER.start();
+
+        desiredAngleChannel.log(desiredAngle);
 
         counter++;
         if (counter >= PAUSE_COUNT) { // 10 seconds
@@ -81,11 +94,15 @@ public class Step2RotationTuning extends CommandBase {
             desiredAngle = (desiredAngle + 90) % 360;
         }
 
-        for (SwerveModule module : swerveSubsystem.getModules()) {
-            SmartDashboard.putNumber(module.config.name + " rotation", module.rotationEncoder.getAbsolutePosition().getValue() * 360);
+        SwerveModule[] modules = swerveSubsystem.getModules();
+        for (int i = 0; i < modules.length; i++) {
+            SwerveModule module = modules[i];
+            rotationChannels[i].log(module.getAbsolutePosition() * 360);
 
             // Make each module move forward slowly, so you can determine the direction
-            module.apply(new SwerveModuleState(0.1, Rotation2d.fromDegrees(desiredAngle)));
+            module.apply(0.1, desiredAngle);
         }
+
+        EXECUTE_TIMER.stop(start);
     }
 }
@@ -1,9 +1,12 @@
 package frc.robot.commands.swervesetup;
 
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.CommandBase;
 import frc.robot.subsystems.SwerveSubsystem;
+import frc.robot.telemetry.LoopTimer;
+import frc.robot.telemetry.LoopTiming;
+import frc.robot.telemetry.Telemetry;
+import frc.robot.telemetry.TelemetryChannel;
 
 import java.util.function.Supplier;
 
@@ -44,10 +47,12 @@ import java.util.function.Supplier;
  * value.
  */
 public class Step3RobotRotation extends CommandBase {
+    private static final LoopTimer EXECUTE_TIMER = LoopTiming.timer("Commands/Step3RobotRotation");
     private static final double SPIN_ROTATIONS_PER_SECOND = 0.2;
 
     private final SwerveSubsystem swerveSubsystem;
     private final Supplier<Double> joystickLeftRightSupplier;
+    private final TelemetryChannel joystickChannel = Telemetry.dashboardChannel("joystick LR");
 
     public Step3RobotRotation(
             SwerveSubsystem swerveSubsystem,
@@ -61,9 +66,11 @@ public class Step3RobotRotation extends CommandBase {
 
     @Override
     public void execute() {
+        long start = EXECUTE_TIMER.start();
+
         double leftRightValue = joystickLeftRightSupplier.get();
 
-        SmartDashboard.putNumber("joystick LR", leftRightValue);
+        joystickChannel.log(leftRightValue);
 
         ChassisSpeeds chassisSpeeds = new ChassisSpeeds(
                 0,
@@ -71,5 +78,7 @@ public class Step3RobotRotation extends CommandBase {
                 leftRightValue * SPIN_ROTATIONS_PER_SECOND
         );
         swerveSubsystem.apply(chassisSpeeds);
+
+        EXECUTE_TIMER.stop(start);
     }
 }
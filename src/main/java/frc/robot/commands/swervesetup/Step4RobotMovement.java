@@ -2,9 +2,12 @@ package frc.robot.commands.swervesetup;
 
 import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.CommandBase;
 import frc.robot.subsystems.SwerveSubsystem;
+import frc.robot.telemetry.LoopTimer;
+import frc.robot.telemetry.LoopTiming;
+import frc.robot.telemetry.Telemetry;
+import frc.robot.telemetry.TelemetryChannel;
 
 import java.util.function.Supplier;
 
@@ -42,10 +45,13 @@ import java.util.function.Supplier;
  * if you press left, and right if you press right. The rotation joystick will do nothing.
  */
 public class Step4RobotMovement extends CommandBase {
+    private static final LoopTimer EXECUTE_TIMER = LoopTiming.timer("Commands/Step4RobotMovement");
     private static final double SPEED_MULTIPLIER = 0.3;
 
     private final SwerveSubsystem swerveSubsystem;
     private final Supplier<Translation2d> joystickMovementSupplier;
+    private final TelemetryChannel joystickXChannel = Telemetry.dashboardChannel("joystick move X");
+    private final TelemetryChannel joystickYChannel = Telemetry.dashboardChannel("joystick move Y");
 
     public Step4RobotMovement(
             SwerveSubsystem swerveSubsystem,
@@ -59,10 +65,12 @@ public class Step4RobotMovement extends CommandBase {
 
     @Override
     public void execute() {
+        long start = EXECUTE_TIMER.start();
+
         Translation2d movement = joystickMovementSupplier.get();
 
-        SmartDashboard.putNumber("joystick move X", movement.getX());
-        SmartDashboard.putNumber("joystick move Y", movement.getY());
+        joystickXChannel.log(movement.getX());
+        joystickYChannel.log(movement.getY());
 
         ChassisSpeeds chassisSpeeds = new ChassisSpeeds(
                 movement.getX() * SPEED_MULTIPLIER,
@@ -70,5 +78,7 @@ public class Step4RobotMovement extends CommandBase {
                 0
         );
         swerveSubsystem.apply(chassisSpeeds);
+
+        EXECUTE_TIMER.stop(start);
     }
 }
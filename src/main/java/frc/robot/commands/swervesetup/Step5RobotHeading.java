@@ -1,11 +1,12 @@
 package frc.robot.commands.swervesetup;
 
-import edu.wpi.first.math.geometry.Rotation2d;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.CommandBase;
 import frc.robot.subsystems.SwerveSubsystem;
-
-import java.util.function.Supplier;
+import frc.robot.subsystems.drive.HeadingProvider;
+import frc.robot.telemetry.LoopTimer;
+import frc.robot.telemetry.LoopTiming;
+import frc.robot.telemetry.Telemetry;
+import frc.robot.telemetry.TelemetryChannel;
 
 /**
  * Step 5: Robot Heading
@@ -27,6 +28,10 @@ import java.util.function.Supplier;
  * counterclockwise results in a positive increase as described above, and it starts out at 0 when facing away from you
  * in the positive X direction of the field, you're golden.
  * <p>
+ * Keeping the value in range is handled by {@link HeadingProvider}, which the swerve subsystem updates once a loop. The
+ * dashboard shows both the wrapped heading, which should read 0 to 360, and the continuous yaw, which keeps counting
+ * as the robot spins. Spin the robot a few full turns to check the heading wraps back to 0 instead of growing.
+ * <p>
  * You should not expect the swerve modules to move at all in this test, but you will need to rotate the robot manually.
  * We still get the swerve subsystem in the constructor, but this is mostly for consistency and because it ensures no
  * other subsystem may accidentally use it while you're trying to move the robot.
@@ -42,22 +47,28 @@ import java.util.function.Supplier;
  * As I said though, that last section is a bit out of scope of this step in getting swerve to work, but useful to know.
  */
 public class Step5RobotHeading extends CommandBase {
+    private static final LoopTimer EXECUTE_TIMER = LoopTiming.timer("Commands/Step5RobotHeading");
 
-    private final SwerveSubsystem swerveSubsystem;  // Unused but kept here for consistency
-    private final Supplier<Rotation2d> headingSupplier;
+    private final SwerveSubsystem swerveSubsystem;
+    private final TelemetryChannel headingChannel = Telemetry.dashboardChannel("heading");
+    private final TelemetryChannel continuousChannel = Telemetry.dashboardChannel("continuous yaw");
+    private final TelemetryChannel rateChannel = Telemetry.dashboardChannel("yaw rate");
 
-    public Step5RobotHeading(
-            SwerveSubsystem swerveSubsystem,
-            Supplier<Rotation2d> headingSupplier
-    ) {
+    public Step5RobotHeading(SwerveSubsystem swerveSubsystem) {
         this.swerveSubsystem = swerveSubsystem;
-        this.headingSupplier = headingSupplier;
 
         addRequirements(swerveSubsystem);
     }
 
     @Override
     public void execute() {
-        SmartDashboard.putNumber("heading", headingSupplier.get().getDegrees());
+        long start = EXECUTE_TIMER.start();
+
+        HeadingProvider heading = swerveSubsystem.getHeading();
+        headingChannel.log(heading.getDegrees());
+        continuousChannel.log(heading.getContinuousDegrees());
+        rateChannel.log(heading.getRateDegreesPerSecond());
+
+        EXECUTE_TIMER.stop(start);
     }
 }
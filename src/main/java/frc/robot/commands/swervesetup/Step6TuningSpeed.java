@@ -6,6 +6,8 @@ import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
 import edu.wpi.first.wpilibj2.command.CommandBase;
 import frc.robot.subsystems.SwerveSubsystem;
+import frc.robot.telemetry.LoopTimer;
+import frc.robot.telemetry.LoopTiming;
 
 import java.util.function.Supplier;
 
@@ -59,6 +61,7 @@ import java.util.function.Supplier;
  * for teleop based drive control.
  */
 public class Step6TuningSpeed extends CommandBase {
+    private static final LoopTimer EXECUTE_TIMER = LoopTiming.timer("Commands/Step6TuningSpeed");
     private static final double SPEED_MULTIPLIER = 1;
     private static final double SPIN_ROTATIONS_PER_SECOND = Math.PI / 2;
 
@@ -82,6 +85,8 @@ public class Step6TuningSpeed extends CommandBase {
 
     @Override
     public void execute() {
+        long start = EXECUTE_TIMER.start();
+
         Rotation2d direction = pigeonYawSupplier.get();
 
         Translation2d movement = joystickMovementSupplier.get();
@@ -95,5 +100,7 @@ public class Step6TuningSpeed extends CommandBase {
                 direction
         );
         swerveSubsystem.apply(chassisSpeeds);
+
+        EXECUTE_TIMER.stop(start);
     }
 }
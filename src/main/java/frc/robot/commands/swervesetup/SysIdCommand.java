@@ -0,0 +1,179 @@
+package frc.robot.commands.swervesetup;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj2.command.CommandBase;
+import frc.robot.subsystems.SwerveSubsystem;
+import frc.robot.subsystems.drive.DrivetrainConfig;
+import frc.robot.subsystems.drive.DrivetrainConfigStore;
+import frc.robot.subsystems.drive.SwerveModule;
+import frc.robot.sysid.FeedforwardFit;
+import frc.robot.sysid.Mechanism;
+import frc.robot.sysid.SysIdLogger;
+import frc.robot.telemetry.LoopTimer;
+import frc.robot.telemetry.LoopTiming;
+
+import java.io.IOException;
+
+/**
+ * System identification for the drive or steer motors. This measures the feedforward the closed loop drive needs,
+ * instead of guessing kV from the motor's free speed and tuning the rest by feel.
+ * <p>
+ * It runs the four standard SysId tests on every module at once: a slow voltage ramp forward and backward
+ * (quasistatic), then a voltage step forward and backward (dynamic), with a short rest before each. The
+ * {@link SysIdLogger} records every sample at the odometry rate, and at the end the fitted kS, kV and kA for each
+ * module are on the dashboard under "SysId/". For the drive motors, if every module fits well, the average kS and kV
+ * are saved into drivetrain.json. kA and the steer results are only reported, nothing uses them yet.
+ * <p>
+ * The drive test needs the robot on the carpet, with about 4 meters clear in front and behind, since the wheels only
+ * behave like they do in a match with the robot's weight on them. The steer test spins the wheels in place. Either one
+ * can be cancelled by disabling, which saves nothing.
+ * <p>
+ * To fit from the log instead, or from several runs together, use {@code ./gradlew sysidFit -Plog=...}.
+ */
+public class SysIdCommand extends CommandBase {
+    private static final LoopTimer EXECUTE_TIMER = LoopTiming.timer("Commands/SysIdCommand");
+    private static final double LOOP_SECONDS = 0.02;
+    private static final int REST_COUNT = 1000 / 20;
+    private static final int TEST_COUNT = 4;
+    // Gains from a worse fit than this are probably from wheel slip or a bad run, so they aren't saved
+    private static final double MIN_R_SQUARED = 0.95;
+
+    private final SwerveSubsystem swerveSubsystem;
+    private final DrivetrainConfigStore configStore;
+    private final Mechanism mechanism;
+    private final SysIdLogger logger;
+    private final int quasistaticCount;
+    private final int dynamicCount;
+
+    // Tests are numbered 1 to 4, each one preceded by a rest
+    private int test;
+    private boolean resting;
+    private int counter;
+
+    public SysIdCommand(SwerveSubsystem swerveSubsystem, DrivetrainConfigStore configStore, Mechanism mechanism) {
+        this.swerveSubsystem = swerveSubsystem;
+        this.configStore = configStore;
+        this.mechanism = mechanism;
+
+        SwerveModule[] modules = swerveSubsystem.getModules();
+        String[] names = new String[modules.length];
+        for (int i = 0; i < modules.length; i++) {
+            names[i] = modules[i].name;
+        }
+        logger = new SysIdLogger(mechanism, names);
+        quasistaticCount = (int) Math.round(mechanism.quasistaticSeconds / LOOP_SECONDS);
+        dynamicCount = (int) Math.round(mechanism.dynamicSeconds / LOOP_SECONDS);
+
+        addRequirements(swerveSubsystem);
+    }
+
+    @Override
+    public void initialize() {
+        test = 1;
+        resting = true;
+        counter = 0;
+        logger.reset();
+        swerveSubsystem.setSampleListener(logger);
+        status("Running the " + mechanism.name + " tests");
+    }
+
+    @Override
+    public void execute() {
+        long start = EXECUTE_TIMER.start();
+
+        counter++;
+        double volts = 0;
+        if (resting) {
+            if (counter >= REST_COUNT) {
+                resting = false;
+                counter = 0;
+            }
+        } else {
+            // Tests 1 and 2 are the ramp, 3 and 4 the step, and even tests go backwards
+            boolean quasistatic = test <= 2;
+            volts = quasistatic ? mechanism.rampVoltsPerSecond * counter * LOOP_SECONDS : mechanism.dynamicVolts;
+            if (test % 2 == 0) {
+                volts = -volts;
+            }
+            if (counter >= (quasistatic ? quasistaticCount : dynamicCount)) {
+                volts = 0;
+                test++;
+                resting = true;
+                counter = 0;
+            }
+        }
+
+        SwerveModule[] modules = swerveSubsystem.getModules();
+        for (SwerveModule module : modules) {
+            if (mechanism == Mechanism.DRIVE) {
+                // Keep every wheel pointed straight ahead, so they all push the same way
+                module.setDriveVoltage(volts, 0);
+            } else {
+                module.setSteerVoltage(volts);
+            }
+        }
+        logger.setOutput(resting ? 0 : test, volts);
+
+        EXECUTE_TIMER.stop(start);
+    }
+
+    @Override
+    public boolean isFinished() {
+        return test > TEST_COUNT;
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        swerveSubsystem.setSampleListener(null);
+        logger.setOutput(0, 0);
+        swerveSubsystem.apply(0, 0, 0);
+        if (interrupted) {
+            status("Interrupted, nothing saved");
+            return;
+        }
+
+        SwerveModule[] modules = swerveSubsystem.getModules();
+        double kSSum = 0;
+        double kVSum = 0;
+        boolean allFit = true;
+        for (int i = 0; i < modules.length; i++) {
+            FeedforwardFit.Result result = logger.fit(i);
+            String key = "SysId/" + modules[i].name + " " + mechanism.name;
+            if (result == null) {
+                allFit = false;
+                SmartDashboard.putString(key, "Not enough data, did the motor move?");
+                continue;
+            }
+            SmartDashboard.putString(key, result.toString());
+            allFit &= result.rSquared >= MIN_R_SQUARED;
+            kSSum += result.kS;
+            kVSum += result.kV;
+        }
+
+        if (mechanism != Mechanism.DRIVE) {
+            status("Done, nothing to save for " + mechanism.name);
+            return;
+        }
+        if (!allFit) {
+            status("Not every module fit well, nothing saved");
+            return;
+        }
+
+        double kS = kSSum / modules.length;
+        double kV = kVSum / modules.length;
+        DrivetrainConfig config = swerveSubsystem.getConfig();
+        try {
+            configStore.save(config.withDriveFeedforward(kS, kV));
+            status(String.format("Saved kS %.4f kV %.4f, was kS %.4f kV %.4f",
+                    kS, kV, config.getDriveKS(), config.getDriveKV()));
+        } catch (IOException e) {
+            DriverStation.reportError("Failed to save the drive feedforward: " + e.getMessage(), false);
+            status("Couldn't save: " + e.getMessage());
+        }
+    }
+
+    private static void status(String message) {
+        SmartDashboard.putString("SysId/Status", message);
+    }
+}
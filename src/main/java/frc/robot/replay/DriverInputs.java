@@ -0,0 +1,93 @@
+package frc.robot.replay;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * One controller's axes, buttons and POV, read once at the start of the loop so every command in the loop sees the
+ * same values, and so they can be recorded and played back.
+ * <p>
+ * Anything that should behave the same in a replay has to read the controller through here rather than through a
+ * {@link edu.wpi.first.wpilibj.XboxController}, which always reads the live Driver Station. During a replay
+ * {@code InputReplay} sets the values from the recording instead of calling {@link #update()}.
+ * <p>
+ * Main thread only.
+ */
+public class DriverInputs {
+    /** Xbox controllers have 6 axes, numbered like {@link edu.wpi.first.wpilibj.XboxController.Axis} */
+    public static final int AXIS_COUNT = 6;
+
+    private final int port;
+    private final double[] axes = new double[AXIS_COUNT];
+    private int buttons = 0;
+    private int pov = -1;
+    private double timestampSeconds = 0;
+
+    /**
+     * @param port The controller's Driver Station port
+     */
+    public DriverInputs(int port) {
+        this.port = port;
+    }
+
+    /**
+     * Read the controller. Call once a loop, before the scheduler runs.
+     */
+    public void update() {
+        timestampSeconds = Timer.getFPGATimestamp();
+        for (int i = 0; i < AXIS_COUNT; i++) {
+            axes[i] = DriverStation.getStickAxis(port, i);
+        }
+        buttons = DriverStation.getStickButtons(port);
+        pov = DriverStation.getStickPOV(port, 0);
+    }
+
+    /**
+     * Set every value at once, from a recording.
+     *
+     * @param axes {@link #AXIS_COUNT} axes, starting at offset
+     */
+    public void set(double timestampSeconds, int buttons, int pov, double[] axes, int offset) {
+        this.timestampSeconds = timestampSeconds;
+        this.buttons = buttons;
+        this.pov = pov;
+        System.arraycopy(axes, offset, this.axes, 0, AXIS_COUNT);
+    }
+
+    /**
+     * @param axis Axis number, like {@code XboxController.Axis.kLeftY.value}
+     * @return -1 to 1
+     */
+    public double getAxis(int axis) {
+        return axes[axis];
+    }
+
+    /**
+     * @param button Button number, starting at 1 like the Driver Station, such as
+     *               {@code XboxController.Button.kA.value}
+     */
+    public boolean getButton(int button) {
+        return (buttons & (1 << (button - 1))) != 0;
+    }
+
+    /**
+     * @return Every button as a bit mask, button 1 in the lowest bit
+     */
+    public int getButtons() {
+        return buttons;
+    }
+
+    /**
+     * @return The POV angle in degrees, or -1 when it's not pressed
+     */
+    public int getPov() {
+        return pov;
+    }
+
+    /**
+     * @return FPGA time the controller was read at
+     */
+    public double getTimestampSeconds() {
+        return timestampSeconds;
+    }
+}
@@ -0,0 +1,117 @@
+package frc.robot.replay;
+
+import frc.robot.subsystems.drive.SignalHub;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * The layout of an input recording. A recording is a short header followed by one frame per loop, and every frame is
+ * the same number of doubles, so frames can be copied around as flat arrays and read back without parsing anything.
+ * <p>
+ * Each frame holds, in order:
+ * <ul>
+ *     <li>When the controller was read, then its buttons, POV and {@link DriverInputs#AXIS_COUNT} axes</li>
+ *     <li>When the {@link SignalHub} was sampled, then all of its values</li>
+ *     <li>Whether {@link frc.robot.commands.DriveCommand} ran, and whether anything drove the robot</li>
+ *     <li>What the drivetrain was last asked for and sent, as laid out by
+ *     {@link frc.robot.subsystems.SwerveSubsystem#copyLastApply(double[], int)}</li>
+ * </ul>
+ * With four modules that's 62 doubles, or 496 bytes, a loop, a little under 4 MB for a whole match.
+ */
+public class InputLog {
+    private static final int MAGIC = 0x44524956;  // "DRIV"
+    private static final int VERSION = 1;
+
+    public static final int LOOP_TIMESTAMP = 0;
+    public static final int BUTTONS = 1;
+    public static final int POV = 2;
+    public static final int AXES = 3;
+    public static final int HUB_TIMESTAMP = AXES + DriverInputs.AXIS_COUNT;
+    public static final int HUB_VALUES = HUB_TIMESTAMP + 1;
+
+    private final int moduleCount;
+    private final int driveCommandRan;
+    private final int applied;
+    private final int apply;
+    private final int frameLength;
+
+    public InputLog(int moduleCount) {
+        this.moduleCount = moduleCount;
+        driveCommandRan = HUB_VALUES + SignalHub.size(moduleCount);
+        applied = driveCommandRan + 1;
+        apply = applied + 1;
+        frameLength = apply + 4 + 3 * moduleCount;
+    }
+
+    /**
+     * Read a recording's header.
+     *
+     * @throws IOException If it isn't a recording, or it's from a version of the code with a different layout
+     */
+    public static InputLog readHeader(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not an input recording");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Recording is version " + version + ", this code reads version " + VERSION);
+        }
+        int moduleCount = in.readInt();
+        InputLog log = new InputLog(moduleCount);
+        int frameLength = in.readInt();
+        if (frameLength != log.frameLength) {
+            throw new IOException("Recording has " + frameLength + " values a frame, expected " + log.frameLength);
+        }
+        return log;
+    }
+
+    public void writeHeader(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(moduleCount);
+        out.writeInt(frameLength);
+    }
+
+    public int getModuleCount() {
+        return moduleCount;
+    }
+
+    /**
+     * @return Index of 1 if DriveCommand ran that loop, 0 if it didn't
+     */
+    public int getDriveCommandRanIndex() {
+        return driveCommandRan;
+    }
+
+    /**
+     * @return Index of 1 if anything drove the robot through apply that loop, 0 if nothing did. When it's 0, the
+     * values from {@link #getApplyIndex()} on are still the last apply's, from whichever loop that was.
+     */
+    public int getAppliedIndex() {
+        return applied;
+    }
+
+    /**
+     * @return Index of the power scale, the first value from
+     * {@link frc.robot.subsystems.SwerveSubsystem#copyLastApply(double[], int)}
+     */
+    public int getApplyIndex() {
+        return apply;
+    }
+
+    /**
+     * @return Index of the first module's speed. Each module has a speed, angle and steer rate, in that order.
+     */
+    public int getModuleOutputsIndex() {
+        return apply + 4;
+    }
+
+    /**
+     * @return How many doubles are in a frame
+     */
+    public int getFrameLength() {
+        return frameLength;
+    }
+}
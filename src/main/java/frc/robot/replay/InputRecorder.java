@@ -0,0 +1,179 @@
+package frc.robot.replay;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import frc.robot.ThreadScheduling;
+import frc.robot.subsystems.SwerveSubsystem;
+import frc.robot.subsystems.drive.SignalHub;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Records the driver's inputs, the drivetrain's sensor values and what the drivetrain sent to its modules every loop,
+ * so {@code InputReplay} can run them back through the same code later and check the outputs still match.
+ * <p>
+ * Same idea as {@link frc.robot.telemetry.Telemetry}: the main thread only copies the loop's frame into a ring buffer
+ * of primitives, and a background thread writes the ring out to the file. If the writer falls behind by more than
+ * {@link #CAPACITY} loops, frames are dropped and counted rather than holding up the loop, and a replay of that
+ * recording will report the gap.
+ * <p>
+ * DataLogManager only cleans up its own logs, so recordings look after themselves: each one stops at
+ * {@link #MAX_FILE_BYTES}, and {@link #pruneOldRecordings(Path)} deletes the oldest ones before a new one starts, so
+ * together they never take more than {@link #MAX_TOTAL_BYTES} of the roboRIO's flash.
+ */
+public class InputRecorder {
+    private static final int CAPACITY = 256;  // Frames, about 5 seconds. Must be a power of 2.
+    private static final int MASK = CAPACITY - 1;
+    private static final int WRITE_PERIOD_MS = 20;
+    // About 20 minutes of enabled driving, several matches' worth
+    private static final long MAX_FILE_BYTES = 32L * 1024 * 1024;
+    private static final long MAX_TOTAL_BYTES = 128L * 1024 * 1024;
+    private static final String PREFIX = "inputs_";
+    private static final String SUFFIX = ".bin";
+
+    private final InputLog layout;
+    private final int frameLength;
+    private final double[] ring;
+    private final DataOutputStream out;
+    private volatile long head = 0;  // Next frame to write, only written by the main thread
+    private volatile long tail = 0;  // Next frame to save, only written by the writer thread
+    private volatile long dropped = 0;
+    private volatile boolean failed = false;
+
+    private InputRecorder(InputLog layout, DataOutputStream out) {
+        this.layout = layout;
+        this.out = out;
+        frameLength = layout.getFrameLength();
+        ring = new double[CAPACITY * frameLength];
+    }
+
+    /**
+     * @return Where to record this boot's inputs, in the given directory
+     */
+    public static Path newRecordingFile(Path directory) {
+        return directory.resolve(PREFIX + System.currentTimeMillis() + SUFFIX);
+    }
+
+    /**
+     * Delete the oldest recordings in the directory until there's room for a full new one within
+     * {@link #MAX_TOTAL_BYTES}. The roboRIO's clock isn't set until the driver station connects, so they're ordered by
+     * when they were last written rather than by name.
+     */
+    public static void pruneOldRecordings(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        List<Path> recordings = new ArrayList<>();
+        long total = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path file : files) {
+                recordings.add(file);
+                total += Files.size(file);
+            }
+        }
+        recordings.sort(Comparator.comparing(file -> file.toFile().lastModified()));
+        for (Path recording : recordings) {
+            if (total + MAX_FILE_BYTES <= MAX_TOTAL_BYTES) {
+                break;
+            }
+            total -= Files.size(recording);
+            Files.delete(recording);
+        }
+    }
+
+    /**
+     * Create the recording and start the thread that writes it.
+     */
+    public static InputRecorder start(Path file, int moduleCount) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+        InputLog layout = new InputLog(moduleCount);
+        layout.writeHeader(out);
+
+        InputRecorder recorder = new InputRecorder(layout, out);
+        Thread writer = new Thread(recorder::writeLoop, "Input recorder");
+        writer.setDaemon(true);
+        writer.start();
+        return recorder;
+    }
+
+    /**
+     * Record this loop. Call once a loop from the main thread, after the scheduler has run.
+     *
+     * @param driveCommandRan Whether DriveCommand drove the robot this loop
+     */
+    public void record(DriverInputs inputs, SwerveSubsystem swerveSubsystem, boolean driveCommandRan) {
+        if (failed) {
+            return;
+        }
+        long h = head;
+        if (h - tail >= CAPACITY) {
+            dropped++;
+            return;
+        }
+        int frame = (int) (h & MASK) * frameLength;
+
+        ring[frame + InputLog.LOOP_TIMESTAMP] = inputs.getTimestampSeconds();
+        ring[frame + InputLog.BUTTONS] = inputs.getButtons();
+        ring[frame + InputLog.POV] = inputs.getPov();
+        for (int i = 0; i < DriverInputs.AXIS_COUNT; i++) {
+            ring[frame + InputLog.AXES + i] = inputs.getAxis(i);
+        }
+
+        SignalHub signals = swerveSubsystem.getSignals();
+        ring[frame + InputLog.HUB_TIMESTAMP] = signals.getTimestampSeconds();
+        signals.copyValues(ring, frame + InputLog.HUB_VALUES);
+
+        boolean applied = swerveSubsystem.copyLastApply(ring, frame + layout.getApplyIndex());
+        ring[frame + layout.getDriveCommandRanIndex()] = driveCommandRan ? 1 : 0;
+        ring[frame + layout.getAppliedIndex()] = applied ? 1 : 0;
+
+        head = h + 1;  // Volatile write publishes the frame to the writer thread
+    }
+
+    /**
+     * @return How many loops weren't recorded because the writer fell behind
+     */
+    public long getDroppedCount() {
+        return dropped;
+    }
+
+    private void writeLoop() {
+        ThreadScheduling.configureCurrentThread(ThreadScheduling.Role.BACKGROUND);
+        long frameBytes = (long) frameLength * Double.BYTES;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                long h = head;
+                for (long t = tail; t < h; t++) {
+                    if (out.size() + frameBytes > MAX_FILE_BYTES) {
+                        failed = true;
+                        out.close();
+                        DriverStation.reportWarning("Input recording is full, stopped recording", false);
+                        return;
+                    }
+                    int frame = (int) (t & MASK) * frameLength;
+                    for (int i = 0; i < frameLength; i++) {
+                        out.writeDouble(ring[frame + i]);
+                    }
+                }
+                tail = h;
+                // Flushed every time, so a crash or a power cut only loses the last few loops
+                out.flush();
+
+                Thread.sleep(WRITE_PERIOD_MS);
+            }
+        } catch (IOException e) {
+            failed = true;
+            DriverStation.reportError("Stopped recording inputs: " + e.getMessage(), false);
+        } catch (InterruptedException e) {
+            // Stopping
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package frc.robot.sim;
+
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.subsystems.drive.VisionIngest;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * A camera that plays back recorded AprilTag detections instead of looking at anything. Each detection reaches the
+ * {@link VisionIngest} once its capture time plus its latency has passed, with the capture time as its timestamp, the
+ * same as a real camera's pose arriving late.
+ * <p>
+ * Recordings are CSVs with a header and one detection per line, in the order they arrived:
+ * <pre>
+ * captureSeconds,latencySeconds,x,y,thetaDegrees,tagCount,averageTagDistanceMeters
+ * </pre>
+ * Capture times are from the start of the replay, and poses are field relative. {@link VisionReplayBenchmark} records
+ * one from the simulation if there isn't one to replay.
+ */
+public final class ReplayCamera {
+    public static final String HEADER =
+            "captureSeconds,latencySeconds,x,y,thetaDegrees,tagCount,averageTagDistanceMeters";
+    private static final double POLL_PERIOD_SECONDS = 0.005;
+
+    private final VisionIngest vision;
+    private final double[] captureSeconds;
+    private final double[] latencySeconds;
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] thetaDegrees;
+    private final int[] tagCounts;
+    private final double[] distances;
+
+    private double startSeconds = 0;
+    private int next = 0;
+    private Notifier notifier;
+
+    private ReplayCamera(VisionIngest vision, int count) {
+        this.vision = vision;
+        captureSeconds = new double[count];
+        latencySeconds = new double[count];
+        xs = new double[count];
+        ys = new double[count];
+        thetaDegrees = new double[count];
+        tagCounts = new int[count];
+        distances = new double[count];
+    }
+
+    /**
+     * @throws IOException If the file can't be read, a line doesn't parse, or the detections aren't in arrival order
+     */
+    public static ReplayCamera load(Path file, VisionIngest vision) throws IOException {
+        List<String> lines = Files.readAllLines(file);
+        if (lines.isEmpty() || !lines.get(0).trim().equals(HEADER)) {
+            throw new IOException(file + " should start with the header " + HEADER);
+        }
+
+        ReplayCamera camera = new ReplayCamera(vision, lines.size() - 1);
+        double lastArrival = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < lines.size() - 1; i++) {
+            String[] fields = lines.get(i + 1).split(",");
+            try {
+                if (fields.length != 7) {
+                    throw new NumberFormatException("expected 7 fields");
+                }
+                camera.captureSeconds[i] = Double.parseDouble(fields[0]);
+                camera.latencySeconds[i] = Double.parseDouble(fields[1]);
+                camera.xs[i] = Double.parseDouble(fields[2]);
+                camera.ys[i] = Double.parseDouble(fields[3]);
+                camera.thetaDegrees[i] = Double.parseDouble(fields[4]);
+                camera.tagCounts[i] = Integer.parseInt(fields[5]);
+                camera.distances[i] = Double.parseDouble(fields[6]);
+            } catch (NumberFormatException e) {
+                throw new IOException(file + " line " + (i + 2) + ": " + e.getMessage(), e);
+            }
+            double arrival = camera.captureSeconds[i] + camera.latencySeconds[i];
+            if (arrival < lastArrival) {
+                throw new IOException(file + " line " + (i + 2) + " arrives before the line above it");
+            }
+            lastArrival = arrival;
+        }
+        return camera;
+    }
+
+    /**
+     * Write a recording in the format {@link #load} reads. Each array holds one value per detection.
+     */
+    public static void write(
+            Path file,
+            double[] captureSeconds,
+            double[] latencySeconds,
+            double[] xs,
+            double[] ys,
+            double[] thetaDegrees,
+            int[] tagCounts,
+            double[] distances
+    ) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file), false)) {
+            out.println(HEADER);
+            for (int i = 0; i < captureSeconds.length; i++) {
+                out.println(captureSeconds[i] + "," + latencySeconds[i] + "," + xs[i] + "," + ys[i] + ","
+                        + thetaDegrees[i] + "," + tagCounts[i] + "," + distances[i]);
+            }
+        }
+    }
+
+    /**
+     * Start the replay over, with capture time 0 at the given FPGA time.
+     */
+    public synchronized void restart(double startTimestampSeconds) {
+        startSeconds = startTimestampSeconds;
+        next = 0;
+    }
+
+    /**
+     * Hand over every detection that has arrived by now.
+     */
+    public synchronized void poll(double nowSeconds) {
+        while (next < captureSeconds.length
+                && startSeconds + captureSeconds[next] + latencySeconds[next] <= nowSeconds) {
+            vision.submit(
+                    startSeconds + captureSeconds[next],
+                    xs[next],
+                    ys[next],
+                    Math.toRadians(thetaDegrees[next]),
+                    tagCounts[next],
+                    distances[next]
+            );
+            next++;
+        }
+    }
+
+    /**
+     * Replay from now on a background thread, the way a real camera's results would come in.
+     */
+    public synchronized void start() {
+        restart(Timer.getFPGATimestamp());
+        if (notifier == null) {
+            notifier = new Notifier(() -> poll(Timer.getFPGATimestamp()));
+            notifier.setName("ReplayCamera");
+            notifier.startPeriodic(POLL_PERIOD_SECONDS);
+        }
+    }
+
+    public int size() {
+        return captureSeconds.length;
+    }
+}
@@ -1,56 +1,471 @@
 package frc.robot.subsystems;
 
+import com.ctre.phoenixpro.hardware.Pigeon2;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
-import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotBase;
+import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.simulation.RoboRioSim;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
-import frc.robot.subsystems.drive.SwerveConfiguration;
+import frc.robot.subsystems.drive.ConfigHashStore;
+import frc.robot.subsystems.drive.DeviceConfig;
+import frc.robot.subsystems.drive.DeviceConfigurator;
+import frc.robot.subsystems.drive.DrivetrainConfig;
+import frc.robot.subsystems.drive.HeadingProvider;
+import frc.robot.subsystems.drive.ParallelModuleApply;
+import frc.robot.subsystems.drive.Pigeon2YawReset;
+import frc.robot.subsystems.drive.PhoenixSignalBackend;
+import frc.robot.subsystems.drive.PowerBudget;
+import frc.robot.subsystems.drive.SignalHub;
+import frc.robot.subsystems.drive.SimModuleIO;
+import frc.robot.subsystems.drive.SimSwerveDrive;
 import frc.robot.subsystems.drive.SwerveModule;
+import frc.robot.subsystems.drive.SwerveModuleIO;
+import frc.robot.subsystems.drive.SwerveOdometry;
+import frc.robot.subsystems.drive.SwerveSetpointGenerator;
+import frc.robot.subsystems.drive.TalonFXModuleIO;
+import frc.robot.subsystems.drive.VisionIngest;
+import frc.robot.telemetry.LoopTimer;
+import frc.robot.telemetry.LoopTiming;
+import frc.robot.telemetry.Telemetry;
+import frc.robot.telemetry.TelemetryChannel;
+
+import java.util.ArrayList;
+import java.util.List;
 
 public class SwerveSubsystem extends SubsystemBase {
+    private static final LoopTimer PERIODIC_TIMER = LoopTiming.timer("SwerveSubsystem/periodic");
+    private static final LoopTimer APPLY_TIMER = LoopTiming.timer("SwerveSubsystem/apply");
+    private static final TelemetryChannel YAW_CHANNEL = Telemetry.channel("Gyro/yaw");
+    private static final TelemetryChannel LATE_MODULES_CHANNEL = Telemetry.channel("SwerveSubsystem/late modules");
+    private static final TelemetryChannel POWER_SCALE_CHANNEL = Telemetry.channel("Power/drive scale");
+    private static final TelemetryChannel BATTERY_VOLTAGE_CHANNEL = Telemetry.channel("Power/battery voltage");
+    private static final TelemetryChannel CURRENT_CHANNEL = Telemetry.channel("Power/drivetrain current");
+    private static final TelemetryChannel VISION_ACCEPTED_CHANNEL = Telemetry.channel("Vision/accepted");
+    private static final TelemetryChannel VISION_REJECTED_CHANNEL = Telemetry.channel("Vision/rejected");
+
+    private final SignalHub signals;
+    private final SimSwerveDrive simulation;
     private final SwerveModule frontLeft;
     private final SwerveModule frontRight;
     private final SwerveModule backLeft;
     private final SwerveModule backRight;
+    private final SwerveModule[] modules;
     private final SwerveDriveKinematics m_kinematics;
+    private final SwerveOdometry odometry;
+    private final HeadingProvider heading = new HeadingProvider();
+    private final PowerBudget powerBudget;
+    private volatile SwerveOdometry.SampleListener sampleListener;
+    private boolean odometryThreadRunning = false;
+    private ParallelModuleApply parallelApply = null;
+    private DrivetrainConfig config;
+    private DeviceConfig gyroReset = null;
+
+    // Module locations unpacked into primitives, in the same order as m_kinematics, so the setpoint generator can do
+    // the inverse kinematics in place instead of allocating a new SwerveModuleState[] every loop.
+    private final double[] moduleX;
+    private final double[] moduleY;
+    private final double[] moduleSpeeds;
+    private final double[] moduleAngles;  // Degrees
+    private final double[] moduleSteerRates;  // Degrees per second
+    // Where the modules were found pointing when nothing drove through apply(), kept apart from the last apply's values
+    // so those stay as they were sent
+    private final double[] measuredAngles;  // Degrees
+    private final SwerveSetpointGenerator setpointGenerator;
+    private boolean appliedThisLoop = false;
+    private double powerScaleOverride = Double.NaN;
+
+    // What the last apply() was asked for and sent, for recording
+    private double lastPowerScale = 1;
+    private double lastVx = 0;
+    private double lastVy = 0;
+    private double lastOmega = 0;
 
-    public SwerveSubsystem() {
-        frontLeft = new SwerveModule(SwerveConfiguration.FRONT_LEFT);
-        frontRight = new SwerveModule(SwerveConfiguration.FRONT_RIGHT);
-        backLeft = new SwerveModule(SwerveConfiguration.BACK_LEFT);
-        backRight = new SwerveModule(SwerveConfiguration.BACK_RIGHT);
+    /**
+     * Build the swerve subsystem on the real devices, or on simulated ones when running in simulation.
+     */
+    public static SwerveSubsystem create(DrivetrainConfig config) {
+        if (RobotBase.isSimulation()) {
+            return createSimulated(config);
+        }
+
+        Pigeon2 pigeon2 = new Pigeon2(config.getPigeonCanId());
+
+        TalonFXModuleIO[] moduleIOs = new TalonFXModuleIO[config.getModuleCount()];
+        for (int i = 0; i < moduleIOs.length; i++) {
+            moduleIOs[i] = new TalonFXModuleIO(config, i);
+        }
+        SwerveSubsystem swerveSubsystem = new SwerveSubsystem(
+                config,
+                moduleIOs,
+                new PhoenixSignalBackend(moduleIOs, pigeon2, SwerveOdometry.FREQUENCY_HZ),
+                null
+        );
+        // Zeroed along with everything else in configureDevices(), instead of blocking here
+        swerveSubsystem.gyroReset = new Pigeon2YawReset(pigeon2);
+        return swerveSubsystem;
+    }
+
+    /**
+     * Build the swerve subsystem on simulated modules and gyro. The physics is stepped in {@link #simulationPeriodic()}.
+     */
+    public static SwerveSubsystem createSimulated(DrivetrainConfig config) {
+        SimModuleIO[] moduleIOs = new SimModuleIO[config.getModuleCount()];
+        Translation2d[] positions = new Translation2d[config.getModuleCount()];
+        for (int i = 0; i < moduleIOs.length; i++) {
+            moduleIOs[i] = new SimModuleIO();
+            moduleIOs[i].applyConfig(config, i);
+            positions[i] = config.getModulePosition(i);
+        }
+        SimSwerveDrive simulation = new SimSwerveDrive(moduleIOs, positions);
+        return new SwerveSubsystem(config, moduleIOs, simulation, simulation);
+    }
+
+    /**
+     * Build the swerve subsystem with the built in {@link DrivetrainConfig#defaults()}.
+     *
+     * @param moduleIOs     Front left, front right, back left and back right module hardware, in that order
+     * @param signalBackend Where to read the drivetrain's sensor values from, such as a
+     *                      {@link frc.robot.subsystems.drive.FakeSignalBackend} when there's no hardware
+     */
+    public SwerveSubsystem(SwerveModuleIO[] moduleIOs, SignalHub.Backend signalBackend) {
+        this(DrivetrainConfig.defaults(), moduleIOs, signalBackend, null);
+    }
+
+    /**
+     * @param config     Module names and positions. The module IOs should already be set up from the same config.
+     * @param simulation The physics to step in {@link #simulationPeriodic()}, or null if nothing needs stepping
+     */
+    public SwerveSubsystem(
+            DrivetrainConfig config,
+            SwerveModuleIO[] moduleIOs,
+            SignalHub.Backend signalBackend,
+            SimSwerveDrive simulation
+    ) {
+        this.config = config;
+        this.simulation = simulation;
+        signals = new SignalHub(moduleIOs.length, signalBackend);
+        frontLeft = new SwerveModule(config.getModuleName(0), moduleIOs[0], signals, 0);
+        frontRight = new SwerveModule(config.getModuleName(1), moduleIOs[1], signals, 1);
+        backLeft = new SwerveModule(config.getModuleName(2), moduleIOs[2], signals, 2);
+        backRight = new SwerveModule(config.getModuleName(3), moduleIOs[3], signals, 3);
+        modules = new SwerveModule[]{frontLeft, frontRight, backLeft, backRight};
 
         m_kinematics = new SwerveDriveKinematics(
-                frontLeft.config.position,
-                frontRight.config.position,
-                backLeft.config.position,
-                backRight.config.position
+                config.getModulePosition(0),
+                config.getModulePosition(1),
+                config.getModulePosition(2),
+                config.getModulePosition(3)
         );
+
+        odometry = new SwerveOdometry(signals, m_kinematics);
+        powerBudget = new PowerBudget(config);
+        odometry.setSampleListener(this::onSample);
+
+        moduleX = new double[modules.length];
+        moduleY = new double[modules.length];
+        moduleSpeeds = new double[modules.length];
+        moduleAngles = new double[modules.length];
+        moduleSteerRates = new double[modules.length];
+        measuredAngles = new double[modules.length];
+        for (int i = 0; i < modules.length; i++) {
+            moduleX[i] = config.getModulePosition(i).getX();
+            moduleY[i] = config.getModulePosition(i).getY();
+        }
+        setpointGenerator = new SwerveSetpointGenerator(moduleX, moduleY, TimedRobot.kDefaultPeriod);
+        setpointGenerator.setLimits(config);
+    }
+
+    /**
+     * Switch to a reloaded config. New offsets and gains reach the devices the next time they're configured, see
+     * {@link #configureDevices()}. CAN IDs and module positions are fixed once the subsystem is built, so a config that
+     * changes those is only partly applied until the code restarts.
+     */
+    public void applyConfig(DrivetrainConfig newConfig) {
+        if (!newConfig.hasSameHardware(config)) {
+            DriverStation.reportWarning("The reloaded drivetrain config changes CAN IDs or module positions, "
+                    + "restart the code for those to take effect", false);
+        }
+        config = newConfig;
+        setpointGenerator.setLimits(newConfig);
+        powerBudget.setConfig(newConfig);
+        for (int i = 0; i < modules.length; i++) {
+            modules[i].io.applyConfig(newConfig, i);
+        }
+    }
+
+    public DrivetrainConfig getConfig() {
+        return config;
     }
 
     /**
      * Return a list of SwerveModules used in this subsystem. Used in the swerve setup code when we want to talk to
      * the modules directly instead of going through a ChassisSpeeds object.
+     * <p>
+     * This is the subsystem's own array so the setup commands can call it every loop without allocating. Don't modify
+     * it.
      *
      * @return The swerve modules in the same order they were passed into m_kinematics.
      */
     public SwerveModule[] getModules() {
-        return new SwerveModule[]{frontLeft, frontRight, backLeft, backRight};
+        return modules;
+    }
+
+    /**
+     * Runs before any command executes, so every command sees sensor values from the same point in time.
+     */
+    @Override
+    public void periodic() {
+        long start = PERIODIC_TIMER.start();
+        signals.refresh();
+        heading.update(
+                signals.getYawDegrees(),
+                signals.getGyroSignal(SignalHub.GYRO_YAW_RATE),
+                signals.getTimestampSeconds()
+        );
+        if (!odometryThreadRunning) {
+            odometry.update();
+        }
+
+        // Nothing drove through apply() last loop, so a setup command may have moved the modules directly
+        if (!appliedThisLoop) {
+            for (int i = 0; i < modules.length; i++) {
+                measuredAngles[i] = modules[i].getSteerPositionRotations() * 360;
+            }
+            setpointGenerator.reset(measuredAngles);
+        }
+        appliedThisLoop = false;
+
+        for (SwerveModule module : modules) {
+            module.logTelemetry();
+        }
+        YAW_CHANNEL.log(signals.getYawDegrees());
+        POWER_SCALE_CHANNEL.log(powerBudget.getScale());
+        BATTERY_VOLTAGE_CHANNEL.log(powerBudget.getBatteryVoltage());
+        CURRENT_CHANNEL.log(powerBudget.getCurrentAmps());
+        VisionIngest vision = odometry.getVisionIngest();
+        VISION_ACCEPTED_CHANNEL.log(vision.getAcceptedCount());
+        VISION_REJECTED_CHANNEL.log(vision.getRejectedCount());
+        PERIODIC_TIMER.stop(start);
+    }
+
+    @Override
+    public void simulationPeriodic() {
+        if (simulation != null) {
+            simulation.update(TimedRobot.kDefaultPeriod);
+            RoboRioSim.setVInVoltage(simulation.getBatteryVoltage());
+        }
+    }
+
+    /**
+     * @return The simulated drivetrain, or null when running on real or mocked hardware
+     */
+    public SimSwerveDrive getSimulation() {
+        return simulation;
+    }
+
+    /**
+     * Move odometry onto its own thread so it runs at {@link SwerveOdometry#FREQUENCY_HZ} instead of once a loop.
+     */
+    public void startOdometryThread() {
+        odometryThreadRunning = true;
+        odometry.start();
+    }
+
+    /**
+     * Send the four modules their setpoints in parallel instead of one after another, so CAN latency doesn't add up
+     * four times. Call this once, at startup.
+     *
+     * @param deadlineSeconds How long {@link #apply(double, double, double)} waits for the modules before moving on
+     */
+    public void useParallelApply(double deadlineSeconds) {
+        if (parallelApply == null) {
+            parallelApply = new ParallelModuleApply(modules, deadlineSeconds);
+        }
+    }
+
+    /**
+     * Tell the setpoint generator how often {@link #apply(double, double, double)} is called, if it isn't every
+     * {@link TimedRobot#kDefaultPeriod}. The speeds are discretized over this period.
+     */
+    public void setLoopPeriod(double periodSeconds) {
+        setpointGenerator.setPeriod(periodSeconds);
+        setpointGenerator.setLimits(config);
+    }
+
+    /**
+     * Switch between the discretized, second order kinematics and plain first order kinematics. Second order is the
+     * default, first order is only there to compare against.
+     */
+    public void setSecondOrderKinematics(boolean secondOrder) {
+        setpointGenerator.setSecondOrder(secondOrder);
+    }
+
+    /**
+     * Hand every sensor sample to the listener, at the odometry rate rather than once a loop.
+     *
+     * @param listener Called on the odometry thread, or null to stop
+     */
+    public void setSampleListener(SwerveOdometry.SampleListener listener) {
+        sampleListener = listener;
     }
 
-    public void init() {
-        frontLeft.init();
-        frontRight.init();
-        backLeft.init();
-        backRight.init();
+    private void onSample(SignalHub sampled) {
+        powerBudget.onSample(sampled);
+        SwerveOdometry.SampleListener listener = sampleListener;
+        if (listener != null) {
+            listener.onSample(sampled);
+        }
+    }
+
+    /**
+     * @return How much the drive commands are being scaled down to keep the battery above the config's minimum
+     */
+    public double getPowerScale() {
+        return powerBudget.getScale();
+    }
+
+    /**
+     * Use this power scale instead of the {@link PowerBudget}'s, for replaying a recording where the budget ran on
+     * samples that weren't recorded.
+     *
+     * @param scale 0 to 1, or NaN to go back to the power budget
+     */
+    public void setPowerScaleOverride(double scale) {
+        powerScaleOverride = scale;
+    }
+
+    /**
+     * @return The latest pose estimate. This never blocks, even while the odometry thread is updating.
+     */
+    public Pose2d getPose() {
+        return odometry.getPose();
+    }
+
+    /**
+     * @return Where cameras hand over their robot poses, from any thread, to be fused into the pose estimate
+     */
+    public VisionIngest getVisionIngest() {
+        return odometry.getVisionIngest();
+    }
+
+    public void resetPose(Pose2d pose) {
+        odometry.resetPose(pose);
+    }
+
+    /**
+     * @return The robot's yaw from the last refresh, in degrees counterclockwise positive. This is not wrapped to 0-360.
+     */
+    public double getYawDegrees() {
+        return signals.getYawDegrees();
+    }
+
+    /**
+     * @return The heading cached from the last refresh, for reading it wrapped, continuous or latency compensated
+     */
+    public HeadingProvider getHeading() {
+        return heading;
+    }
+
+    /**
+     * @return The sensor values every command in this loop sees
+     */
+    public SignalHub getSignals() {
+        return signals;
+    }
+
+    /**
+     * Copy what the last {@link #apply(double, double, double)} was asked for and what it sent to the modules, for
+     * recording. Call this at the end of the loop.
+     *
+     * @param out Filled from offset with the power scale, vx, vy and omega, then each module's speed in meters per
+     *            second, angle in degrees and steer rate in degrees per second. That's 4 + 3 per module values.
+     * @return Whether apply was called this loop. If it wasn't, out still gets the last call's values, all of them as
+     * they were sent, even though the modules may have been moved directly since.
+     */
+    public boolean copyLastApply(double[] out, int offset) {
+        out[offset] = lastPowerScale;
+        out[offset + 1] = lastVx;
+        out[offset + 2] = lastVy;
+        out[offset + 3] = lastOmega;
+        for (int i = 0; i < modules.length; i++) {
+            out[offset + 4 + i * 3] = moduleSpeeds[i];
+            out[offset + 5 + i * 3] = moduleAngles[i];
+            out[offset + 6 + i * 3] = moduleSteerRates[i];
+        }
+        return appliedThisLoop;
+    }
+
+    /**
+     * Start configuring every drivetrain device in parallel, in the background. This returns immediately, poll the
+     * returned configurator to see when it's done.
+     */
+    public DeviceConfigurator configureDevices() {
+        List<DeviceConfig> deviceConfigs = new ArrayList<>();
+        for (SwerveModule module : modules) {
+            deviceConfigs.addAll(module.getDeviceConfigs());
+        }
+        // Only zero the gyro on the first configure, not when reconfiguring after a config reload
+        if (gyroReset != null) {
+            deviceConfigs.add(gyroReset);
+            gyroReset = null;
+        }
+
+        DeviceConfigurator configurator = new DeviceConfigurator(
+                deviceConfigs,
+                ConfigHashStore.load(ConfigHashStore.DEFAULT_PATH)
+        );
+        configurator.start();
+        return configurator;
     }
 
     public void apply(ChassisSpeeds chassisSpeeds) {
-        // Returned SwerveModuleState array is in the same order as the locations passed into the SwerveDriveKinematics constructor
-        SwerveModuleState[] states = m_kinematics.toSwerveModuleStates(chassisSpeeds);
-        frontLeft.apply(states[0]);
-        frontRight.apply(states[1]);
-        backLeft.apply(states[2]);
-        backRight.apply(states[3]);
+        apply(chassisSpeeds.vxMetersPerSecond, chassisSpeeds.vyMetersPerSecond, chassisSpeeds.omegaRadiansPerSecond);
+    }
+
+    /**
+     * Drive the robot with robot relative speeds. The speeds go through the {@link SwerveSetpointGenerator}, which
+     * limits them to what the config and the {@link PowerBudget} allow, discretizes them and does the inverse
+     * kinematics into preallocated buffers, so nothing is allocated in the control loop.
+     *
+     * @param vxMetersPerSecond     Forward speed
+     * @param vyMetersPerSecond     Left speed
+     * @param omegaRadiansPerSecond Counterclockwise rotation speed
+     */
+    public void apply(double vxMetersPerSecond, double vyMetersPerSecond, double omegaRadiansPerSecond) {
+        long start = APPLY_TIMER.start();
+        appliedThisLoop = true;
+        lastPowerScale = Double.isNaN(powerScaleOverride) ? powerBudget.getScale() : powerScaleOverride;
+        lastVx = vxMetersPerSecond;
+        lastVy = vyMetersPerSecond;
+        lastOmega = omegaRadiansPerSecond;
+        setpointGenerator.setPowerScale(lastPowerScale);
+        setpointGenerator.calculate(
+                vxMetersPerSecond,
+                vyMetersPerSecond,
+                omegaRadiansPerSecond,
+                moduleSpeeds,
+                moduleAngles,
+                moduleSteerRates
+        );
+
+        if (parallelApply == null) {
+            for (int i = 0; i < modules.length; i++) {
+                modules[i].apply(moduleSpeeds[i], moduleAngles[i], moduleSteerRates[i]);
+            }
+        } else {
+            LATE_MODULES_CHANNEL.log(parallelApply.apply(moduleSpeeds, moduleAngles, moduleSteerRates));
+            // Telemetry is main thread only, so the workers leave logging to us. A module that's still sending may be
+            // halfway through writing its setpoint, so it isn't logged this loop.
+            for (int i = 0; i < modules.length; i++) {
+                if (parallelApply.isSent(i)) {
+                    modules[i].logSetpoint();
+                }
+            }
+        }
+        APPLY_TIMER.stop(start);
     }
 }
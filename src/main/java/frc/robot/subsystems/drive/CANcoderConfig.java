@@ -0,0 +1,69 @@
+package frc.robot.subsystems.drive;
+
+import com.ctre.phoenixpro.configs.MagnetSensorConfigs;
+import com.ctre.phoenixpro.hardware.CANcoder;
+import com.ctre.phoenixpro.signals.AbsoluteSensorRangeValue;
+
+/**
+ * Sets a CANcoder's magnetic offset and makes it report absolute position from 0 to 1. Everything else in the magnet
+ * sensor config, like the sensor direction, is left how it is on the device. If the device already has the offset and
+ * range nothing is written.
+ */
+public class CANcoderConfig implements DeviceConfig {
+    // The offset is stored with limited precision on the device, so it won't read back exactly
+    private static final double OFFSET_TOLERANCE_ROTATIONS = 1e-3;
+
+    private final String name;
+    private final CANcoder canCoder;
+    private final double magnetOffset;
+    private volatile boolean upToDate = false;
+
+    public CANcoderConfig(String name, CANcoder canCoder, double magnetOffset) {
+        this.name = name;
+        this.canCoder = canCoder;
+        this.magnetOffset = magnetOffset;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getFingerprint() {
+        return "CANcoder " + canCoder.getDeviceID() + " offset " + magnetOffset + " range Unsigned_0To1";
+    }
+
+    @Override
+    public boolean apply(double timeoutSeconds) {
+        if (!canCoder.clearStickyFaults(timeoutSeconds).isOK()) {
+            return false;
+        }
+        MagnetSensorConfigs magnetSensorConfigs = new MagnetSensorConfigs();
+        if (!canCoder.getConfigurator().refresh(magnetSensorConfigs, timeoutSeconds).isOK()) {
+            return false;
+        }
+        upToDate = matches(magnetSensorConfigs);
+        if (upToDate) {
+            return true;
+        }
+        magnetSensorConfigs.MagnetOffset = magnetOffset;
+        magnetSensorConfigs.AbsoluteSensorRange = AbsoluteSensorRangeValue.Unsigned_0To1;
+        return canCoder.getConfigurator().apply(magnetSensorConfigs, timeoutSeconds).isOK();
+    }
+
+    @Override
+    public boolean verify(double timeoutSeconds) {
+        // Nothing was written, so the read in apply() already checked it
+        if (upToDate) {
+            return true;
+        }
+        MagnetSensorConfigs readBack = new MagnetSensorConfigs();
+        return canCoder.getConfigurator().refresh(readBack, timeoutSeconds).isOK() && matches(readBack);
+    }
+
+    private boolean matches(MagnetSensorConfigs actual) {
+        return Math.abs(actual.MagnetOffset - magnetOffset) < OFFSET_TOLERANCE_ROTATIONS
+                && actual.AbsoluteSensorRange == AbsoluteSensorRangeValue.Unsigned_0To1;
+    }
+}
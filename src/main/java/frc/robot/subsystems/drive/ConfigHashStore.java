@@ -0,0 +1,87 @@
+package frc.robot.subsystems.drive;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import java.util.zip.CRC32;
+
+/**
+ * Remembers a hash of the configuration last applied to each device, in a file that survives code restarts. Devices
+ * keep their configuration in flash, so when the hash still matches on the next start there's nothing to send, only a
+ * read back to check the device really has it.
+ * <p>
+ * Delete the file to force every device to be configured again, for example after changing a setting in Phoenix Tuner
+ * that the read back doesn't check.
+ */
+public class ConfigHashStore {
+    public static final Path DEFAULT_PATH = Filesystem.getOperatingDirectory().toPath()
+            .resolve("device-config-hashes.properties");
+
+    private final Path file;
+    private final Properties hashes = new Properties();
+
+    private ConfigHashStore(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Read the stored hashes. A missing or unreadable file just means every device gets configured.
+     */
+    public static ConfigHashStore load(Path file) {
+        ConfigHashStore store = new ConfigHashStore(file);
+        if (Files.exists(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                store.hashes.load(in);
+            } catch (IOException e) {
+                DriverStation.reportWarning("Couldn't read device config hashes, configuring everything: "
+                        + e.getMessage(), false);
+                store.hashes.clear();
+            }
+        }
+        return store;
+    }
+
+    /**
+     * @param fingerprint Everything about a device's configuration, as text
+     */
+    public static String hash(String fingerprint) {
+        CRC32 crc = new CRC32();
+        crc.update(fingerprint.getBytes(StandardCharsets.UTF_8));
+        return Long.toHexString(crc.getValue());
+    }
+
+    public synchronized String get(String device) {
+        return hashes.getProperty(device);
+    }
+
+    public synchronized void put(String device, String hash) {
+        hashes.setProperty(device, hash);
+    }
+
+    public synchronized void remove(String device) {
+        hashes.remove(device);
+    }
+
+    /**
+     * Write the hashes out, replacing the file in one step so a restart mid-write can't leave it half written.
+     */
+    public synchronized void save() {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temporary)) {
+                hashes.store(out, "Hashes of the last configuration applied to each device");
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            DriverStation.reportWarning("Couldn't save device config hashes: " + e.getMessage(), false);
+        }
+    }
+}
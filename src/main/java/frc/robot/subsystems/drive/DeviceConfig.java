@@ -0,0 +1,38 @@
+package frc.robot.subsystems.drive;
+
+/**
+ * The setup for one device on the CAN bus. {@link DeviceConfigurator} runs these in parallel, retrying until the
+ * device both accepts the configuration and reads it back correctly.
+ * <p>
+ * Configuring should NEVER actually send power to a motor.
+ */
+public interface DeviceConfig {
+    /**
+     * @return Which device this configures, for reporting its status
+     */
+    String getName();
+
+    /**
+     * @return Everything about the configuration this sends, including the device's ID, as text. When it hasn't changed
+     * since it was last applied successfully, the device is only verified, not applied. Null if this has to run every
+     * time.
+     */
+    String getFingerprint();
+
+    /**
+     * Clear sticky faults and send whatever part of the configuration the device doesn't already have.
+     *
+     * @param timeoutSeconds How long to wait for the device to acknowledge each write
+     * @return Whether the device acknowledged everything in time
+     */
+    boolean apply(double timeoutSeconds);
+
+    /**
+     * Read the configuration back from the device and check it matches. This is also called on its own, without
+     * {@link #apply}, when the fingerprint hasn't changed, to catch a device that was swapped or factory reset.
+     *
+     * @param timeoutSeconds How long to wait for the device to respond
+     * @return Whether the device responded in time and holds the configuration
+     */
+    boolean verify(double timeoutSeconds);
+}
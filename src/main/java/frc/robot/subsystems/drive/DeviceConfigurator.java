@@ -0,0 +1,159 @@
+package frc.robot.subsystems.drive;
+
+import frc.robot.ThreadScheduling;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Configures every device at once, each on its own thread, instead of one after another. Configuring a device means
+ * waiting on CAN round trips, so doing them in parallel brings startup down to about as long as the slowest device.
+ * <p>
+ * Each device is applied and then read back, with a timeout on every call, and retried a few times if either fails.
+ * The status of every device can be polled from the main thread while this runs.
+ * <p>
+ * Devices whose configuration hash matches the one stored from the last successful run only get the read back, so a
+ * code restart configures nothing unless something changed. A device that was swapped or factory reset since then
+ * won't match what it reads back, and gets configured like any other.
+ */
+public class DeviceConfigurator {
+    private static final int ATTEMPTS = 3;
+    private static final double TIMEOUT_SECONDS = 0.25;
+
+    public enum Status {
+        PENDING,
+        CONFIGURING,
+        VERIFIED,
+        // Already configured on a previous start, and the read back still matches
+        UNCHANGED,
+        FAILED
+    }
+
+    private final DeviceConfig[] configs;
+    private final AtomicReferenceArray<Status> statuses;
+    private final AtomicIntegerArray attempts;
+    private final ConfigHashStore hashStore;
+    private final AtomicInteger remaining;
+    private volatile boolean done;
+
+    /**
+     * @param hashStore Hashes of what was last applied, updated as devices are configured and saved at the end
+     */
+    public DeviceConfigurator(List<DeviceConfig> configs, ConfigHashStore hashStore) {
+        this.hashStore = hashStore;
+        this.configs = configs.toArray(new DeviceConfig[0]);
+        this.statuses = new AtomicReferenceArray<>(this.configs.length);
+        this.attempts = new AtomicIntegerArray(this.configs.length);
+        this.remaining = new AtomicInteger(this.configs.length);
+        this.done = this.configs.length == 0;
+        for (int i = 0; i < this.configs.length; i++) {
+            statuses.set(i, Status.PENDING);
+        }
+    }
+
+    /**
+     * Start configuring every device in the background. This returns immediately.
+     */
+    public void start() {
+        if (configs.length == 0) {
+            return;
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(configs.length, runnable -> {
+            Thread thread = new Thread(() -> {
+                ThreadScheduling.configureCurrentThread(ThreadScheduling.Role.BACKGROUND);
+                runnable.run();
+            }, "Device config");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < configs.length; i++) {
+            int index = i;
+            pool.execute(() -> configure(index));
+        }
+        // The threads exit once every device is done
+        pool.shutdown();
+    }
+
+    private void configure(int index) {
+        DeviceConfig config = configs[index];
+        String fingerprint = config.getFingerprint();
+        String hash = fingerprint == null ? null : ConfigHashStore.hash(fingerprint);
+        try {
+            // One read to make sure the device still has what the hash says, it costs far less than applying
+            if (hash != null && hash.equals(hashStore.get(config.getName())) && config.verify(TIMEOUT_SECONDS)) {
+                statuses.set(index, Status.UNCHANGED);
+                return;
+            }
+            for (int attempt = 1; attempt <= ATTEMPTS; attempt++) {
+                statuses.set(index, Status.CONFIGURING);
+                attempts.set(index, attempt);
+                if (config.apply(TIMEOUT_SECONDS) && config.verify(TIMEOUT_SECONDS)) {
+                    if (hash != null) {
+                        hashStore.put(config.getName(), hash);
+                    }
+                    statuses.set(index, Status.VERIFIED);
+                    return;
+                }
+            }
+            hashStore.remove(config.getName());
+            statuses.set(index, Status.FAILED);
+        } catch (RuntimeException e) {
+            hashStore.remove(config.getName());
+            statuses.set(index, Status.FAILED);
+            throw e;
+        } finally {
+            // The last device to finish saves the hashes for everyone
+            if (remaining.decrementAndGet() == 0) {
+                hashStore.save();
+                done = true;
+            }
+        }
+    }
+
+    /**
+     * @return Whether every device has either been verified or given up on
+     */
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * @return Whether every device is configured, either now or on a previous start
+     */
+    public boolean allConfigured() {
+        for (int i = 0; i < configs.length; i++) {
+            if (!isConfigured(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean isConfigured(int index) {
+        Status status = statuses.get(index);
+        return status == Status.VERIFIED || status == Status.UNCHANGED;
+    }
+
+    public int getDeviceCount() {
+        return configs.length;
+    }
+
+    public String getName(int index) {
+        return configs[index].getName();
+    }
+
+    public Status getStatus(int index) {
+        return statuses.get(index);
+    }
+
+    /**
+     * @return Which attempt the device is on, or took, starting from 1
+     */
+    public int getAttempts(int index) {
+        return attempts.get(index);
+    }
+}
@@ -0,0 +1,488 @@
+package frc.robot.subsystems.drive;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import edu.wpi.first.math.geometry.Translation2d;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * Everything about the drivetrain that changes from robot to robot or from tuning session to tuning session: CAN IDs,
+ * module positions, magnetic offsets, gains, speed and acceleration limits, and how much power the drivetrain may
+ * draw. It's read from drivetrain.json in the deploy directory, and parsed once into primitive arrays that are never
+ * changed afterwards, so it's safe to share between threads and cheap to read in the control loop.
+ * <p>
+ * Modules are always front left, front right, back left and back right, in that order. Gains are in the TalonFX's
+ * units: volts per wheel rotation per second for drive, except driveKS which is just volts, and volts per module
+ * rotation for steer.
+ */
+public final class DrivetrainConfig {
+    public static final String FILE_NAME = "drivetrain.json";
+
+    private static final int MODULE_COUNT = 4;
+    private static final int DEFAULT_PIGEON_CAN_ID = 9;
+    private static final double DEFAULT_MAX_SPEED_METERS_PER_SECOND = 4;
+    private static final double DEFAULT_MAX_SPIN_RADIANS_PER_SECOND = Math.PI / 2;
+    private static final double DEFAULT_MAX_MODULE_SPEED_METERS_PER_SECOND = 5;
+    private static final double DEFAULT_MAX_ACCELERATION_METERS_PER_SECOND_SQUARED = 8;
+    private static final double DEFAULT_MAX_ANGULAR_ACCELERATION_RADIANS_PER_SECOND_SQUARED = 4 * Math.PI;
+    private static final double DEFAULT_MAX_STEER_RATE_ROTATIONS_PER_SECOND = 5;
+    // The roboRIO browns out at 6.8 V, so leave some room for sag the budget doesn't see coming
+    private static final double DEFAULT_MINIMUM_BATTERY_VOLTAGE = 8;
+    // A fresh battery is about 11 mΩ, plus the main breaker and wiring
+    private static final double DEFAULT_BATTERY_RESISTANCE_OHMS = 0.02;
+    private static final double DEFAULT_DRIVE_SUPPLY_CURRENT_LIMIT_AMPS = 60;
+    private static final double DEFAULT_STEER_SUPPLY_CURRENT_LIMIT_AMPS = 30;
+
+    private String[] moduleNames;
+    private double[] moduleX;
+    private double[] moduleY;
+    private int[] moveCanIds;
+    private int[] rotateCanIds;
+    private int[] canCoderIds;
+    private double[] magneticOffsets;
+    private int pigeonCanId;
+
+    private double driveKP;
+    private double driveKS;
+    private double driveKV;
+    private double steerKP;
+    private double steerKD;
+
+    private double maxSpeedMetersPerSecond;
+    private double maxSpinRadiansPerSecond;
+    private double maxModuleSpeedMetersPerSecond;
+    private double maxAccelerationMetersPerSecondSquared;
+    private double maxAngularAccelerationRadiansPerSecondSquared;
+    private double maxSteerRateRotationsPerSecond;
+
+    private double minimumBatteryVoltage;
+    private double batteryResistanceOhms;
+    private double driveSupplyCurrentLimitAmps;
+    private double steerSupplyCurrentLimitAmps;
+
+    // The fields aren't final so a copy can change just the ones it's for, but they're only set in this class, on a
+    // config that hasn't been handed out yet. Configs only go between threads through DrivetrainConfigStore's volatile
+    // and atomic reference, or before a thread starts, which all publish them safely.
+    private DrivetrainConfig() {
+    }
+
+    /**
+     * A copy to change a field or two of before handing it out. The arrays are shared, they're never changed.
+     */
+    private DrivetrainConfig(DrivetrainConfig other) {
+        this.moduleNames = other.moduleNames;
+        this.moduleX = other.moduleX;
+        this.moduleY = other.moduleY;
+        this.moveCanIds = other.moveCanIds;
+        this.rotateCanIds = other.rotateCanIds;
+        this.canCoderIds = other.canCoderIds;
+        this.magneticOffsets = other.magneticOffsets;
+        this.pigeonCanId = other.pigeonCanId;
+        this.driveKP = other.driveKP;
+        this.driveKS = other.driveKS;
+        this.driveKV = other.driveKV;
+        this.steerKP = other.steerKP;
+        this.steerKD = other.steerKD;
+        this.maxSpeedMetersPerSecond = other.maxSpeedMetersPerSecond;
+        this.maxSpinRadiansPerSecond = other.maxSpinRadiansPerSecond;
+        this.maxModuleSpeedMetersPerSecond = other.maxModuleSpeedMetersPerSecond;
+        this.maxAccelerationMetersPerSecondSquared = other.maxAccelerationMetersPerSecondSquared;
+        this.maxAngularAccelerationRadiansPerSecondSquared = other.maxAngularAccelerationRadiansPerSecondSquared;
+        this.maxSteerRateRotationsPerSecond = other.maxSteerRateRotationsPerSecond;
+        this.minimumBatteryVoltage = other.minimumBatteryVoltage;
+        this.batteryResistanceOhms = other.batteryResistanceOhms;
+        this.driveSupplyCurrentLimitAmps = other.driveSupplyCurrentLimitAmps;
+        this.steerSupplyCurrentLimitAmps = other.steerSupplyCurrentLimitAmps;
+    }
+
+    /**
+     * The config compiled into the code, from {@link SwerveConfiguration} and the gains in {@link SwerveModule}. Used
+     * when there's no config file, and by the simulation and benchmarks.
+     */
+    public static DrivetrainConfig defaults() {
+        SwerveConfiguration[] modules = SwerveConfiguration.values();
+        String[] names = new String[modules.length];
+        double[] x = new double[modules.length];
+        double[] y = new double[modules.length];
+        int[] moveCanIds = new int[modules.length];
+        int[] rotateCanIds = new int[modules.length];
+        int[] canCoderIds = new int[modules.length];
+        double[] offsets = new double[modules.length];
+        for (int i = 0; i < modules.length; i++) {
+            names[i] = modules[i].name;
+            x[i] = modules[i].position.getX();
+            y[i] = modules[i].position.getY();
+            moveCanIds[i] = modules[i].moveCanId;
+            rotateCanIds[i] = modules[i].rotateCanId;
+            canCoderIds[i] = modules[i].canCoderId;
+            offsets[i] = modules[i].magneticOffset;
+        }
+        DrivetrainConfig config = new DrivetrainConfig();
+        config.moduleNames = names;
+        config.moduleX = x;
+        config.moduleY = y;
+        config.moveCanIds = moveCanIds;
+        config.rotateCanIds = rotateCanIds;
+        config.canCoderIds = canCoderIds;
+        config.magneticOffsets = offsets;
+        config.pigeonCanId = DEFAULT_PIGEON_CAN_ID;
+        config.driveKP = SwerveModule.DRIVE_KP;
+        config.driveKS = SwerveModule.DRIVE_KS;
+        config.driveKV = SwerveModule.DRIVE_KV;
+        config.steerKP = SwerveModule.STEER_KP;
+        config.steerKD = SwerveModule.STEER_KD;
+        config.maxSpeedMetersPerSecond = DEFAULT_MAX_SPEED_METERS_PER_SECOND;
+        config.maxSpinRadiansPerSecond = DEFAULT_MAX_SPIN_RADIANS_PER_SECOND;
+        config.maxModuleSpeedMetersPerSecond = DEFAULT_MAX_MODULE_SPEED_METERS_PER_SECOND;
+        config.maxAccelerationMetersPerSecondSquared = DEFAULT_MAX_ACCELERATION_METERS_PER_SECOND_SQUARED;
+        config.maxAngularAccelerationRadiansPerSecondSquared =
+                DEFAULT_MAX_ANGULAR_ACCELERATION_RADIANS_PER_SECOND_SQUARED;
+        config.maxSteerRateRotationsPerSecond = DEFAULT_MAX_STEER_RATE_ROTATIONS_PER_SECOND;
+        config.minimumBatteryVoltage = DEFAULT_MINIMUM_BATTERY_VOLTAGE;
+        config.batteryResistanceOhms = DEFAULT_BATTERY_RESISTANCE_OHMS;
+        config.driveSupplyCurrentLimitAmps = DEFAULT_DRIVE_SUPPLY_CURRENT_LIMIT_AMPS;
+        config.steerSupplyCurrentLimitAmps = DEFAULT_STEER_SUPPLY_CURRENT_LIMIT_AMPS;
+        return config;
+    }
+
+    public static DrivetrainConfig load(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return parse(new ObjectMapper().readTree(in));
+        }
+    }
+
+    /**
+     * @throws IOException If anything is missing or out of range. Nothing is defaulted, a typo should fail loudly.
+     */
+    static DrivetrainConfig parse(JsonNode root) throws IOException {
+        JsonNode modules = root.path("modules");
+        if (!modules.isArray() || modules.size() != MODULE_COUNT) {
+            throw new IOException("\"modules\" must list the front left, front right, back left and back right modules");
+        }
+
+        String[] names = new String[MODULE_COUNT];
+        double[] x = new double[MODULE_COUNT];
+        double[] y = new double[MODULE_COUNT];
+        int[] moveCanIds = new int[MODULE_COUNT];
+        int[] rotateCanIds = new int[MODULE_COUNT];
+        int[] canCoderIds = new int[MODULE_COUNT];
+        double[] offsets = new double[MODULE_COUNT];
+        for (int i = 0; i < MODULE_COUNT; i++) {
+            JsonNode module = modules.get(i);
+            String where = "modules[" + i + "]";
+            JsonNode name = module.path("name");
+            if (!name.isTextual()) {
+                throw new IOException(where + ".name is missing");
+            }
+            names[i] = name.asText();
+            x[i] = requireDouble(module, "x", where);
+            y[i] = requireDouble(module, "y", where);
+            moveCanIds[i] = requireCanId(module, "moveCanId", where);
+            rotateCanIds[i] = requireCanId(module, "rotateCanId", where);
+            canCoderIds[i] = requireCanId(module, "canCoderId", where);
+            offsets[i] = requireDouble(module, "magneticOffset", where);
+            if (Math.abs(offsets[i]) > 1) {
+                throw new IOException(where + ".magneticOffset is in rotations, it should be between -1 and 1");
+            }
+        }
+
+        JsonNode gains = root.path("gains");
+        JsonNode limits = root.path("limits");
+        JsonNode power = root.path("power");
+        DrivetrainConfig config = new DrivetrainConfig();
+        config.moduleNames = names;
+        config.moduleX = x;
+        config.moduleY = y;
+        config.moveCanIds = moveCanIds;
+        config.rotateCanIds = rotateCanIds;
+        config.canCoderIds = canCoderIds;
+        config.magneticOffsets = offsets;
+        config.pigeonCanId = requireCanId(root, "pigeonCanId", "config");
+        config.driveKP = requireDouble(gains, "driveKP", "gains");
+        config.driveKS = requireDouble(gains, "driveKS", "gains");
+        config.driveKV = requireDouble(gains, "driveKV", "gains");
+        config.steerKP = requireDouble(gains, "steerKP", "gains");
+        config.steerKD = requireDouble(gains, "steerKD", "gains");
+        config.maxSpeedMetersPerSecond = requirePositive(limits, "maxSpeedMetersPerSecond", "limits");
+        config.maxSpinRadiansPerSecond = requirePositive(limits, "maxSpinRadiansPerSecond", "limits");
+        config.maxModuleSpeedMetersPerSecond = requirePositive(limits, "maxModuleSpeedMetersPerSecond", "limits");
+        config.maxAccelerationMetersPerSecondSquared =
+                requirePositive(limits, "maxAccelerationMetersPerSecondSquared", "limits");
+        config.maxAngularAccelerationRadiansPerSecondSquared =
+                requirePositive(limits, "maxAngularAccelerationRadiansPerSecondSquared", "limits");
+        config.maxSteerRateRotationsPerSecond = requirePositive(limits, "maxSteerRateRotationsPerSecond", "limits");
+        config.minimumBatteryVoltage = requirePositive(power, "minimumBatteryVoltage", "power");
+        config.batteryResistanceOhms = requirePositive(power, "batteryResistanceOhms", "power");
+        config.driveSupplyCurrentLimitAmps = requirePositive(power, "driveSupplyCurrentLimitAmps", "power");
+        config.steerSupplyCurrentLimitAmps = requirePositive(power, "steerSupplyCurrentLimitAmps", "power");
+        return config;
+    }
+
+    private static double requireDouble(JsonNode node, String field, String where) throws IOException {
+        JsonNode value = node.path(field);
+        if (!value.isNumber()) {
+            throw new IOException(where + "." + field + " is missing or not a number");
+        }
+        return value.asDouble();
+    }
+
+    private static double requirePositive(JsonNode node, String field, String where) throws IOException {
+        double value = requireDouble(node, field, where);
+        if (value <= 0) {
+            throw new IOException(where + "." + field + " must be positive");
+        }
+        return value;
+    }
+
+    private static int requireCanId(JsonNode node, String field, String where) throws IOException {
+        JsonNode value = node.path(field);
+        if (!value.isInt() || value.asInt() < 0 || value.asInt() > 62) {
+            throw new IOException(where + "." + field + " must be a CAN ID from 0 to 62");
+        }
+        return value.asInt();
+    }
+
+    /**
+     * Write this config out in the same format it's loaded from.
+     */
+    public void save(Path file) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        ObjectNode root = mapper.createObjectNode();
+        root.put("pigeonCanId", pigeonCanId);
+        ArrayNode modules = root.putArray("modules");
+        for (int i = 0; i < moduleNames.length; i++) {
+            ObjectNode module = modules.addObject();
+            module.put("name", moduleNames[i]);
+            module.put("x", moduleX[i]);
+            module.put("y", moduleY[i]);
+            module.put("moveCanId", moveCanIds[i]);
+            module.put("rotateCanId", rotateCanIds[i]);
+            module.put("canCoderId", canCoderIds[i]);
+            module.put("magneticOffset", magneticOffsets[i]);
+        }
+        ObjectNode gains = root.putObject("gains");
+        gains.put("driveKP", driveKP);
+        gains.put("driveKS", driveKS);
+        gains.put("driveKV", driveKV);
+        gains.put("steerKP", steerKP);
+        gains.put("steerKD", steerKD);
+        ObjectNode limits = root.putObject("limits");
+        limits.put("maxSpeedMetersPerSecond", maxSpeedMetersPerSecond);
+        limits.put("maxSpinRadiansPerSecond", maxSpinRadiansPerSecond);
+        limits.put("maxModuleSpeedMetersPerSecond", maxModuleSpeedMetersPerSecond);
+        limits.put("maxAccelerationMetersPerSecondSquared", maxAccelerationMetersPerSecondSquared);
+        limits.put("maxAngularAccelerationRadiansPerSecondSquared", maxAngularAccelerationRadiansPerSecondSquared);
+        limits.put("maxSteerRateRotationsPerSecond", maxSteerRateRotationsPerSecond);
+        ObjectNode power = root.putObject("power");
+        power.put("minimumBatteryVoltage", minimumBatteryVoltage);
+        power.put("batteryResistanceOhms", batteryResistanceOhms);
+        power.put("driveSupplyCurrentLimitAmps", driveSupplyCurrentLimitAmps);
+        power.put("steerSupplyCurrentLimitAmps", steerSupplyCurrentLimitAmps);
+
+        // Write next to the file and move it into place, so the config watcher never sees half a file
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temporary)) {
+            mapper.writerWithDefaultPrettyPrinter().writeValue(out, root);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * A copy with different magnetic offsets, in rotations, for calibration to write back.
+     */
+    public DrivetrainConfig withMagneticOffsets(double[] offsets) {
+        if (offsets.length != magneticOffsets.length) {
+            throw new IllegalArgumentException("Expected " + magneticOffsets.length + " offsets");
+        }
+        DrivetrainConfig copy = new DrivetrainConfig(this);
+        copy.magneticOffsets = offsets.clone();
+        return copy;
+    }
+
+    /**
+     * A copy with different steering gains, for calibration to write back.
+     */
+    public DrivetrainConfig withSteerGains(double steerKP, double steerKD) {
+        DrivetrainConfig copy = new DrivetrainConfig(this);
+        copy.steerKP = steerKP;
+        copy.steerKD = steerKD;
+        return copy;
+    }
+
+    /**
+     * A copy with different drive feedforward gains, for system identification to write back.
+     */
+    public DrivetrainConfig withDriveFeedforward(double driveKS, double driveKV) {
+        DrivetrainConfig copy = new DrivetrainConfig(this);
+        copy.driveKS = driveKS;
+        copy.driveKV = driveKV;
+        return copy;
+    }
+
+    /**
+     * A copy with a different top speed, for trying out values in simulation.
+     */
+    public DrivetrainConfig withMaxSpeed(double maxSpeedMetersPerSecond) {
+        DrivetrainConfig copy = new DrivetrainConfig(this);
+        copy.maxSpeedMetersPerSecond = maxSpeedMetersPerSecond;
+        return copy;
+    }
+
+    /**
+     * A copy with a different minimum battery voltage, for trying out values in simulation. A minimum of 0 leaves the
+     * drive commands alone no matter how far the battery sags.
+     */
+    public DrivetrainConfig withMinimumBatteryVoltage(double minimumBatteryVoltage) {
+        DrivetrainConfig copy = new DrivetrainConfig(this);
+        copy.minimumBatteryVoltage = minimumBatteryVoltage;
+        return copy;
+    }
+
+    /**
+     * @return Whether the CAN IDs and module positions are the same. Those can't change without restarting the code,
+     * everything else can be reloaded.
+     */
+    public boolean hasSameHardware(DrivetrainConfig other) {
+        return Arrays.equals(moveCanIds, other.moveCanIds)
+                && Arrays.equals(rotateCanIds, other.rotateCanIds)
+                && Arrays.equals(canCoderIds, other.canCoderIds)
+                && pigeonCanId == other.pigeonCanId
+                && Arrays.equals(moduleX, other.moduleX)
+                && Arrays.equals(moduleY, other.moduleY);
+    }
+
+    public int getModuleCount() {
+        return moduleNames.length;
+    }
+
+    public String getModuleName(int module) {
+        return moduleNames[module];
+    }
+
+    /**
+     * @return Where the module is relative to the center of the robot, in meters, +x forward and +y left
+     */
+    public Translation2d getModulePosition(int module) {
+        return new Translation2d(moduleX[module], moduleY[module]);
+    }
+
+    public int getMoveCanId(int module) {
+        return moveCanIds[module];
+    }
+
+    public int getRotateCanId(int module) {
+        return rotateCanIds[module];
+    }
+
+    public int getCanCoderId(int module) {
+        return canCoderIds[module];
+    }
+
+    /**
+     * @return The CANcoder's magnetic offset, in rotations
+     */
+    public double getMagneticOffset(int module) {
+        return magneticOffsets[module];
+    }
+
+    public int getPigeonCanId() {
+        return pigeonCanId;
+    }
+
+    public double getDriveKP() {
+        return driveKP;
+    }
+
+    /**
+     * @return Volts to overcome static friction, applied in the direction of the velocity setpoint
+     */
+    public double getDriveKS() {
+        return driveKS;
+    }
+
+    public double getDriveKV() {
+        return driveKV;
+    }
+
+    public double getSteerKP() {
+        return steerKP;
+    }
+
+    public double getSteerKD() {
+        return steerKD;
+    }
+
+    /**
+     * @return How fast the robot drives at full joystick
+     */
+    public double getMaxSpeedMetersPerSecond() {
+        return maxSpeedMetersPerSecond;
+    }
+
+    /**
+     * @return How fast the robot spins at full joystick
+     */
+    public double getMaxSpinRadiansPerSecond() {
+        return maxSpinRadiansPerSecond;
+    }
+
+    /**
+     * @return The fastest any one wheel can be asked to go. Faster setpoints are scaled down with the other wheels.
+     */
+    public double getMaxModuleSpeedMetersPerSecond() {
+        return maxModuleSpeedMetersPerSecond;
+    }
+
+    public double getMaxAccelerationMetersPerSecondSquared() {
+        return maxAccelerationMetersPerSecondSquared;
+    }
+
+    public double getMaxAngularAccelerationRadiansPerSecondSquared() {
+        return maxAngularAccelerationRadiansPerSecondSquared;
+    }
+
+    /**
+     * @return How fast a module's steering setpoint is allowed to move
+     */
+    public double getMaxSteerRateRotationsPerSecond() {
+        return maxSteerRateRotationsPerSecond;
+    }
+
+    /**
+     * @return The lowest the battery should sag to. Drive commands are scaled down to stay above it.
+     */
+    public double getMinimumBatteryVoltage() {
+        return minimumBatteryVoltage;
+    }
+
+    /**
+     * @return The battery's internal resistance plus the wiring to the motor controllers, for predicting how far the
+     * voltage sags for a given current
+     */
+    public double getBatteryResistanceOhms() {
+        return batteryResistanceOhms;
+    }
+
+    /**
+     * @return The most current each drive motor may pull from the battery, enforced by the TalonFX
+     */
+    public double getDriveSupplyCurrentLimitAmps() {
+        return driveSupplyCurrentLimitAmps;
+    }
+
+    /**
+     * @return The most current each steer motor may pull from the battery, enforced by the TalonFX
+     */
+    public double getSteerSupplyCurrentLimitAmps() {
+        return steerSupplyCurrentLimitAmps;
+    }
+}
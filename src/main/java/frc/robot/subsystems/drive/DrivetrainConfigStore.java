@@ -0,0 +1,125 @@
+package frc.robot.subsystems.drive;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+import frc.robot.ThreadScheduling;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the current {@link DrivetrainConfig} and reloads it when the file changes, without restarting the code.
+ * <p>
+ * A background thread watches the file and parses it as soon as it changes, so the control loop never touches the
+ * disk. A new config only becomes current when the main thread calls {@link #applyPendingReload()} between loops, so
+ * every loop sees a single config from start to finish. A file that doesn't parse is reported and ignored, and the
+ * robot keeps running on the last good config.
+ */
+public class DrivetrainConfigStore {
+    private static final long POLL_PERIOD_MILLISECONDS = 1000;
+
+    private final Path file;
+    private volatile DrivetrainConfig current;
+    private final AtomicReference<DrivetrainConfig> pending = new AtomicReference<>();
+    private FileTime lastModified;
+
+    private DrivetrainConfigStore(Path file, DrivetrainConfig current, FileTime lastModified) {
+        this.file = file;
+        this.current = current;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Load drivetrain.json from the deploy directory, falling back to {@link DrivetrainConfig#defaults()} if it's
+     * missing or broken, and start watching it for changes.
+     */
+    public static DrivetrainConfigStore loadFromDeploy() {
+        Path file = Filesystem.getDeployDirectory().toPath().resolve(DrivetrainConfig.FILE_NAME);
+        DrivetrainConfig config;
+        FileTime lastModified = null;
+        try {
+            lastModified = Files.getLastModifiedTime(file);
+            config = DrivetrainConfig.load(file);
+        } catch (IOException e) {
+            DriverStation.reportError("Using the built in drivetrain config, couldn't load " + file + ": "
+                    + e.getMessage(), false);
+            config = DrivetrainConfig.defaults();
+        }
+        DrivetrainConfigStore store = new DrivetrainConfigStore(file, config, lastModified);
+        store.startWatching();
+        return store;
+    }
+
+    /**
+     * A store that always has the same config and never reloads, for simulation and benchmarks.
+     */
+    public static DrivetrainConfigStore fixed(DrivetrainConfig config) {
+        return new DrivetrainConfigStore(null, config, null);
+    }
+
+    /**
+     * @return The config for this loop. Read it once per loop rather than holding on to it.
+     */
+    public DrivetrainConfig get() {
+        return current;
+    }
+
+    /**
+     * Make a reloaded config current, if the file changed since the last call. Only call this from the main thread,
+     * between loops.
+     *
+     * @return The new config, or null if nothing changed
+     */
+    public DrivetrainConfig applyPendingReload() {
+        DrivetrainConfig next = pending.getAndSet(null);
+        if (next != null) {
+            current = next;
+        }
+        return next;
+    }
+
+    /**
+     * Write a new config to the file. It becomes current the same way as any other change to the file, through the
+     * watcher and {@link #applyPendingReload()}.
+     * <p>
+     * On the robot this writes to the deploy directory, so the next deploy overwrites it. Copy the file back into the
+     * project to keep the change.
+     */
+    public void save(DrivetrainConfig config) throws IOException {
+        if (file == null) {
+            throw new IOException("This config isn't loaded from a file");
+        }
+        config.save(file);
+    }
+
+    private void startWatching() {
+        Thread watcher = new Thread(this::watch, "Config watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private void watch() {
+        ThreadScheduling.configureCurrentThread(ThreadScheduling.Role.BACKGROUND);
+        while (true) {
+            try {
+                Thread.sleep(POLL_PERIOD_MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                FileTime modified = Files.getLastModifiedTime(file);
+                if (modified.equals(lastModified)) {
+                    continue;
+                }
+                lastModified = modified;
+                pending.set(DrivetrainConfig.load(file));
+            } catch (IOException e) {
+                DriverStation.reportWarning("Ignoring the changed drivetrain config, it didn't load: "
+                        + e.getMessage(), false);
+            }
+        }
+    }
+}
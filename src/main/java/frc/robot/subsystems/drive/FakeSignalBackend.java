@@ -0,0 +1,44 @@
+package frc.robot.subsystems.drive;
+
+/**
+ * A {@link SignalHub.Backend} where the values are set directly instead of being read from devices. Use it to run the
+ * drivetrain in simulation or in a benchmark without any hardware.
+ */
+public class FakeSignalBackend implements SignalHub.Backend {
+    private final int moduleCount;
+    private final double[] values;
+    private double timestampSeconds;
+
+    public FakeSignalBackend(int moduleCount) {
+        this.moduleCount = moduleCount;
+        this.values = new double[SignalHub.size(moduleCount)];
+    }
+
+    public void setModuleSignal(int module, int signal, double value) {
+        values[SignalHub.moduleIndex(module, signal)] = value;
+    }
+
+    public void setGyroSignal(int signal, double value) {
+        values[SignalHub.gyroIndex(moduleCount, signal)] = value;
+    }
+
+    public void setTimestampSeconds(double timestampSeconds) {
+        this.timestampSeconds = timestampSeconds;
+    }
+
+    /**
+     * Set every value at once, such as from a recording made with {@link SignalHub#copyValues(double[], int)}.
+     *
+     * @param values Values in the hub's layout, starting at offset
+     */
+    public void setValues(double[] values, int offset, double timestampSeconds) {
+        System.arraycopy(values, offset, this.values, 0, this.values.length);
+        this.timestampSeconds = timestampSeconds;
+    }
+
+    @Override
+    public double refresh(double[] values) {
+        System.arraycopy(this.values, 0, values, 0, this.values.length);
+        return timestampSeconds;
+    }
+}
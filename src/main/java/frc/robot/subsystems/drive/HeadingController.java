@@ -0,0 +1,156 @@
+package frc.robot.subsystems.drive;
+
+import edu.wpi.first.math.MathUtil;
+
+/**
+ * Turns the robot to a heading and keeps it there: a trapezoidal motion profile from where the robot is pointing to
+ * the goal, with the profile's velocity as the feedforward and PD feedback on how far the robot is from the profile.
+ * <p>
+ * This is WPILib's ProfiledPIDController cut down to what driving needs, without any objects. WPILib's version makes a
+ * new profile and states every time it's called, this does the same math as
+ * {@link edu.wpi.first.math.trajectory.TrapezoidProfile} with the profile's state kept in a couple of doubles, so it's
+ * fine to call every loop. Working out the whole profile again from the current state every period, rather than
+ * stepping the velocity toward how fast it could still stop, is what lets it slow down in time and land exactly on
+ * the goal.
+ * <p>
+ * The profile works in continuous radians, like {@link HeadingProvider#getContinuousDegrees()}, so it can't jump
+ * when the yaw wraps. A new goal is moved to whichever turn of it is closest, and the feedback takes the shorter way
+ * around to the profile, so the robot never goes the long way around even if the heading it's given is wrapped.
+ * <p>
+ * Main thread only.
+ */
+public class HeadingController {
+    // Radians per second per radian of error, same as FollowTrajectoryCommand's heading gain, and radians per second
+    // per radian per second of error
+    private static final double KP = 3.0;
+    private static final double KD = 0.1;
+
+    private final double periodSeconds;
+    private double maxVelocity = 0;
+    private double maxAcceleration = 0;
+
+    private double goal = 0;
+    private double position = 0;
+    private double velocity = 0;
+
+    /**
+     * @param periodSeconds How often {@link #calculate(double, double)} is called
+     */
+    public HeadingController(double periodSeconds) {
+        this.periodSeconds = periodSeconds;
+    }
+
+    /**
+     * @param maxVelocity     The fastest the profile turns, in radians per second
+     * @param maxAcceleration The fastest the profile speeds up or slows down, in radians per second squared
+     */
+    public void setConstraints(double maxVelocity, double maxAcceleration) {
+        this.maxVelocity = maxVelocity;
+        this.maxAcceleration = maxAcceleration;
+    }
+
+    /**
+     * Start the profile from where the robot is and how fast it's turning, and make that the goal. Call this whenever
+     * something else has been turning the robot.
+     */
+    public void reset(double headingRadians, double rateRadiansPerSecond) {
+        position = headingRadians;
+        velocity = rateRadiansPerSecond;
+        goal = headingRadians;
+    }
+
+    /**
+     * @param headingRadians Where to point, in any turn, such as 0 for straight downfield
+     */
+    public void setGoal(double headingRadians) {
+        goal = position + MathUtil.angleModulus(headingRadians - position);
+    }
+
+    /**
+     * Set the goal to wherever the profile can stop without going over its acceleration, so letting go of the spin
+     * stick slows the robot down smoothly instead of swinging it back to where it was when the stick was let go.
+     */
+    public void holdWhereStopping() {
+        goal = maxAcceleration > 0 ? position + velocity * Math.abs(velocity) / (2 * maxAcceleration) : position;
+    }
+
+    /**
+     * Move the profile one period along and work out how fast to turn.
+     *
+     * @param headingRadians       Where the robot is pointing, continuous or wrapped to any range
+     * @param rateRadiansPerSecond How fast it's turning, counterclockwise positive
+     * @return How fast to turn, counterclockwise positive, limited to the max velocity
+     */
+    public double calculate(double headingRadians, double rateRadiansPerSecond) {
+        if (maxVelocity > 0 && maxAcceleration > 0) {
+            stepProfile();
+        }
+
+        double error = MathUtil.angleModulus(position - headingRadians);
+        double omega = velocity + KP * error + KD * (velocity - rateRadiansPerSecond);
+        return MathUtil.clamp(omega, -maxVelocity, maxVelocity);
+    }
+
+    /**
+     * Move the profile's state one period along, the same as TrapezoidProfile.calculate(period) on a profile from the
+     * current state to the goal at rest. The profile is worked out as if it started and ended at rest, with the part
+     * before the current velocity cut off, which comes out as how long each of its three phases lasts.
+     */
+    private void stepProfile() {
+        // Work in the direction of the goal, so the math only has to handle moving forward
+        double direction = goal < position ? -1 : 1;
+        double start = position * direction;
+        double end = goal * direction;
+        double initialVelocity = Math.min(velocity * direction, maxVelocity);
+
+        double cutoffTime = initialVelocity / maxAcceleration;
+        double cutoffDistance = cutoffTime * cutoffTime * maxAcceleration / 2;
+        double fullTrapezoidDistance = cutoffDistance + end - start;
+        double accelerationTime = maxVelocity / maxAcceleration;
+        double fullSpeedDistance = fullTrapezoidDistance - accelerationTime * accelerationTime * maxAcceleration;
+        // Too short to reach full speed, it's a triangle instead
+        if (fullSpeedDistance < 0) {
+            accelerationTime = Math.sqrt(fullTrapezoidDistance / maxAcceleration);
+            fullSpeedDistance = 0;
+        }
+        double endAcceleration = accelerationTime - cutoffTime;
+        double endFullSpeed = endAcceleration + fullSpeedDistance / maxVelocity;
+        double endDeceleration = endFullSpeed + accelerationTime;
+
+        double t = periodSeconds;
+        double newPosition;
+        double newVelocity;
+        if (t < endAcceleration) {
+            newVelocity = initialVelocity + t * maxAcceleration;
+            newPosition = start + (initialVelocity + t * maxAcceleration / 2) * t;
+        } else if (t < endFullSpeed) {
+            newVelocity = maxVelocity;
+            newPosition = start + (initialVelocity + endAcceleration * maxAcceleration / 2) * endAcceleration
+                    + maxVelocity * (t - endAcceleration);
+        } else if (t <= endDeceleration) {
+            double timeLeft = endDeceleration - t;
+            newVelocity = timeLeft * maxAcceleration;
+            newPosition = end - timeLeft * maxAcceleration / 2 * timeLeft;
+        } else {
+            // Close enough to land on the goal this period
+            newVelocity = 0;
+            newPosition = end;
+        }
+        position = newPosition * direction;
+        velocity = newVelocity * direction;
+    }
+
+    /**
+     * @return The heading being turned to, continuous
+     */
+    public double getGoalRadians() {
+        return goal;
+    }
+
+    /**
+     * @return Where the profile says the robot should be pointing now, continuous
+     */
+    public double getSetpointRadians() {
+        return position;
+    }
+}
@@ -0,0 +1,102 @@
+package frc.robot.subsystems.drive;
+
+/**
+ * The robot's heading, cached once a loop from the {@link SignalHub} so every command in the loop sees the same yaw
+ * without touching the gyro.
+ * <p>
+ * The gyro's yaw is continuous, it keeps counting past 360 as the robot spins, so there are two views of it: the
+ * continuous yaw, for anything that tracks how far the robot has turned, and the heading wrapped to [0, 360), for
+ * anything that shows it or compares it to a field angle. Wrapping is one floor rather than a loop, so it takes the
+ * same time however far the robot has spun, and it's only done the first time it's asked for in a loop.
+ * <p>
+ * The yaw was sampled a little before the loop runs, by however long the CAN bus and the sampling thread took, so the
+ * compensated getters move it forward along the yaw rate to the time the command's output will actually be used.
+ * <p>
+ * Main thread only, like the hub's cached values.
+ */
+public class HeadingProvider {
+    // Past this the sample is stale rather than late, and extrapolating further would only make things worse
+    private static final double MAX_COMPENSATION_SECONDS = 0.1;
+
+    private double yawDegrees = 0;
+    private double yawRateDegreesPerSecond = 0;
+    private double timestampSeconds = 0;
+
+    private double headingDegrees = 0;
+    private boolean headingValid = true;
+
+    /**
+     * Cache the newest yaw. Call this once a loop, right after the hub refreshes.
+     *
+     * @param yawDegrees              Continuous yaw, counterclockwise positive
+     * @param yawRateDegreesPerSecond How fast the yaw is changing, counterclockwise positive
+     * @param timestampSeconds        FPGA time the yaw was sampled at
+     */
+    public void update(double yawDegrees, double yawRateDegreesPerSecond, double timestampSeconds) {
+        this.yawDegrees = yawDegrees;
+        this.yawRateDegreesPerSecond = yawRateDegreesPerSecond;
+        this.timestampSeconds = timestampSeconds;
+        headingValid = false;
+    }
+
+    /**
+     * Wrap any yaw into [0, 360). This takes the same time for a yaw of 45 as for one of 360000.
+     */
+    public static double normalizeDegrees(double yawDegrees) {
+        double heading = yawDegrees - 360 * Math.floor(yawDegrees / 360);
+        // Once a double can't count the turns exactly, around 1e18 degrees, the first pass can round out of range. What
+        // it leaves is small enough for a second pass to wrap exactly.
+        heading -= 360 * Math.floor(heading / 360);
+        // Rounding can land a tiny negative yaw on exactly 360
+        return heading >= 360 ? 0 : heading;
+    }
+
+    /**
+     * @return The continuous yaw from the last sample, not wrapped, in degrees counterclockwise positive
+     */
+    public double getContinuousDegrees() {
+        return yawDegrees;
+    }
+
+    /**
+     * @return The heading from the last sample, wrapped to [0, 360) degrees
+     */
+    public double getDegrees() {
+        if (!headingValid) {
+            headingDegrees = normalizeDegrees(yawDegrees);
+            headingValid = true;
+        }
+        return headingDegrees;
+    }
+
+    /**
+     * @return How fast the robot was turning at the last sample, in degrees per second counterclockwise positive
+     */
+    public double getRateDegreesPerSecond() {
+        return yawRateDegreesPerSecond;
+    }
+
+    /**
+     * @return FPGA time the cached yaw was sampled at
+     */
+    public double getTimestampSeconds() {
+        return timestampSeconds;
+    }
+
+    /**
+     * @param controlTimestampSeconds FPGA time the yaw is wanted at, usually now
+     * @return The continuous yaw extrapolated from the last sample to that time, along the yaw rate
+     */
+    public double getContinuousDegreesAt(double controlTimestampSeconds) {
+        double dt = Math.min(Math.max(controlTimestampSeconds - timestampSeconds, 0), MAX_COMPENSATION_SECONDS);
+        return yawDegrees + yawRateDegreesPerSecond * dt;
+    }
+
+    /**
+     * @param controlTimestampSeconds FPGA time the heading is wanted at, usually now
+     * @return The heading extrapolated from the last sample to that time, wrapped to [0, 360) degrees
+     */
+    public double getDegreesAt(double controlTimestampSeconds) {
+        return normalizeDegrees(getContinuousDegreesAt(controlTimestampSeconds));
+    }
+}
@@ -0,0 +1,140 @@
+package frc.robot.subsystems.drive;
+
+import frc.robot.ThreadScheduling;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends the modules' setpoints in parallel, so slow CAN writes to one module don't hold up the others. Each module
+ * after the first gets its own worker thread, and the calling thread sends the first module itself before waiting for
+ * the rest.
+ * <p>
+ * The wait has a deadline so a stuck write can't stall the main loop. A module that misses it keeps its previous
+ * setpoint for the next loop too, rather than having its late write race with a newer one.
+ * <p>
+ * Everything a worker needs, including the module's angle, is read on the calling thread and handed over with the
+ * setpoint, since the next loop's refresh can rewrite the hub while a late worker is still sending. What a worker
+ * writes is only safe to read from the calling thread once {@link #isSent} says it's done.
+ * <p>
+ * Nothing here allocates once the workers are started.
+ */
+public class ParallelModuleApply {
+    private final SwerveModule[] modules;
+    private final Worker[] workers;
+    private final boolean[] dispatched;  // Which workers got a setpoint this call, only touched by the caller
+    private final long deadlineNanos;
+    private volatile Thread caller;
+
+    /**
+     * @param deadlineSeconds How long to wait for every module to finish sending
+     */
+    public ParallelModuleApply(SwerveModule[] modules, double deadlineSeconds) {
+        this.modules = modules;
+        this.deadlineNanos = (long) (deadlineSeconds * 1e9);
+        this.workers = new Worker[modules.length];
+        this.dispatched = new boolean[modules.length];
+        for (int i = 1; i < modules.length; i++) {
+            workers[i] = new Worker(i);
+        }
+    }
+
+    /**
+     * Send every module its setpoint and wait for them to finish, up to the deadline.
+     *
+     * @param speeds     Meters per second for each module
+     * @param angles     Degrees for each module
+     * @param steerRates Degrees per second the angle setpoint is turning, for each module
+     * @return How many modules didn't get their setpoint in time, either because they missed the deadline this loop or
+     * because they were still busy with last loop's
+     */
+    public int apply(double[] speeds, double[] angles, double[] steerRates) {
+        caller = Thread.currentThread();
+        long deadline = System.nanoTime() + deadlineNanos;
+
+        int skipped = 0;
+        for (int i = 1; i < workers.length; i++) {
+            dispatched[i] = workers[i].dispatch(speeds[i], angles[i], steerRates[i],
+                    modules[i].getSteerPositionRotations());
+            if (!dispatched[i]) {
+                skipped++;
+            }
+        }
+
+        modules[0].send(speeds[0], angles[0], steerRates[0]);
+
+        // Workers unpark us when they finish, but parking can also wake early, so check again every time. A worker
+        // that was skipped is still busy with an older setpoint, it's already counted and not worth waiting for.
+        int late;
+        while (true) {
+            late = 0;
+            for (int i = 1; i < workers.length; i++) {
+                if (dispatched[i] && workers[i].busy) {
+                    late++;
+                }
+            }
+            long remaining = deadline - System.nanoTime();
+            if (late == 0 || remaining <= 0) {
+                break;
+            }
+            LockSupport.parkNanos(this, remaining);
+        }
+        return skipped + late;
+    }
+
+    /**
+     * @return Whether the module got the last {@link #apply}'s setpoint and has finished sending it. Until it has, its
+     * worker may still be writing the module's setpoint, so don't log it.
+     */
+    public boolean isSent(int module) {
+        // Seeing busy cleared also makes everything the worker wrote before clearing it visible
+        return module == 0 || (dispatched[module] && !workers[module].busy);
+    }
+
+    private final class Worker implements Runnable {
+        private final int index;
+        private final Thread thread;
+        private volatile boolean busy = false;
+
+        // Written by the caller before busy is set, read by the worker after it sees busy
+        private double speed;
+        private double angle;
+        private double steerRate;
+        private double steerPosition;
+
+        private Worker(int index) {
+            this.index = index;
+            thread = new Thread(this, "Swerve module " + index);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        /**
+         * @return False if the worker is still sending the last setpoint
+         */
+        private boolean dispatch(double speed, double angle, double steerRate, double steerPosition) {
+            if (busy) {
+                return false;
+            }
+            this.speed = speed;
+            this.angle = angle;
+            this.steerRate = steerRate;
+            this.steerPosition = steerPosition;
+            busy = true;
+            LockSupport.unpark(thread);
+            return true;
+        }
+
+        @Override
+        public void run() {
+            ThreadScheduling.configureCurrentThread(ThreadScheduling.Role.CONTROL_WORKER);
+            while (true) {
+                while (!busy) {
+                    LockSupport.park(this);
+                }
+                modules[index].send(speed, angle, steerRate, steerPosition);
+                busy = false;
+                LockSupport.unpark(caller);
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package frc.robot.subsystems.drive;
+
+import com.ctre.phoenixpro.BaseStatusSignalValue;
+import com.ctre.phoenixpro.StatusSignalValue;
+import com.ctre.phoenixpro.Utils;
+import com.ctre.phoenixpro.hardware.Pigeon2;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Reads the {@link SignalHub} values from the real Phoenix devices. Every signal is refreshed with a single
+ * non-blocking {@link BaseStatusSignalValue#waitForAll(double, BaseStatusSignalValue...)} call, so all the values come
+ * from the same pass over the bus.
+ * <p>
+ * Phoenix Pro only hands signal values out boxed, which would be a new Double for every signal on every 250 Hz sample.
+ * The double they're boxed from is a protected field on {@link BaseStatusSignalValue}, so it's read directly instead.
+ * If a Phoenix update renames that field, this warns once at startup and falls back to the boxed values.
+ */
+public class PhoenixSignalBackend implements SignalHub.Backend {
+    private static final VarHandle BASE_VALUE = findBaseValue();
+
+    private final BaseStatusSignalValue[] signals;
+    private final StatusSignalValue<Double>[] typedSignals;
+
+    /**
+     * @param modules           The module hardware, in the same order as the subsystem's modules
+     * @param updateFrequencyHz How often the devices should send every signal. This should be at least as fast as the
+     *                          hub is sampled.
+     */
+    @SuppressWarnings("unchecked")
+    public PhoenixSignalBackend(TalonFXModuleIO[] modules, Pigeon2 pigeon2, double updateFrequencyHz) {
+        typedSignals = new StatusSignalValue[SignalHub.size(modules.length)];
+        for (int i = 0; i < modules.length; i++) {
+            TalonFXModuleIO module = modules[i];
+            typedSignals[SignalHub.moduleIndex(i, SignalHub.MODULE_STEER_ABSOLUTE)] = module.rotationEncoder.getAbsolutePosition();
+            typedSignals[SignalHub.moduleIndex(i, SignalHub.MODULE_STEER_POSITION)] = module.rotateMotor.getPosition();
+            typedSignals[SignalHub.moduleIndex(i, SignalHub.MODULE_STEER_VELOCITY)] = module.rotateMotor.getVelocity();
+            typedSignals[SignalHub.moduleIndex(i, SignalHub.MODULE_DRIVE_POSITION)] = module.moveMotor.getPosition();
+            typedSignals[SignalHub.moduleIndex(i, SignalHub.MODULE_DRIVE_VELOCITY)] = module.moveMotor.getVelocity();
+            typedSignals[SignalHub.moduleIndex(i, SignalHub.MODULE_DRIVE_SUPPLY_CURRENT)] = module.moveMotor.getSupplyCurrent();
+            typedSignals[SignalHub.moduleIndex(i, SignalHub.MODULE_STEER_SUPPLY_CURRENT)] = module.rotateMotor.getSupplyCurrent();
+            typedSignals[SignalHub.moduleIndex(i, SignalHub.MODULE_SUPPLY_VOLTAGE)] = module.moveMotor.getSupplyVoltage();
+        }
+        typedSignals[SignalHub.gyroIndex(modules.length, SignalHub.GYRO_YAW)] = pigeon2.getYaw();
+        typedSignals[SignalHub.gyroIndex(modules.length, SignalHub.GYRO_YAW_RATE)] = pigeon2.getAngularVelocityZ();
+
+        signals = new BaseStatusSignalValue[typedSignals.length];
+        System.arraycopy(typedSignals, 0, signals, 0, typedSignals.length);
+
+        for (BaseStatusSignalValue signal : signals) {
+            signal.setUpdateFrequency(updateFrequencyHz);
+        }
+    }
+
+    @Override
+    public double refresh(double[] values) {
+        BaseStatusSignalValue.waitForAll(0, signals);  // A timeout of 0 refreshes everything without blocking
+
+        double oldestSample = Double.MAX_VALUE;
+        for (int i = 0; i < signals.length; i++) {
+            values[i] = BASE_VALUE != null ? (double) BASE_VALUE.get(signals[i]) : typedSignals[i].getValue();
+            oldestSample = Math.min(oldestSample, signals[i].getTimestamp().getTime());
+        }
+
+        // Signal timestamps use Phoenix's clock, so turn the age of the oldest sample into an FPGA timestamp
+        return Timer.getFPGATimestamp() - (Utils.getCurrentTimeSeconds() - oldestSample);
+    }
+
+    private static VarHandle findBaseValue() {
+        try {
+            return MethodHandles.privateLookupIn(BaseStatusSignalValue.class, MethodHandles.lookup())
+                    .findVarHandle(BaseStatusSignalValue.class, "baseValue", double.class);
+        } catch (ReflectiveOperationException | SecurityException e) {
+            DriverStation.reportWarning("Can't read Phoenix signal values without boxing them, sampling the "
+                    + "drivetrain will allocate: " + e, false);
+            return null;
+        }
+    }
+}
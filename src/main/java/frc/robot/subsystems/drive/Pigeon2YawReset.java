@@ -0,0 +1,39 @@
+package frc.robot.subsystems.drive;
+
+import com.ctre.phoenixpro.hardware.Pigeon2;
+
+/**
+ * Zeroes the Pigeon2's yaw, so the robot's heading starts from wherever it's facing when the code starts.
+ * <p>
+ * There's no configuration to read back. The yaw signal belongs to the odometry thread, so rather than reading it here
+ * the acknowledgement of the set counts as verification.
+ */
+public class Pigeon2YawReset implements DeviceConfig {
+    private final Pigeon2 pigeon2;
+
+    public Pigeon2YawReset(Pigeon2 pigeon2) {
+        this.pigeon2 = pigeon2;
+    }
+
+    @Override
+    public String getName() {
+        return "Pigeon2";
+    }
+
+    @Override
+    public String getFingerprint() {
+        // Zeroing isn't configuration, it has to happen on every start
+        return null;
+    }
+
+    @Override
+    public boolean apply(double timeoutSeconds) {
+        return pigeon2.clearStickyFaults(timeoutSeconds).isOK()
+                && pigeon2.setYaw(0, timeoutSeconds).isOK();
+    }
+
+    @Override
+    public boolean verify(double timeoutSeconds) {
+        return true;
+    }
+}
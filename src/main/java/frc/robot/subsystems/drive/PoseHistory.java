@@ -0,0 +1,155 @@
+package frc.robot.subsystems.drive;
+
+import edu.wpi.first.math.MathUtil;
+
+/**
+ * The last second or so of odometry poses, so a measurement that arrives late, like a camera frame, can be compared to
+ * where odometry thought the robot was when the measurement was actually taken.
+ * <p>
+ * Poses are kept in a ring of primitive arrays sorted by time, so adding one never allocates and finding the pose at
+ * any time in the window is a binary search plus a linear interpolation between the two poses either side of it.
+ * <p>
+ * Not thread safe. It belongs to whichever thread updates odometry.
+ */
+public class PoseHistory {
+    private final double[] timestamps;
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] thetas;  // Radians, -π to π like Rotation2d
+    private int oldest = 0;
+    private int size = 0;
+
+    /**
+     * @param capacity How many poses to keep. At the odometry rate, 250 covers one second.
+     */
+    public PoseHistory(int capacity) {
+        timestamps = new double[capacity];
+        xs = new double[capacity];
+        ys = new double[capacity];
+        thetas = new double[capacity];
+    }
+
+    /**
+     * Add the newest pose, dropping the oldest once full. Poses that aren't newer than the last one are ignored, so the
+     * history always stays sorted.
+     */
+    public void add(double timestampSeconds, double x, double y, double thetaRadians) {
+        if (size > 0 && timestampSeconds <= timestamps[physical(size - 1)]) {
+            return;
+        }
+        int index;
+        if (size < timestamps.length) {
+            index = physical(size);
+            size++;
+        } else {
+            index = oldest;
+            oldest = (oldest + 1) % timestamps.length;
+        }
+        timestamps[index] = timestampSeconds;
+        xs[index] = x;
+        ys[index] = y;
+        thetas[index] = thetaRadians;
+    }
+
+    /**
+     * Move every pose by the same rigid transform, so the newest pose lands on the given one. For when a correction,
+     * like a fused camera pose, moves the estimate: everything before it was off by the same amount, since the poses
+     * are all integrated from the same odometry.
+     */
+    public void moveNewestTo(double x, double y, double thetaRadians) {
+        if (size == 0) {
+            return;
+        }
+        int newest = physical(size - 1);
+        double originX = xs[newest];
+        double originY = ys[newest];
+        double rotation = MathUtil.angleModulus(thetaRadians - thetas[newest]);
+        double cos = Math.cos(rotation);
+        double sin = Math.sin(rotation);
+        for (int logical = 0; logical < size; logical++) {
+            int index = physical(logical);
+            double dx = xs[index] - originX;
+            double dy = ys[index] - originY;
+            xs[index] = x + dx * cos - dy * sin;
+            ys[index] = y + dx * sin + dy * cos;
+            thetas[index] = MathUtil.angleModulus(thetas[index] + rotation);
+        }
+    }
+
+    public void clear() {
+        oldest = 0;
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The timestamp of the oldest pose still kept, or NaN if there are none
+     */
+    public double getOldestTimestampSeconds() {
+        return size == 0 ? Double.NaN : timestamps[oldest];
+    }
+
+    /**
+     * @return The timestamp of the newest pose, or NaN if there are none
+     */
+    public double getNewestTimestampSeconds() {
+        return size == 0 ? Double.NaN : timestamps[physical(size - 1)];
+    }
+
+    /**
+     * Find where odometry had the robot at a given time. Times after the newest pose get the newest pose, since there's
+     * nothing to extrapolate from.
+     *
+     * @param out Filled in with x, y and theta in radians
+     * @return False, leaving out alone, if the time is before the oldest pose kept
+     */
+    public boolean sample(double timestampSeconds, double[] out) {
+        if (size == 0 || timestampSeconds < timestamps[oldest]) {
+            return false;
+        }
+        int newest = physical(size - 1);
+        if (timestampSeconds >= timestamps[newest]) {
+            copy(newest, out);
+            return true;
+        }
+
+        // The last pose at or before the timestamp. There's always one after it, since the timestamp is before the
+        // newest.
+        int low = 0;
+        int high = size - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (timestamps[physical(middle)] <= timestampSeconds) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        int before = physical(low);
+        int after = physical(low + 1);
+
+        double t = (timestampSeconds - timestamps[before]) / (timestamps[after] - timestamps[before]);
+        out[0] = xs[before] + (xs[after] - xs[before]) * t;
+        out[1] = ys[before] + (ys[after] - ys[before]) * t;
+        // Interpolate the short way around, a turn through ±π would otherwise swing through 0
+        out[2] = MathUtil.angleModulus(
+                thetas[before] + MathUtil.angleModulus(thetas[after] - thetas[before]) * t);
+        return true;
+    }
+
+    private void copy(int index, double[] out) {
+        out[0] = xs[index];
+        out[1] = ys[index];
+        out[2] = thetas[index];
+    }
+
+    /**
+     * @param logical 0 for the oldest pose, size - 1 for the newest
+     */
+    private int physical(int logical) {
+        return (oldest + logical) % timestamps.length;
+    }
+}
@@ -0,0 +1,120 @@
+package frc.robot.subsystems.drive;
+
+import edu.wpi.first.math.MathUtil;
+
+/**
+ * Keeps the drivetrain from dragging the battery below the config's minimum voltage, by working out how much of the
+ * requested drive output the battery can take and scaling the drive commands down to match. Hard accelerations with a
+ * tired battery are what brown the robot out, and the roboRIO disables every motor when that happens, which is a lot
+ * worse than accelerating a little slower.
+ * <p>
+ * The battery is modelled as its resting voltage behind a resistance. Every sample, the voltage the motors see and the
+ * current they draw give the resting voltage, and from that the most current the drivetrain can draw before the voltage
+ * sags to the minimum. The steer motors get what they need first, and the drive commands are scaled so the drive motors
+ * fit in what's left. Cutting back happens immediately, coming back up is rate limited, so the scale doesn't bounce
+ * between the two.
+ * <p>
+ * The resistance only sets how hard it reacts. If it's off, the voltage still ends up at the minimum rather than below
+ * it, since any sample below the minimum makes the budget smaller than what's being drawn.
+ * <p>
+ * This runs on whichever thread samples the {@link SignalHub}, so it sees every sample rather than one a loop, and the
+ * main loop only reads the scale.
+ */
+public class PowerBudget implements SwerveOdometry.SampleListener {
+    // Never slow the drivetrain down to less than this, it still has to be able to get out of the way
+    static final double MIN_SCALE = 0.25;
+    // How fast the scale is allowed to come back up, per second
+    static final double RECOVERY_PER_SECOND = 1;
+    // Below this the drive motors are barely drawing anything, and dividing by it would just amplify noise
+    private static final double MIN_DRIVE_CURRENT_AMPS = 5;
+    // Smooths the resting voltage estimate over about 25 samples at the odometry rate
+    private static final double RESTING_VOLTAGE_TIME_CONSTANT_SECONDS = 0.1;
+
+    private volatile double minimumVoltage;
+    private volatile double resistanceOhms;
+
+    // Only touched by the sampling thread
+    private double lastTimestampSeconds = Double.NaN;
+    private double restingVoltage = Double.NaN;
+    private double sampledScale = 1;
+
+    // Handed to the main loop
+    private volatile double scale = 1;
+    private volatile double batteryVoltage = 0;
+    private volatile double currentAmps = 0;
+
+    public PowerBudget(DrivetrainConfig config) {
+        setConfig(config);
+    }
+
+    /**
+     * Take the minimum voltage and battery resistance from a new config.
+     */
+    public void setConfig(DrivetrainConfig config) {
+        minimumVoltage = config.getMinimumBatteryVoltage();
+        resistanceOhms = config.getBatteryResistanceOhms();
+    }
+
+    @Override
+    public void onSample(SignalHub signals) {
+        double timestamp = signals.getSampledTimestampSeconds();
+        double dt = Double.isNaN(lastTimestampSeconds) ? 0 : MathUtil.clamp(timestamp - lastTimestampSeconds, 0, 0.1);
+        lastTimestampSeconds = timestamp;
+
+        // The lowest voltage any module sees is the one that matters, it's the one furthest down the wiring
+        double voltage = Double.MAX_VALUE;
+        double driveCurrent = 0;
+        double steerCurrent = 0;
+        for (int i = 0; i < signals.getModuleCount(); i++) {
+            voltage = Math.min(voltage, signals.getSampledModuleSignal(i, SignalHub.MODULE_SUPPLY_VOLTAGE));
+            driveCurrent += signals.getSampledModuleSignal(i, SignalHub.MODULE_DRIVE_SUPPLY_CURRENT);
+            steerCurrent += signals.getSampledModuleSignal(i, SignalHub.MODULE_STEER_SUPPLY_CURRENT);
+        }
+        batteryVoltage = voltage;
+        currentAmps = driveCurrent + steerCurrent;
+        if (voltage <= 0) {
+            // No reading, like with a fake backend that never sets one
+            sampledScale = 1;
+            scale = 1;
+            return;
+        }
+
+        double resistance = resistanceOhms;
+        double resting = voltage + resistance * (driveCurrent + steerCurrent);
+        if (Double.isNaN(restingVoltage)) {
+            restingVoltage = resting;
+        } else {
+            restingVoltage += (resting - restingVoltage) * Math.min(1, dt / RESTING_VOLTAGE_TIME_CONSTANT_SECONDS);
+        }
+
+        double target = 1;
+        if (driveCurrent > MIN_DRIVE_CURRENT_AMPS) {
+            double driveBudget = (restingVoltage - minimumVoltage) / resistance - steerCurrent;
+            // The current drawn now is from the current scale, so scale that by how far over or under budget it is
+            target = MathUtil.clamp(sampledScale * driveBudget / driveCurrent, MIN_SCALE, 1);
+        }
+        sampledScale = target < sampledScale ? target : Math.min(target, sampledScale + RECOVERY_PER_SECOND * dt);
+        scale = sampledScale;
+    }
+
+    /**
+     * @return How much to scale the drive commands by, from {@link #MIN_SCALE} to 1
+     */
+    public double getScale() {
+        return scale;
+    }
+
+    /**
+     * @return The lowest voltage any module saw in the last sample
+     */
+    public double getBatteryVoltage() {
+        return batteryVoltage;
+    }
+
+    /**
+     * @return How much current every drivetrain motor drew together in the last sample
+     */
+    public double getCurrentAmps() {
+        return currentAmps;
+    }
+}
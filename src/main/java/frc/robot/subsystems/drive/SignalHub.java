@@ -0,0 +1,194 @@
+package frc.robot.subsystems.drive;
+
+import frc.robot.telemetry.LoopTimer;
+import frc.robot.telemetry.LoopTiming;
+
+/**
+ * Every sensor value the drivetrain reads, refreshed together once at the top of the loop.
+ * <p>
+ * Reading a status signal on its own means a separate fetch for every call, so with four modules and a gyro the loop
+ * ends up waiting on the CAN bus over and over. Instead, every signal is registered with a {@link Backend} once, and
+ * {@link #refresh()} pulls them all in one go into a flat array of primitives. Everything else reads the cached values,
+ * so nothing in the control loop touches the bus.
+ * <p>
+ * Values are laid out as {@link #SIGNALS_PER_MODULE} values for each module, in the same order as
+ * {@link frc.robot.subsystems.SwerveSubsystem#getModules()}, followed by the gyro values.
+ * <p>
+ * Sampling the bus and reading the values are split so that a faster thread, like {@link SwerveOdometry}, can own the
+ * bus. That thread calls {@link #sample()} and reads the newest values with the getSampled methods, and the main loop's
+ * {@link #refresh()} just copies over whatever was sampled last. Without a sampling thread, {@link #refresh()} samples
+ * the bus itself.
+ */
+public class SignalHub {
+    // Times the actual CAN reads, on whichever thread is sampling
+    private static final LoopTimer SAMPLE_TIMER = LoopTiming.timer("SignalHub/sample");
+
+    /** CANcoder absolute position, in rotations from 0 to 1 */
+    public static final int MODULE_STEER_ABSOLUTE = 0;
+    /** Rotate motor position, in module rotations. Fused with the CANcoder and continuous, so not wrapped to 0-1. */
+    public static final int MODULE_STEER_POSITION = 1;
+    /** Rotate motor velocity, in module rotations per second */
+    public static final int MODULE_STEER_VELOCITY = 2;
+    /** Move motor position, in wheel rotations */
+    public static final int MODULE_DRIVE_POSITION = 3;
+    /** Move motor velocity, in wheel rotations per second */
+    public static final int MODULE_DRIVE_VELOCITY = 4;
+    /** Current the move motor draws from the battery, in amps */
+    public static final int MODULE_DRIVE_SUPPLY_CURRENT = 5;
+    /** Current the rotate motor draws from the battery, in amps */
+    public static final int MODULE_STEER_SUPPLY_CURRENT = 6;
+    /** Battery voltage as the move motor sees it, after the wiring and the breaker, in volts */
+    public static final int MODULE_SUPPLY_VOLTAGE = 7;
+    public static final int SIGNALS_PER_MODULE = 8;
+
+    /** Pigeon2 yaw, in degrees counterclockwise positive. This is continuous and not wrapped to 0-360. */
+    public static final int GYRO_YAW = 0;
+    /** Pigeon2 angular velocity about its z axis, in degrees per second counterclockwise positive */
+    public static final int GYRO_YAW_RATE = 1;
+    public static final int GYRO_SIGNALS = 2;
+
+    /**
+     * Where the values actually come from. The real one talks to the Phoenix devices, the fake one lets values be set
+     * directly so the drivetrain can be run without hardware.
+     */
+    public interface Backend {
+        /**
+         * Refresh every registered signal and copy its latest value into values, in the layout described on
+         * {@link SignalHub}.
+         *
+         * @param values Array of {@link #size(int)} values to write into
+         * @return The FPGA timestamp, in seconds, that the values were sampled at
+         */
+        double refresh(double[] values);
+    }
+
+    private final int moduleCount;
+    private final double[] values;
+    private double timestampSeconds;
+
+    // Only touched by whichever thread is sampling
+    private final double[] sampledValues;
+    private double sampledTimestampSeconds;
+
+    // The last sample, handed from the sampling thread to the main loop under the lock
+    private final Object lock = new Object();
+    private final double[] publishedValues;
+    private double publishedTimestampSeconds;
+
+    private final Backend backend;
+    private volatile boolean sampledExternally = false;
+
+    public SignalHub(int moduleCount, Backend backend) {
+        this.moduleCount = moduleCount;
+        this.backend = backend;
+        this.values = new double[size(moduleCount)];
+        this.sampledValues = new double[values.length];
+        this.publishedValues = new double[values.length];
+    }
+
+    /**
+     * @return How many values a hub with this many modules holds
+     */
+    public static int size(int moduleCount) {
+        return moduleCount * SIGNALS_PER_MODULE + GYRO_SIGNALS;
+    }
+
+    public static int moduleIndex(int module, int signal) {
+        return module * SIGNALS_PER_MODULE + signal;
+    }
+
+    public static int gyroIndex(int moduleCount, int signal) {
+        return moduleCount * SIGNALS_PER_MODULE + signal;
+    }
+
+    /**
+     * Mark that another thread is calling {@link #sample()}, so {@link #refresh()} stops touching the bus.
+     */
+    public void setSampledExternally(boolean sampledExternally) {
+        this.sampledExternally = sampledExternally;
+    }
+
+    /**
+     * Refresh every signal from the backend and publish the result for the next {@link #refresh()}. Only one thread
+     * may call this.
+     *
+     * @return The FPGA timestamp, in seconds, of the new sample
+     */
+    public double sample() {
+        long start = SAMPLE_TIMER.start();
+        sampledTimestampSeconds = backend.refresh(sampledValues);
+        SAMPLE_TIMER.stop(start);
+        synchronized (lock) {
+            System.arraycopy(sampledValues, 0, publishedValues, 0, sampledValues.length);
+            publishedTimestampSeconds = sampledTimestampSeconds;
+        }
+        return sampledTimestampSeconds;
+    }
+
+    /**
+     * Refresh every signal at once. Call this once at the start of the loop, before anything reads from the hub.
+     */
+    public void refresh() {
+        if (!sampledExternally) {
+            sample();
+        }
+        synchronized (lock) {
+            System.arraycopy(publishedValues, 0, values, 0, values.length);
+            timestampSeconds = publishedTimestampSeconds;
+        }
+    }
+
+    /**
+     * Same as {@link #getModuleSignal(int, int)}, but from the newest sample. Only valid on the sampling thread.
+     */
+    public double getSampledModuleSignal(int module, int signal) {
+        return sampledValues[moduleIndex(module, signal)];
+    }
+
+    /**
+     * @return The FPGA timestamp of the newest sample. Only valid on the sampling thread.
+     */
+    public double getSampledTimestampSeconds() {
+        return sampledTimestampSeconds;
+    }
+
+    /**
+     * Same as {@link #getGyroSignal(int)}, but from the newest sample. Only valid on the sampling thread.
+     */
+    public double getSampledGyroSignal(int signal) {
+        return sampledValues[gyroIndex(moduleCount, signal)];
+    }
+
+    public double getModuleSignal(int module, int signal) {
+        return values[moduleIndex(module, signal)];
+    }
+
+    public double getGyroSignal(int signal) {
+        return values[gyroIndex(moduleCount, signal)];
+    }
+
+    public double getYawDegrees() {
+        return getGyroSignal(GYRO_YAW);
+    }
+
+    /**
+     * @return The FPGA timestamp, in seconds, that the current values were sampled at
+     */
+    public double getTimestampSeconds() {
+        return timestampSeconds;
+    }
+
+    public int getModuleCount() {
+        return moduleCount;
+    }
+
+    /**
+     * Copy every current value, in the layout described above, for recording. Main thread only, like the getters.
+     *
+     * @param out    Array with room for {@link #size(int)} values from offset
+     * @param offset Where in out to start
+     */
+    public void copyValues(double[] out, int offset) {
+        System.arraycopy(values, 0, out, offset, values.length);
+    }
+}
@@ -0,0 +1,241 @@
+package frc.robot.subsystems.drive;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.wpilibj.simulation.DCMotorSim;
+
+import java.util.List;
+
+/**
+ * A simulated swerve module. The drive and steer motors are {@link DCMotorSim}s, and the TalonFX control loops are
+ * recreated here with the same gains, so the module responds to setpoints roughly like the real one. The simulated
+ * CANcoder is just the steer mechanism's position. The TalonFX supply current limits are recreated too, by lowering
+ * the voltage until the motor draws no more than the limit from the battery.
+ * <p>
+ * {@link SimSwerveDrive} steps the physics, this only stores setpoints and turns them into voltages.
+ */
+public class SimModuleIO implements SwerveModuleIO {
+    // Rough moments of inertia for the wheel with the robot's weight on it and for the steering assembly
+    private static final double DRIVE_MOI = 0.025;
+    private static final double STEER_MOI = 0.004;
+
+    private enum DriveMode {
+        VELOCITY,
+        DUTY_CYCLE,
+        VOLTAGE
+    }
+
+    private static final DCMotor MOTOR = DCMotor.getFalcon500(1);
+
+    final DCMotorSim driveSim = new DCMotorSim(MOTOR, SwerveModule.DRIVE_GEAR_RATIO, DRIVE_MOI);
+    final DCMotorSim steerSim = new DCMotorSim(MOTOR, SwerveModule.STEER_GEAR_RATIO, STEER_MOI);
+
+    private DriveMode driveMode = DriveMode.DUTY_CYCLE;
+    private double driveSetpoint = 0;
+    private double steerSetpoint = 0;
+    private double steerVelocitySetpoint = 0;
+    private boolean steerEnabled = false;
+    private boolean steerOpenLoop = false;
+
+    private double driveKP = SwerveModule.DRIVE_KP;
+    private double driveKS = SwerveModule.DRIVE_KS;
+    private double driveKV = SwerveModule.DRIVE_KV;
+    private double steerKP = SwerveModule.STEER_KP;
+    private double steerKD = SwerveModule.STEER_KD;
+    private double driveSupplyCurrentLimit = Double.POSITIVE_INFINITY;
+    private double steerSupplyCurrentLimit = Double.POSITIVE_INFINITY;
+
+    // From the last physics step
+    private double driveSupplyCurrent = 0;
+    private double steerSupplyCurrent = 0;
+
+    @Override
+    public List<DeviceConfig> getDeviceConfigs() {
+        // Simulated devices start out configured
+        return List.of();
+    }
+
+    @Override
+    public void applyConfig(DrivetrainConfig config, int module) {
+        driveKP = config.getDriveKP();
+        driveKS = config.getDriveKS();
+        driveKV = config.getDriveKV();
+        steerKP = config.getSteerKP();
+        steerKD = config.getSteerKD();
+        driveSupplyCurrentLimit = config.getDriveSupplyCurrentLimitAmps();
+        steerSupplyCurrentLimit = config.getSteerSupplyCurrentLimitAmps();
+    }
+
+    @Override
+    public void setDriveVelocity(double wheelRotationsPerSecond) {
+        driveMode = DriveMode.VELOCITY;
+        driveSetpoint = wheelRotationsPerSecond;
+    }
+
+    @Override
+    public void setSteerPosition(double moduleRotations, double moduleRotationsPerSecond) {
+        steerEnabled = true;
+        steerOpenLoop = false;
+        steerSetpoint = moduleRotations;
+        steerVelocitySetpoint = moduleRotationsPerSecond;
+    }
+
+    @Override
+    public void setDriveDutyCycle(double dutyCycle) {
+        driveMode = DriveMode.DUTY_CYCLE;
+        driveSetpoint = dutyCycle;
+    }
+
+    @Override
+    public void setDriveVoltage(double volts) {
+        driveMode = DriveMode.VOLTAGE;
+        driveSetpoint = volts;
+    }
+
+    @Override
+    public void setSteerVoltage(double volts) {
+        steerEnabled = true;
+        steerOpenLoop = true;
+        steerSetpoint = volts;
+    }
+
+    /**
+     * Use different steering gains than the real module, for trying out tuning in simulation.
+     */
+    public void setSteerGains(double kP, double kD) {
+        steerKP = kP;
+        steerKD = kD;
+    }
+
+    /**
+     * @return How far the wheel speed is from the velocity setpoint, or 0 when not driving by velocity
+     */
+    public double getDriveErrorMetersPerSecond() {
+        if (driveMode != DriveMode.VELOCITY) {
+            return 0;
+        }
+        return SwerveModule.wheelRotationsToMeters(driveSetpoint - getDriveVelocity());
+    }
+
+    /**
+     * @return How far the module angle is from the steering setpoint, or 0 when there is no position setpoint
+     */
+    public double getSteerErrorDegrees() {
+        if (!steerEnabled || steerOpenLoop) {
+            return 0;
+        }
+        return (steerSetpoint - getSteerPosition()) * 360;
+    }
+
+    /**
+     * Run the simulated motor controller loops and advance the physics.
+     *
+     * @param batteryVoltage The voltage the motors can use
+     */
+    void update(double dtSeconds, double batteryVoltage) {
+        double driveVoltage;
+        if (driveMode == DriveMode.VELOCITY) {
+            driveVoltage = driveKS * Math.signum(driveSetpoint) + driveKV * driveSetpoint
+                    + driveKP * (driveSetpoint - getDriveVelocity());
+        } else if (driveMode == DriveMode.VOLTAGE) {
+            driveVoltage = driveSetpoint;
+        } else {
+            driveVoltage = driveSetpoint * batteryVoltage;
+        }
+
+        double steerVoltage = 0;
+        if (steerOpenLoop) {
+            steerVoltage = steerSetpoint;
+        } else if (steerEnabled) {
+            // Like the TalonFX, the derivative term works on the velocity error, not just the measured velocity
+            steerVoltage = steerKP * (steerSetpoint - getSteerPosition())
+                    + steerKD * (steerVelocitySetpoint - getSteerVelocity());
+        }
+
+        double driveSpeed = driveSim.getAngularVelocityRadPerSec() * SwerveModule.DRIVE_GEAR_RATIO;
+        double steerSpeed = steerSim.getAngularVelocityRadPerSec() * SwerveModule.STEER_GEAR_RATIO;
+        driveVoltage = limitSupplyCurrent(
+                MathUtil.clamp(driveVoltage, -batteryVoltage, batteryVoltage), driveSpeed, driveSupplyCurrentLimit,
+                batteryVoltage);
+        steerVoltage = limitSupplyCurrent(
+                MathUtil.clamp(steerVoltage, -batteryVoltage, batteryVoltage), steerSpeed, steerSupplyCurrentLimit,
+                batteryVoltage);
+        driveSupplyCurrent = supplyCurrent(driveVoltage, driveSpeed, batteryVoltage);
+        steerSupplyCurrent = supplyCurrent(steerVoltage, steerSpeed, batteryVoltage);
+
+        driveSim.setInputVoltage(driveVoltage);
+        steerSim.setInputVoltage(steerVoltage);
+        driveSim.update(dtSeconds);
+        steerSim.update(dtSeconds);
+    }
+
+    /**
+     * @return Wheel rotations
+     */
+    double getDrivePosition() {
+        return driveSim.getAngularPositionRad() / (2 * Math.PI);
+    }
+
+    /**
+     * @return Wheel rotations per second
+     */
+    double getDriveVelocity() {
+        return driveSim.getAngularVelocityRadPerSec() / (2 * Math.PI);
+    }
+
+    /**
+     * @return Module rotations, continuous like the fused TalonFX position
+     */
+    double getSteerPosition() {
+        return steerSim.getAngularPositionRad() / (2 * Math.PI);
+    }
+
+    /**
+     * @return Module rotations per second
+     */
+    double getSteerVelocity() {
+        return steerSim.getAngularVelocityRadPerSec() / (2 * Math.PI);
+    }
+
+    /**
+     * @return Amps the drive motor drew from the battery in the last step, negative when it was braking
+     */
+    double getDriveSupplyCurrent() {
+        return driveSupplyCurrent;
+    }
+
+    /**
+     * @return Amps the steer motor drew from the battery in the last step
+     */
+    double getSteerSupplyCurrent() {
+        return steerSupplyCurrent;
+    }
+
+    /**
+     * The motor controller only passes on the fraction of the battery voltage it's applying, so the current it pulls
+     * from the battery is the motor's current times that fraction.
+     *
+     * @param motorRadiansPerSecond How fast the motor itself is spinning, before the gearing
+     */
+    private static double supplyCurrent(double volts, double motorRadiansPerSecond, double batteryVoltage) {
+        if (batteryVoltage <= 0) {
+            return 0;
+        }
+        return MOTOR.getCurrent(motorRadiansPerSecond, volts) * volts / batteryVoltage;
+    }
+
+    /**
+     * @return The voltage closest to volts that keeps the supply current under the limit
+     */
+    private static double limitSupplyCurrent(
+            double volts, double motorRadiansPerSecond, double limitAmps, double batteryVoltage) {
+        if (supplyCurrent(volts, motorRadiansPerSecond, batteryVoltage) <= limitAmps) {
+            return volts;
+        }
+        // Supply current is V (V - back EMF) / (R Vbattery), so solve V² - back EMF V - R limit Vbattery = 0 for the
+        // root on the same side as the requested voltage
+        double backEmf = motorRadiansPerSecond / MOTOR.KvRadPerSecPerVolt;
+        double root = Math.sqrt(backEmf * backEmf + 4 * MOTOR.rOhms * limitAmps * batteryVoltage);
+        return (backEmf + Math.copySign(root, volts)) / 2;
+    }
+}
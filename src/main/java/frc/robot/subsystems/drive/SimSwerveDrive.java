@@ -0,0 +1,165 @@
+package frc.robot.subsystems.drive;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * Physics for the whole drivetrain in simulation. It steps every {@link SimModuleIO}, integrates the gyro yaw and the
+ * robot's true position from how the modules actually move, and serves as the {@link SignalHub.Backend} so the rest of the code reads simulated
+ * sensors exactly like it reads real ones.
+ * <p>
+ * The battery is a resting voltage behind a resistance, so it sags with the current the motors draw, plus however much
+ * the rest of the robot is set to draw. The voltage from one step powers the next.
+ * <p>
+ * The odometry thread samples from its own thread while the main loop steps the physics, so both are synchronized.
+ */
+public class SimSwerveDrive implements SignalHub.Backend {
+    // The real loops run at 1 kHz on the TalonFXs, so step the physics at the same rate
+    private static final double PHYSICS_STEP_SECONDS = 0.001;
+    private static final double NOMINAL_BATTERY_VOLTAGE = 12.5;
+    private static final double DEFAULT_BATTERY_RESISTANCE_OHMS = 0.02;
+
+    private final SimModuleIO[] modules;
+    private final SwerveDriveKinematics kinematics;
+    private final SwerveModuleState[] moduleStates;
+    private double yawDegrees = 0;
+    private double yawRateDegreesPerSecond = 0;
+    private double fieldX = 0;
+    private double fieldY = 0;
+    private double batteryResistanceOhms = DEFAULT_BATTERY_RESISTANCE_OHMS;
+    private double otherCurrentDrawAmps = 0;
+    private double batteryVoltage = NOMINAL_BATTERY_VOLTAGE;
+    private double minBatteryVoltage = NOMINAL_BATTERY_VOLTAGE;
+
+    /**
+     * @param modules   The simulated modules, in the same order as the subsystem's modules
+     * @param positions Where each module is on the robot
+     */
+    public SimSwerveDrive(SimModuleIO[] modules, Translation2d... positions) {
+        this.modules = modules;
+        this.kinematics = new SwerveDriveKinematics(positions);
+        this.moduleStates = new SwerveModuleState[modules.length];
+        for (int i = 0; i < modules.length; i++) {
+            moduleStates[i] = new SwerveModuleState();
+        }
+    }
+
+    /**
+     * Advance the simulation.
+     */
+    public synchronized void update(double dtSeconds) {
+        double remaining = dtSeconds;
+        while (remaining > 1e-9) {
+            double step = Math.min(PHYSICS_STEP_SECONDS, remaining);
+            double current = otherCurrentDrawAmps;
+            for (SimModuleIO module : modules) {
+                module.update(step, batteryVoltage);
+                current += module.getDriveSupplyCurrent() + module.getSteerSupplyCurrent();
+            }
+            batteryVoltage = Math.max(0, NOMINAL_BATTERY_VOLTAGE - batteryResistanceOhms * current);
+            minBatteryVoltage = Math.min(minBatteryVoltage, batteryVoltage);
+            integrate(step);
+            remaining -= step;
+        }
+    }
+
+    /**
+     * @param ohms The battery's internal resistance plus the wiring. A fresh battery is around 0.015, a tired one
+     *             0.03 or more.
+     */
+    public synchronized void setBatteryResistance(double ohms) {
+        batteryResistanceOhms = ohms;
+    }
+
+    /**
+     * Simulate the rest of the robot, like an intake or a shooter, drawing current from the same battery.
+     */
+    public synchronized void setOtherCurrentDraw(double amps) {
+        otherCurrentDrawAmps = amps;
+    }
+
+    /**
+     * @return The voltage available to the motors, after the last step's sag
+     */
+    public synchronized double getBatteryVoltage() {
+        return batteryVoltage;
+    }
+
+    /**
+     * @return The lowest the battery has sagged to since the simulation started
+     */
+    public synchronized double getMinBatteryVoltage() {
+        return minBatteryVoltage;
+    }
+
+    /**
+     * @return How much current every simulated motor is drawing from the battery together
+     */
+    public synchronized double getTotalCurrentDrawAmps() {
+        double total = 0;
+        for (SimModuleIO module : modules) {
+            total += module.getDriveSupplyCurrent() + module.getSteerSupplyCurrent();
+        }
+        return total;
+    }
+
+    public SimModuleIO getModule(int index) {
+        return modules[index];
+    }
+
+    public int getModuleCount() {
+        return modules.length;
+    }
+
+    public synchronized double getYawDegrees() {
+        return yawDegrees;
+    }
+
+    /**
+     * @return Where the robot really is, from the physics rather than from odometry, starting at the origin facing +x
+     */
+    public synchronized Pose2d getTruePose() {
+        return new Pose2d(fieldX, fieldY, Rotation2d.fromDegrees(yawDegrees));
+    }
+
+    private void integrate(double dtSeconds) {
+        for (int i = 0; i < modules.length; i++) {
+            moduleStates[i].speedMetersPerSecond = SwerveModule.wheelRotationsToMeters(modules[i].getDriveVelocity());
+            moduleStates[i].angle = Rotation2d.fromRotations(modules[i].getSteerPosition());
+        }
+        ChassisSpeeds speeds = kinematics.toChassisSpeeds(moduleStates);
+
+        // The physics step is short enough that integrating at the heading from the middle of the step is plenty
+        double midYaw = Math.toRadians(yawDegrees) + speeds.omegaRadiansPerSecond * dtSeconds / 2;
+        double cos = Math.cos(midYaw);
+        double sin = Math.sin(midYaw);
+        fieldX += (speeds.vxMetersPerSecond * cos - speeds.vyMetersPerSecond * sin) * dtSeconds;
+        fieldY += (speeds.vxMetersPerSecond * sin + speeds.vyMetersPerSecond * cos) * dtSeconds;
+        yawRateDegreesPerSecond = Math.toDegrees(speeds.omegaRadiansPerSecond);
+        yawDegrees += yawRateDegreesPerSecond * dtSeconds;
+    }
+
+    @Override
+    public synchronized double refresh(double[] values) {
+        for (int i = 0; i < modules.length; i++) {
+            SimModuleIO module = modules[i];
+            values[SignalHub.moduleIndex(i, SignalHub.MODULE_STEER_ABSOLUTE)] = MathUtil.inputModulus(module.getSteerPosition(), 0, 1);
+            values[SignalHub.moduleIndex(i, SignalHub.MODULE_STEER_POSITION)] = module.getSteerPosition();
+            values[SignalHub.moduleIndex(i, SignalHub.MODULE_STEER_VELOCITY)] = module.getSteerVelocity();
+            values[SignalHub.moduleIndex(i, SignalHub.MODULE_DRIVE_POSITION)] = module.getDrivePosition();
+            values[SignalHub.moduleIndex(i, SignalHub.MODULE_DRIVE_VELOCITY)] = module.getDriveVelocity();
+            values[SignalHub.moduleIndex(i, SignalHub.MODULE_DRIVE_SUPPLY_CURRENT)] = module.getDriveSupplyCurrent();
+            values[SignalHub.moduleIndex(i, SignalHub.MODULE_STEER_SUPPLY_CURRENT)] = module.getSteerSupplyCurrent();
+            values[SignalHub.moduleIndex(i, SignalHub.MODULE_SUPPLY_VOLTAGE)] = batteryVoltage;
+        }
+        values[SignalHub.gyroIndex(modules.length, SignalHub.GYRO_YAW)] = yawDegrees;
+        values[SignalHub.gyroIndex(modules.length, SignalHub.GYRO_YAW_RATE)] = yawRateDegreesPerSecond;
+        return Timer.getFPGATimestamp();
+    }
+}
@@ -2,6 +2,10 @@ package frc.robot.subsystems.drive;
 
 import edu.wpi.first.math.geometry.Translation2d;
 
+/**
+ * The built in module configuration, used by {@link DrivetrainConfig#defaults()} when there's no drivetrain.json. Keep
+ * it in sync with the deploy file.
+ */
 public enum SwerveConfiguration {
     FRONT_LEFT(
             "FL",
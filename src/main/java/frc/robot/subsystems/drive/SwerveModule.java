@@ -1,74 +1,211 @@
 package frc.robot.subsystems.drive;
 
-import com.ctre.phoenixpro.configs.MagnetSensorConfigs;
-import com.ctre.phoenixpro.hardware.CANcoder;
-import com.ctre.phoenixpro.hardware.TalonFX;
-import com.ctre.phoenixpro.signals.AbsoluteSensorRangeValue;
 import edu.wpi.first.math.MathUtil;
-import edu.wpi.first.math.controller.PIDController;
-import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.robot.telemetry.Telemetry;
+import frc.robot.telemetry.TelemetryChannel;
+
+import java.util.List;
 
 public class SwerveModule {
-    public final SwerveConfiguration config;
-    public final TalonFX rotateMotor;
-    public final TalonFX moveMotor;
-    public final CANcoder rotationEncoder;
-    public final PIDController pidController;
+    // SDS MK4 with L4 gearing, the example from Step6TuningSpeed. Update these if the modules are geared differently.
+    public static final double DRIVE_GEAR_RATIO = 5.14;
+    public static final double STEER_GEAR_RATIO = 12.8;
+    public static final double WHEEL_CIRCUMFERENCE_METERS = Math.PI * 0.1016;  // 4 inch wheels
+
+    private static final double FALCON_FREE_SPEED_ROTATIONS_PER_SECOND = 6380.0 / 60;
+
+    // Both loops run on the TalonFX. These gains are the built in defaults, the ones in drivetrain.json are what's
+    // actually used. Drive gains are volts per wheel rotation per second. Start with kV at the free speed of the wheel
+    // and tune kP from there, or measure kS and kV with SysIdCommand.
+    public static final double DRIVE_KP = 0.1;
+    public static final double DRIVE_KS = 0;
+    public static final double DRIVE_KV = 12 / (FALCON_FREE_SPEED_ROTATIONS_PER_SECOND / DRIVE_GEAR_RATIO);
+
+    // Steer gains are volts per module rotation. These are the old roboRIO PID gains (0.0095 and 0.00015 output per
+    // degree) converted to volts per rotation.
+    public static final double STEER_KP = 0.0095 * 360 * 12;
+    public static final double STEER_KD = 0.00015 * 360 * 12;
+
+    public final String name;
+    public final SwerveModuleIO io;
+    private final SignalHub signals;
+    private final int index;
+
+    private final TelemetryChannel angleChannel;
+    private final TelemetryChannel speedChannel;
+    private final TelemetryChannel angleSetpointChannel;
+    private final TelemetryChannel speedSetpointChannel;
+
+    private double angleSetpointDegrees = 0;
+    private double speedSetpointMetersPerSecond = 0;
 
-    public SwerveModule(SwerveConfiguration config) {
-        this.config = config;
-        this.rotateMotor = new TalonFX(config.rotateCanId);
-        this.moveMotor = new TalonFX(config.moveCanId);
-        this.rotationEncoder = new CANcoder(config.canCoderId);
+    /**
+     * @param name    Used for telemetry, like "FL"
+     * @param io      The devices this module drives
+     * @param signals Where this module reads its sensor values from
+     * @param index   This module's position in the subsystem's module array, used to find its values in the hub
+     */
+    public SwerveModule(String name, SwerveModuleIO io, SignalHub signals, int index) {
+        this.name = name;
+        this.io = io;
+        this.signals = signals;
+        this.index = index;
+
+        angleChannel = Telemetry.channel(name + "/angle");
+        speedChannel = Telemetry.channel(name + "/speed");
+        angleSetpointChannel = Telemetry.channel(name + "/angle setpoint");
+        speedSetpointChannel = Telemetry.channel(name + "/speed setpoint");
+    }
 
-        this.pidController = new PIDController(0.0095, 0, 0.00015);
-//
-        pidController.setTolerance(0.2);
-        pidController.enableContinuousInput(0, 360);
+    /**
+     * @return Everything that needs to be configured before the module is ready to move
+     */
+    public List<DeviceConfig> getDeviceConfigs() {
+        return io.getDeviceConfigs();
     }
 
     /**
-     * Init this module, clearing any sticky faults or performing any other setup that needs to be done before the
-     * module is ready to move. This should NEVER actually send power to a motor.
+     * @param wheelRotations Rotations of the wheel, as reported by the move motor
+     * @return How far the wheel travels for that many rotations, in meters
      */
-    public void init() {
-        this.rotationEncoder.clearStickyFaults();
-        MagnetSensorConfigs magnetSensorConfigs = new MagnetSensorConfigs();
-        this.rotationEncoder.getConfigurator()
-                .refresh(magnetSensorConfigs);
-        magnetSensorConfigs.MagnetOffset = config.magneticOffset;
-        magnetSensorConfigs.AbsoluteSensorRange = AbsoluteSensorRangeValue.Unsigned_0To1;
+    public static double wheelRotationsToMeters(double wheelRotations) {
+        return wheelRotations * WHEEL_CIRCUMFERENCE_METERS;
+    }
 
-        this.rotationEncoder.getConfigurator().apply(magnetSensorConfigs);
+    /**
+     * @return The CANcoder's absolute position from the last {@link SignalHub#refresh()}, in rotations from 0 to 1
+     */
+    public double getAbsolutePosition() {
+        return signals.getModuleSignal(index, SignalHub.MODULE_STEER_ABSOLUTE);
+    }
 
-        this.rotateMotor.clearStickyFaults();
-        this.rotateMotor.setInverted(true);
-        this.moveMotor.clearStickyFaults();
-        this.moveMotor.setInverted(false);
+    /**
+     * @return The module's angle from the last refresh, in rotations, continuous rather than wrapped to 0 to 1
+     */
+    public double getSteerPositionRotations() {
+        return signals.getModuleSignal(index, SignalHub.MODULE_STEER_POSITION);
+    }
 
-        pidController.reset();
+    /**
+     * @return The wheel's speed from the last refresh
+     */
+    public double getDriveVelocityMetersPerSecond() {
+        return wheelRotationsToMeters(signals.getModuleSignal(index, SignalHub.MODULE_DRIVE_VELOCITY));
     }
 
     public void apply(SwerveModuleState state) {
-        double absPosition = this.rotationEncoder.getAbsolutePosition().getValue();
-        double actualAngle = absPosition * 360;
+        apply(state.speedMetersPerSecond, state.angle.getDegrees());
+    }
+
+    /**
+     * Drive this module at the given speed and angle. This does the same thing as
+     * {@link SwerveModuleState#optimize(SwerveModuleState, edu.wpi.first.math.geometry.Rotation2d)} but on primitives,
+     * so it doesn't allocate anything in the control loop.
+     * <p>
+     * Both the speed and the angle are closed loop on the motor controllers, so this only sends the setpoints.
+     *
+     * @param speedMetersPerSecond The speed to drive the wheel at
+     * @param angleDegrees         The direction to point the wheel, counterclockwise positive from the robot's front
+     */
+    public void apply(double speedMetersPerSecond, double angleDegrees) {
+        apply(speedMetersPerSecond, angleDegrees, 0);
+    }
+
+    /**
+     * The same as {@link #apply(double, double)}, for a module whose angle setpoint is moving.
+     *
+     * @param steerDegreesPerSecond How fast the angle setpoint is turning, counterclockwise positive
+     */
+    public void apply(double speedMetersPerSecond, double angleDegrees, double steerDegreesPerSecond) {
+        send(speedMetersPerSecond, angleDegrees, steerDegreesPerSecond);
+        logSetpoint();
+    }
 
-        state = SwerveModuleState.optimize(state, Rotation2d.fromDegrees(actualAngle));
+    /**
+     * The same as {@link #apply(double, double, double)}, but without logging, since telemetry can only be logged from
+     * the main thread.
+     */
+    public void send(double speedMetersPerSecond, double angleDegrees, double steerDegreesPerSecond) {
+        send(speedMetersPerSecond, angleDegrees, steerDegreesPerSecond, getSteerPositionRotations());
+    }
+
+    /**
+     * The same as {@link #send(double, double, double)}, with the module's angle read beforehand. This is for applying
+     * modules in parallel: the hub's values are main thread only, so the main thread reads the angle with
+     * {@link #getSteerPositionRotations()} and hands it over with the setpoint. Call {@link #logSetpoint()} from the
+     * main thread once the send has finished.
+     *
+     * @param actualRotations The module's angle from this loop's refresh, continuous
+     */
+    public void send(
+            double speedMetersPerSecond,
+            double angleDegrees,
+            double steerDegreesPerSecond,
+            double actualRotations
+    ) {
+        // The fused position is continuous, so aim for the closest equivalent angle instead of wrapping around
+
+        // If we'd have to rotate more than 90 degrees, rotate the other way and drive backwards instead
+        double delta = MathUtil.inputModulus(angleDegrees - actualRotations * 360, -180, 180);
+        if (Math.abs(delta) > 90) {
+            delta -= Math.copySign(180, delta);
+            speedMetersPerSecond = -speedMetersPerSecond;
+        }
+
+        io.setDriveVelocity(speedMetersPerSecond / WHEEL_CIRCUMFERENCE_METERS);
+        io.setSteerPosition(actualRotations + delta / 360, steerDegreesPerSecond / 360);
 
-        double desiredAngle = state.angle.getDegrees();
+        angleSetpointDegrees = actualRotations * 360 + delta;
+        speedSetpointMetersPerSecond = speedMetersPerSecond;
+    }
 
-        double movePower = MathUtil.clamp(state.speedMetersPerSecond, -1, 1);
-        this.moveMotor.set(movePower);  // TODO Convert this to actual speed
+    /**
+     * Log the last setpoint sent to the module. Only call this once the send has finished, it reads what the send
+     * wrote.
+     */
+    public void logSetpoint() {
+        angleSetpointChannel.log(angleSetpointDegrees);
+        speedSetpointChannel.log(speedSetpointMetersPerSecond);
+    }
 
+    /**
+     * Log the measured angle, in degrees, and speed, in meters per second, from the last refresh.
+     */
+    public void logTelemetry() {
+        angleChannel.log(getAbsolutePosition() * 360);
+        speedChannel.log(getDriveVelocityMetersPerSecond());
+    }
 
-        double rotationPower = pidController.calculate(actualAngle, desiredAngle);
+    /**
+     * Spin the wheel open loop without steering. Only the setup steps should need this.
+     *
+     * @param dutyCycle Output from -1 to 1
+     */
+    public void setDriveDutyCycle(double dutyCycle) {
+        io.setDriveDutyCycle(dutyCycle);
+    }
 
-        rotationPower = MathUtil.clamp(rotationPower, -1, 1);
+    /**
+     * Spin the wheel open loop at a fixed voltage, while steering to the given angle. Unlike {@link #apply(double,
+     * double)} the module never flips around and drives backwards, so every module pushes the same way. Only system
+     * identification should need this.
+     *
+     * @param angleDegrees The direction to point the wheel, counterclockwise positive from the robot's front
+     */
+    public void setDriveVoltage(double volts, double angleDegrees) {
+        double actualRotations = signals.getModuleSignal(index, SignalHub.MODULE_STEER_POSITION);
+        double delta = MathUtil.inputModulus(angleDegrees - actualRotations * 360, -180, 180);
+        io.setSteerPosition(actualRotations + delta / 360, 0);
+        io.setDriveVoltage(volts);
+    }
 
-        if (!pidController.atSetpoint()) {
-            this.rotateMotor.set(rotationPower);
-        }
+    /**
+     * Turn the steering open loop at a fixed voltage, with the drive motor stopped. Only system identification should
+     * need this.
+     */
+    public void setSteerVoltage(double volts) {
+        io.setDriveVoltage(0);
+        io.setSteerVoltage(volts);
     }
 }
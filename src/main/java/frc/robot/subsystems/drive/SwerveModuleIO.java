@@ -0,0 +1,58 @@
+package frc.robot.subsystems.drive;
+
+import java.util.List;
+
+/**
+ * The outputs of a swerve module's hardware. Sensor values don't go through here, they're read by the
+ * {@link SignalHub}. Keeping the devices behind this means the module logic can run against something other than real
+ * motors, like a mock in the benchmarks.
+ */
+public interface SwerveModuleIO {
+    /**
+     * @return The configuration for every device in the module, for the {@link DeviceConfigurator} to send
+     */
+    List<DeviceConfig> getDeviceConfigs();
+
+    /**
+     * Take the offsets and gains from a reloaded config. Real devices only get them the next time they're configured.
+     *
+     * @param module Which module in the config this is
+     */
+    void applyConfig(DrivetrainConfig config, int module);
+
+    /**
+     * Closed loop drive speed.
+     *
+     * @param wheelRotationsPerSecond How fast to spin the wheel
+     */
+    void setDriveVelocity(double wheelRotationsPerSecond);
+
+    /**
+     * Closed loop steering position.
+     *
+     * @param moduleRotations          Where to point the module, on the same continuous scale as
+     *                                 {@link SignalHub#MODULE_STEER_POSITION}
+     * @param moduleRotationsPerSecond How fast the setpoint is moving, so the loop's derivative term helps the module
+     *                                 keep up instead of holding it back
+     */
+    void setSteerPosition(double moduleRotations, double moduleRotationsPerSecond);
+
+    /**
+     * Open loop drive output, used by the setup steps that need to spin a wheel without any control loop.
+     *
+     * @param dutyCycle Output from -1 to 1
+     */
+    void setDriveDutyCycle(double dutyCycle);
+
+    /**
+     * Open loop drive voltage, for system identification. The motor controller compensates for the battery, so the
+     * motor sees this voltage until the battery can't supply it.
+     */
+    void setDriveVoltage(double volts);
+
+    /**
+     * Open loop steering voltage, for system identification. This stops the steering loop until the next
+     * {@link #setSteerPosition(double, double)}.
+     */
+    void setSteerVoltage(double volts);
+}
@@ -0,0 +1,162 @@
+package frc.robot.subsystems.drive;
+
+import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.wpilibj.Notifier;
+import frc.robot.ThreadScheduling;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tracks where the robot is on the field.
+ * <p>
+ * Integrating module movement only once every 20 ms loop is too coarse for fast autos, so this can run on its own
+ * {@link Notifier} thread at {@link #FREQUENCY_HZ}. That thread owns the CAN bus through {@link SignalHub#sample()} and
+ * is the only thing that ever touches the pose estimator. After every update it publishes an immutable
+ * {@link Snapshot}, so commands read the latest pose with a single volatile read and never wait on the odometry thread.
+ * <p>
+ * Without the thread, {@link #update()} can be called from the main loop after {@link SignalHub#refresh()} instead.
+ * <p>
+ * Every pose is also kept in a {@link PoseHistory}, so camera poses from {@link #getVisionIngest()} can be checked
+ * against where odometry had the robot when their frame was captured, and fused into the estimate at that time.
+ */
+public class SwerveOdometry {
+    public static final double FREQUENCY_HZ = 250;
+    // Cameras are at most about 100 ms behind, and the estimator keeps 1.5 s of its own history, so match that
+    private static final double HISTORY_SECONDS = 1.5;
+
+    /**
+     * A pose and the FPGA timestamp of the sensor values it was calculated from. Never modified once published.
+     */
+    public static final class Snapshot {
+        public final Pose2d pose;
+        public final double timestampSeconds;
+
+        Snapshot(Pose2d pose, double timestampSeconds) {
+            this.pose = pose;
+            this.timestampSeconds = timestampSeconds;
+        }
+    }
+
+    /**
+     * Something that needs every sample, not just the one per loop the main thread sees. It's called on whichever
+     * thread is sampling, right after the pose is updated, so it must not block.
+     */
+    public interface SampleListener {
+        void onSample(SignalHub signals);
+    }
+
+    private final SignalHub signals;
+    private final SwerveModulePosition[] positions;
+    private final SwerveDrivePoseEstimator poseEstimator;
+    private final Notifier notifier;
+    private final PoseHistory history = new PoseHistory((int) (HISTORY_SECONDS * FREQUENCY_HZ));
+    private final VisionIngest vision = new VisionIngest();
+
+    private volatile Snapshot latest;
+    private final AtomicReference<Pose2d> pendingReset = new AtomicReference<>();
+    private volatile SampleListener sampleListener;
+    private boolean threadConfigured = false;  // Only touched by the odometry thread
+
+    public SwerveOdometry(SignalHub signals, SwerveDriveKinematics kinematics) {
+        this.signals = signals;
+
+        positions = new SwerveModulePosition[signals.getModuleCount()];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = new SwerveModulePosition();
+        }
+        poseEstimator = new SwerveDrivePoseEstimator(kinematics, new Rotation2d(), positions, new Pose2d());
+        latest = new Snapshot(new Pose2d(), 0);
+
+        notifier = new Notifier(() -> {
+            if (!threadConfigured) {
+                ThreadScheduling.configureCurrentThread(ThreadScheduling.Role.ODOMETRY);
+                threadConfigured = true;
+            }
+            signals.sample();
+            update();
+        });
+        notifier.setName("Odometry");
+    }
+
+    /**
+     * Start sampling and integrating on the odometry thread. After this, don't call {@link #update()} yourself.
+     */
+    public void start() {
+        signals.setSampledExternally(true);
+        notifier.startPeriodic(1 / FREQUENCY_HZ);
+    }
+
+    public void stop() {
+        notifier.stop();
+        signals.setSampledExternally(false);
+    }
+
+    /**
+     * Integrate the newest sample from the signal hub into the pose estimate. Must only ever be called from one thread,
+     * the one sampling the hub.
+     */
+    public void update() {
+        for (int i = 0; i < positions.length; i++) {
+            positions[i].distanceMeters = SwerveModule.wheelRotationsToMeters(
+                    signals.getSampledModuleSignal(i, SignalHub.MODULE_DRIVE_POSITION));
+            positions[i].angle = Rotation2d.fromRotations(
+                    signals.getSampledModuleSignal(i, SignalHub.MODULE_STEER_ABSOLUTE));
+        }
+        Rotation2d yaw = Rotation2d.fromDegrees(signals.getSampledGyroSignal(SignalHub.GYRO_YAW));
+        double timestamp = signals.getSampledTimestampSeconds();
+
+        // Taken in one step, so a reset landing while this one is applied is kept for the next update
+        Pose2d reset = pendingReset.getAndSet(null);
+        if (reset != null) {
+            poseEstimator.resetPosition(yaw, positions, reset);
+            // Nothing from before the reset is comparable to poses after it
+            history.clear();
+            vision.reset();
+        }
+
+        Pose2d pose = poseEstimator.updateWithTime(timestamp, yaw, positions);
+        history.add(timestamp, pose.getX(), pose.getY(), pose.getRotation().getRadians());
+        if (vision.apply(history, poseEstimator)) {
+            pose = poseEstimator.getEstimatedPosition();
+        }
+        latest = new Snapshot(pose, timestamp);
+
+        SampleListener listener = sampleListener;
+        if (listener != null) {
+            listener.onSample(signals);
+        }
+    }
+
+    /**
+     * @param listener Called with every sample from now on, or null to stop
+     */
+    public void setSampleListener(SampleListener listener) {
+        sampleListener = listener;
+    }
+
+    /**
+     * @return Where cameras hand over their robot poses
+     */
+    public VisionIngest getVisionIngest() {
+        return vision;
+    }
+
+    /**
+     * Move the pose estimate to the given pose. This is applied by the odometry thread on its next update.
+     */
+    public void resetPose(Pose2d pose) {
+        pendingReset.set(pose);
+    }
+
+    public Snapshot getLatest() {
+        return latest;
+    }
+
+    public Pose2d getPose() {
+        return latest.pose;
+    }
+}
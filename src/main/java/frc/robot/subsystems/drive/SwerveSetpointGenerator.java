@@ -0,0 +1,234 @@
+package frc.robot.subsystems.drive;
+
+import edu.wpi.first.math.MathUtil;
+
+/**
+ * Turns the chassis speeds a command asks for into module setpoints the drivetrain can actually follow. Every loop it:
+ * <ol>
+ *     <li>Scales the whole request down if any wheel would have to go faster than the config allows, and by the
+ *     {@link PowerBudget}'s scale when the battery is sagging. Scaling every wheel by the same amount keeps the robot
+ *     moving in the direction that was asked for, where clamping each wheel on its own would bend the path.</li>
+ *     <li>Limits how much the translation and rotation speeds change from the last loop, so a step on the joystick
+ *     doesn't spike the current or tip the robot. The power scale shrinks these limits too, since accelerating is
+ *     what draws the most current.</li>
+ *     <li>Discretizes the speeds over the loop period. The modules hold each setpoint for a whole loop while the robot
+ *     turns underneath them, so driving the requested speeds straight would curve the path toward the direction of
+ *     rotation. Instead this finds the constant speeds whose arc over one loop ends at the same place as translating
+ *     and rotating at the requested speeds would.</li>
+ *     <li>Does the inverse kinematics, the same math as
+ *     {@link edu.wpi.first.math.kinematics.SwerveDriveKinematics#toSwerveModuleStates}, and scales down again in case
+ *     limiting translation and rotation separately pushed a wheel over.</li>
+ *     <li>Limits how far each module's angle moves in one loop, and slows each wheel by the cosine of how far it still
+ *     has to turn, so a wheel that's still steering doesn't push the robot sideways.</li>
+ *     <li>Works out how fast each module's angle is turning from how the chassis speeds are changing, the second order
+ *     term of the kinematics, so the steering loop can keep up with the setpoint instead of trailing it.</li>
+ * </ol>
+ * The limits are turned into per loop steps once, when the config changes, and everything here works on preallocated
+ * primitive arrays, so nothing is allocated in the control loop.
+ */
+public class SwerveSetpointGenerator {
+    private double periodSeconds;
+    private boolean secondOrder = true;
+    private final double[] moduleX;
+    private final double[] moduleY;
+
+    // Per loop limits, from the config
+    private double maxModuleSpeed;
+    private double maxSpeedStep;
+    private double maxOmegaStep;
+    private double maxSteerStepDegrees;
+    private double powerScale = 1;
+
+    // What was sent last loop
+    private double lastVx = 0;
+    private double lastVy = 0;
+    private double lastOmega = 0;
+    private final double[] lastAngles;  // Degrees
+
+    /**
+     * @param moduleX       Module positions, forward from the robot's center, in the same order as the modules
+     * @param moduleY       Module positions, left from the robot's center
+     * @param periodSeconds How often {@link #calculate} is called
+     */
+    public SwerveSetpointGenerator(double[] moduleX, double[] moduleY, double periodSeconds) {
+        this.moduleX = moduleX;
+        this.moduleY = moduleY;
+        this.periodSeconds = periodSeconds;
+        this.lastAngles = new double[moduleX.length];
+    }
+
+    /**
+     * Change how often {@link #calculate} is called. Call {@link #setLimits} afterwards, the per loop limits depend on
+     * it.
+     */
+    public void setPeriod(double periodSeconds) {
+        this.periodSeconds = periodSeconds;
+    }
+
+    /**
+     * Turn the discretization and steering rate off, to go back to first order kinematics. Only for comparing the two,
+     * like in {@code DriftBenchmark}.
+     */
+    public void setSecondOrder(boolean secondOrder) {
+        this.secondOrder = secondOrder;
+    }
+
+    /**
+     * Take the limits from a new config. Call this outside the control loop, like when the config reloads.
+     */
+    public void setLimits(DrivetrainConfig config) {
+        maxModuleSpeed = config.getMaxModuleSpeedMetersPerSecond();
+        maxSpeedStep = config.getMaxAccelerationMetersPerSecondSquared() * periodSeconds;
+        maxOmegaStep = config.getMaxAngularAccelerationRadiansPerSecondSquared() * periodSeconds;
+        maxSteerStepDegrees = config.getMaxSteerRateRotationsPerSecond() * 360 * periodSeconds;
+    }
+
+    /**
+     * Scale the requested speeds and the acceleration limits down, for when the battery can't supply everything.
+     *
+     * @param powerScale From 0 to 1, where 1 leaves everything as the config has it
+     */
+    public void setPowerScale(double powerScale) {
+        this.powerScale = powerScale;
+    }
+
+    /**
+     * Start over from a standstill, with the modules where they actually are. Call this when something else has been
+     * driving the modules directly, so the limits don't ramp from a setpoint that's no longer true.
+     *
+     * @param moduleAnglesDegrees Where each module is pointing now
+     */
+    public void reset(double[] moduleAnglesDegrees) {
+        lastVx = 0;
+        lastVy = 0;
+        lastOmega = 0;
+        System.arraycopy(moduleAnglesDegrees, 0, lastAngles, 0, lastAngles.length);
+    }
+
+    /**
+     * Work out this loop's module setpoints.
+     *
+     * @param vxMetersPerSecond     Requested forward speed
+     * @param vyMetersPerSecond     Requested left speed
+     * @param omegaRadiansPerSecond Requested counterclockwise rotation speed
+     * @param moduleSpeeds          Filled in with each module's speed, which can be negative if the module was left
+     *                              facing backwards instead of turning all the way around
+     * @param moduleAngles          Filled in with each module's angle, in degrees
+     * @param moduleSteerRates      Filled in with how fast each module's angle is turning, in degrees per second
+     */
+    public void calculate(
+            double vxMetersPerSecond,
+            double vyMetersPerSecond,
+            double omegaRadiansPerSecond,
+            double[] moduleSpeeds,
+            double[] moduleAngles,
+            double[] moduleSteerRates
+    ) {
+        // Make the request reachable first, so the acceleration limit ramps toward something we can actually do
+        double scale = desaturationScale(vxMetersPerSecond, vyMetersPerSecond, omegaRadiansPerSecond) * powerScale;
+        double vx = vxMetersPerSecond * scale;
+        double vy = vyMetersPerSecond * scale;
+        double omega = omegaRadiansPerSecond * scale;
+
+        // Limit the change in translation as a vector, so it keeps its direction
+        double dvx = vx - lastVx;
+        double dvy = vy - lastVy;
+        double dv = Math.hypot(dvx, dvy);
+        double speedStep = maxSpeedStep * powerScale;
+        if (dv > speedStep) {
+            dvx *= speedStep / dv;
+            dvy *= speedStep / dv;
+        }
+        vx = lastVx + dvx;
+        vy = lastVy + dvy;
+        double omegaStep = maxOmegaStep * powerScale;
+        omega = lastOmega + MathUtil.clamp(omega - lastOmega, -omegaStep, omegaStep);
+
+        scale = desaturationScale(vx, vy, omega);
+        vx *= scale;
+        vy *= scale;
+        omega *= scale;
+        double ax = (vx - lastVx) / periodSeconds;
+        double ay = (vy - lastVy) / periodSeconds;
+        double alpha = (omega - lastOmega) / periodSeconds;
+        lastVx = vx;
+        lastVy = vy;
+        lastOmega = omega;
+
+        if (secondOrder) {
+            // The twist that ends up at (vx dt, vy dt, omega dt) after one loop, the same as Pose2d.log but without
+            // allocating. The rotation speed stays the same, only the translation turns back by about half the loop's
+            // rotation.
+            double dTheta = omega * periodSeconds;
+            double halfDTheta = dTheta / 2;
+            double cosMinusOne = Math.cos(dTheta) - 1;
+            double halfThetaByTanOfHalfDTheta = Math.abs(cosMinusOne) < 1e-9
+                    ? 1 - dTheta * dTheta / 12
+                    : -(halfDTheta * Math.sin(dTheta)) / cosMinusOne;
+            double discreteVx = vx * halfThetaByTanOfHalfDTheta + vy * halfDTheta;
+            double discreteVy = vy * halfThetaByTanOfHalfDTheta - vx * halfDTheta;
+            vx = discreteVx;
+            vy = discreteVy;
+        }
+
+        boolean stopped = vx == 0 && vy == 0 && omega == 0;
+        for (int i = 0; i < moduleSpeeds.length; i++) {
+            if (stopped) {
+                // Like SwerveDriveKinematics, keep the last angle when stopped so the wheels don't snap back to 0
+                moduleSpeeds[i] = 0;
+                moduleAngles[i] = lastAngles[i];
+                moduleSteerRates[i] = 0;
+                continue;
+            }
+
+            double moduleVx = vx - omega * moduleY[i];
+            double moduleVy = vy + omega * moduleX[i];
+            double speed = Math.hypot(moduleVx, moduleVy);
+            double target = Math.toDegrees(Math.atan2(moduleVy, moduleVx));
+            if (speed == 0) {
+                // This wheel sits on the center of rotation, leave it where it is
+                target = lastAngles[i];
+            }
+
+            // Turn whichever way is shorter, driving backwards if that means facing the other way
+            double delta = MathUtil.inputModulus(target - lastAngles[i], -180, 180);
+            if (Math.abs(delta) > 90) {
+                delta -= Math.copySign(180, delta);
+                speed = -speed;
+            }
+            double step = MathUtil.clamp(delta, -maxSteerStepDegrees, maxSteerStepDegrees);
+            double angle = lastAngles[i] + step;
+
+            // The direction of a module's velocity turns at (v × a) / |v|², where a is how fast the module's velocity
+            // changes relative to the robot. The chassis speeds are robot relative, so their change already includes
+            // the robot turning underneath them. Facing backwards doesn't change how fast the module turns.
+            double steerRate = 0;
+            if (secondOrder && step != delta) {
+                // Still catching up, so the setpoint is moving at the limit
+                steerRate = step / periodSeconds;
+            } else if (secondOrder && speed != 0) {
+                double moduleAx = ax - alpha * moduleY[i];
+                double moduleAy = ay + alpha * moduleX[i];
+                steerRate = Math.toDegrees((moduleVx * moduleAy - moduleVy * moduleAx) / (speed * speed));
+                steerRate = MathUtil.clamp(steerRate, -maxSteerStepDegrees / periodSeconds,
+                        maxSteerStepDegrees / periodSeconds);
+            }
+
+            moduleSpeeds[i] = speed * Math.cos(Math.toRadians(delta - step));
+            moduleAngles[i] = angle;
+            moduleSteerRates[i] = steerRate;
+            lastAngles[i] = MathUtil.inputModulus(angle, -180, 180);
+        }
+    }
+
+    /**
+     * @return How much to scale the chassis speeds by so no wheel goes faster than the limit, at most 1
+     */
+    private double desaturationScale(double vx, double vy, double omega) {
+        double fastest = 0;
+        for (int i = 0; i < moduleX.length; i++) {
+            fastest = Math.max(fastest, Math.hypot(vx - omega * moduleY[i], vy + omega * moduleX[i]));
+        }
+        return fastest > maxModuleSpeed ? maxModuleSpeed / fastest : 1;
+    }
+}
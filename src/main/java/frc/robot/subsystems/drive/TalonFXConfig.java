@@ -0,0 +1,121 @@
+package frc.robot.subsystems.drive;
+
+import com.ctre.phoenixpro.configs.CurrentLimitsConfigs;
+import com.ctre.phoenixpro.configs.TalonFXConfiguration;
+import com.ctre.phoenixpro.hardware.TalonFX;
+
+/**
+ * Configures the motor output, feedback, slot 0 and current limit groups of a TalonFX. The device's current
+ * configuration is read once, and only the groups that differ from what we want are written. Groups we don't set are
+ * left alone.
+ */
+public class TalonFXConfig implements DeviceConfig {
+    // Doubles are stored as floats on the device, so compare relative to the value
+    private static final double RELATIVE_TOLERANCE = 1e-4;
+
+    private final String name;
+    private final TalonFX talonFX;
+    private final TalonFXConfiguration configuration;
+    private volatile boolean upToDate = false;
+
+    public TalonFXConfig(String name, TalonFX talonFX, TalonFXConfiguration configuration) {
+        this.name = name;
+        this.talonFX = talonFX;
+        this.configuration = configuration;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getFingerprint() {
+        return "TalonFX " + talonFX.getDeviceID()
+                + " " + configuration.MotorOutput.serialize()
+                + " " + configuration.Feedback.serialize()
+                + " " + configuration.Slot0.serialize()
+                + " " + configuration.CurrentLimits.serialize();
+    }
+
+    @Override
+    public boolean apply(double timeoutSeconds) {
+        if (!talonFX.clearStickyFaults(timeoutSeconds).isOK()) {
+            return false;
+        }
+        TalonFXConfiguration current = new TalonFXConfiguration();
+        if (!talonFX.getConfigurator().refresh(current, timeoutSeconds).isOK()) {
+            return false;
+        }
+
+        boolean motorOutputMatches = motorOutputMatches(current);
+        boolean feedbackMatches = feedbackMatches(current);
+        boolean slot0Matches = slot0Matches(current);
+        boolean currentLimitsMatch = currentLimitsMatch(current);
+        upToDate = motorOutputMatches && feedbackMatches && slot0Matches && currentLimitsMatch;
+
+        boolean ok = true;
+        if (!motorOutputMatches) {
+            ok &= talonFX.getConfigurator().apply(configuration.MotorOutput, timeoutSeconds).isOK();
+        }
+        if (!feedbackMatches) {
+            ok &= talonFX.getConfigurator().apply(configuration.Feedback, timeoutSeconds).isOK();
+        }
+        if (!slot0Matches) {
+            ok &= talonFX.getConfigurator().apply(configuration.Slot0, timeoutSeconds).isOK();
+        }
+        if (!currentLimitsMatch) {
+            ok &= talonFX.getConfigurator().apply(configuration.CurrentLimits, timeoutSeconds).isOK();
+        }
+        return ok;
+    }
+
+    @Override
+    public boolean verify(double timeoutSeconds) {
+        // Nothing was written, so the read in apply() already checked it
+        if (upToDate) {
+            return true;
+        }
+        TalonFXConfiguration readBack = new TalonFXConfiguration();
+        return talonFX.getConfigurator().refresh(readBack, timeoutSeconds).isOK()
+                && motorOutputMatches(readBack)
+                && feedbackMatches(readBack)
+                && slot0Matches(readBack)
+                && currentLimitsMatch(readBack);
+    }
+
+    private boolean motorOutputMatches(TalonFXConfiguration actual) {
+        return actual.MotorOutput.Inverted == configuration.MotorOutput.Inverted
+                && actual.MotorOutput.NeutralMode == configuration.MotorOutput.NeutralMode
+                && matches(actual.MotorOutput.DutyCycleNeutralDeadband, configuration.MotorOutput.DutyCycleNeutralDeadband);
+    }
+
+    private boolean feedbackMatches(TalonFXConfiguration actual) {
+        return actual.Feedback.FeedbackSensorSource == configuration.Feedback.FeedbackSensorSource
+                && actual.Feedback.FeedbackRemoteSensorID == configuration.Feedback.FeedbackRemoteSensorID
+                && matches(actual.Feedback.RotorToSensorRatio, configuration.Feedback.RotorToSensorRatio)
+                && matches(actual.Feedback.SensorToMechanismRatio, configuration.Feedback.SensorToMechanismRatio)
+                && matches(actual.Feedback.FeedbackRotorOffset, configuration.Feedback.FeedbackRotorOffset);
+    }
+
+    private boolean slot0Matches(TalonFXConfiguration actual) {
+        return matches(actual.Slot0.kP, configuration.Slot0.kP)
+                && matches(actual.Slot0.kI, configuration.Slot0.kI)
+                && matches(actual.Slot0.kD, configuration.Slot0.kD)
+                && matches(actual.Slot0.kV, configuration.Slot0.kV)
+                && matches(actual.Slot0.kS, configuration.Slot0.kS);
+    }
+
+    private boolean currentLimitsMatch(TalonFXConfiguration actual) {
+        CurrentLimitsConfigs expected = configuration.CurrentLimits;
+        return actual.CurrentLimits.SupplyCurrentLimitEnable == expected.SupplyCurrentLimitEnable
+                && actual.CurrentLimits.StatorCurrentLimitEnable == expected.StatorCurrentLimitEnable
+                && matches(actual.CurrentLimits.SupplyCurrentLimit, expected.SupplyCurrentLimit)
+                && matches(actual.CurrentLimits.SupplyCurrentThreshold, expected.SupplyCurrentThreshold)
+                && matches(actual.CurrentLimits.SupplyTimeThreshold, expected.SupplyTimeThreshold);
+    }
+
+    private static boolean matches(double actual, double expected) {
+        return Math.abs(actual - expected) <= RELATIVE_TOLERANCE * Math.max(1, Math.abs(expected));
+    }
+}
@@ -0,0 +1,111 @@
+package frc.robot.subsystems.drive;
+
+import com.ctre.phoenixpro.configs.TalonFXConfiguration;
+import com.ctre.phoenixpro.controls.DutyCycleOut;
+import com.ctre.phoenixpro.controls.PositionVoltage;
+import com.ctre.phoenixpro.controls.VelocityVoltage;
+import com.ctre.phoenixpro.controls.VoltageOut;
+import com.ctre.phoenixpro.hardware.CANcoder;
+import com.ctre.phoenixpro.hardware.TalonFX;
+import com.ctre.phoenixpro.signals.FeedbackSensorSourceValue;
+import com.ctre.phoenixpro.signals.InvertedValue;
+
+import java.util.List;
+
+/**
+ * A swerve module made of two TalonFXs and a CANcoder, with both control loops running on the TalonFXs.
+ */
+public class TalonFXModuleIO implements SwerveModuleIO {
+    public final TalonFX rotateMotor;
+    public final TalonFX moveMotor;
+    public final CANcoder rotationEncoder;
+
+    // Reused every loop instead of allocating a new request for every setControl
+    private final VelocityVoltage driveRequest = new VelocityVoltage(0);
+    private final PositionVoltage steerRequest = new PositionVoltage(0);
+    private final DutyCycleOut dutyCycleRequest = new DutyCycleOut(0);
+    private final VoltageOut driveVoltageRequest = new VoltageOut(0);
+    private final VoltageOut steerVoltageRequest = new VoltageOut(0);
+
+    private final int canCoderId;
+    private final String name;
+    private volatile List<DeviceConfig> deviceConfigs;
+
+    /**
+     * @param module Which module in the config this is
+     */
+    public TalonFXModuleIO(DrivetrainConfig config, int module) {
+        this.name = config.getModuleName(module);
+        this.canCoderId = config.getCanCoderId(module);
+        this.rotateMotor = new TalonFX(config.getRotateCanId(module));
+        this.moveMotor = new TalonFX(config.getMoveCanId(module));
+        this.rotationEncoder = new CANcoder(canCoderId);
+        this.deviceConfigs = buildDeviceConfigs(config.getMagneticOffset(module), config);
+    }
+
+    private List<DeviceConfig> buildDeviceConfigs(double magneticOffset, DrivetrainConfig config) {
+        // The rotate motor fuses the CANcoder with its own rotor sensor, so its position is in module rotations
+        TalonFXConfiguration rotateConfig = new TalonFXConfiguration();
+        rotateConfig.MotorOutput.Inverted = InvertedValue.Clockwise_Positive;
+        rotateConfig.Feedback.FeedbackSensorSource = FeedbackSensorSourceValue.FusedCANcoder;
+        rotateConfig.Feedback.FeedbackRemoteSensorID = canCoderId;
+        rotateConfig.Feedback.RotorToSensorRatio = SwerveModule.STEER_GEAR_RATIO;
+        rotateConfig.Feedback.SensorToMechanismRatio = 1;
+        rotateConfig.Slot0.kP = config.getSteerKP();
+        rotateConfig.Slot0.kD = config.getSteerKD();
+        rotateConfig.CurrentLimits.SupplyCurrentLimit = config.getSteerSupplyCurrentLimitAmps();
+        rotateConfig.CurrentLimits.SupplyCurrentLimitEnable = true;
+
+        // The move motor reports in wheel rotations
+        TalonFXConfiguration moveConfig = new TalonFXConfiguration();
+        moveConfig.MotorOutput.Inverted = InvertedValue.CounterClockwise_Positive;
+        moveConfig.Feedback.SensorToMechanismRatio = SwerveModule.DRIVE_GEAR_RATIO;
+        moveConfig.Slot0.kP = config.getDriveKP();
+        moveConfig.Slot0.kS = config.getDriveKS();
+        moveConfig.Slot0.kV = config.getDriveKV();
+        // The PowerBudget keeps the total down, this is the backstop for one motor stalled against a wall
+        moveConfig.CurrentLimits.SupplyCurrentLimit = config.getDriveSupplyCurrentLimitAmps();
+        moveConfig.CurrentLimits.SupplyCurrentLimitEnable = true;
+
+        return List.of(
+                new CANcoderConfig(name + " CANcoder", rotationEncoder, magneticOffset),
+                new TalonFXConfig(name + " rotate motor", rotateMotor, rotateConfig),
+                new TalonFXConfig(name + " move motor", moveMotor, moveConfig)
+        );
+    }
+
+    @Override
+    public void applyConfig(DrivetrainConfig config, int module) {
+        deviceConfigs = buildDeviceConfigs(config.getMagneticOffset(module), config);
+    }
+
+    @Override
+    public List<DeviceConfig> getDeviceConfigs() {
+        return deviceConfigs;
+    }
+
+    @Override
+    public void setDriveVelocity(double wheelRotationsPerSecond) {
+        this.moveMotor.setControl(driveRequest.withVelocity(wheelRotationsPerSecond));
+    }
+
+    @Override
+    public void setSteerPosition(double moduleRotations, double moduleRotationsPerSecond) {
+        this.rotateMotor.setControl(steerRequest.withPosition(moduleRotations).withVelocity(moduleRotationsPerSecond));
+    }
+
+    @Override
+    public void setDriveDutyCycle(double dutyCycle) {
+        this.moveMotor.setControl(dutyCycleRequest.withOutput(dutyCycle));
+    }
+
+    @Override
+    public void setDriveVoltage(double volts) {
+        this.moveMotor.setControl(driveVoltageRequest.withOutput(volts));
+    }
+
+    @Override
+    public void setSteerVoltage(double volts) {
+        this.rotateMotor.setControl(steerVoltageRequest.withOutput(volts));
+    }
+}
@@ -0,0 +1,218 @@
+package frc.robot.subsystems.drive;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+
+/**
+ * Takes robot poses from cameras and fuses the believable ones into the odometry's pose estimate.
+ * <p>
+ * A camera's pose comes from a frame that was captured 30 to 100 ms before the pose arrives, and in that time the
+ * robot has moved on. So each pose is compared to where odometry had the robot when the frame was captured, from the
+ * {@link PoseHistory}, and handed to the estimator with that capture time. The estimator then corrects the pose it had
+ * back then and replays the odometry since, instead of pulling the current pose toward somewhere the robot used to be.
+ * The history is moved along with every correction, so later poses are compared to the corrected odometry.
+ * <p>
+ * Poses are thrown out if they:
+ * <ul>
+ *     <li>Have no tags, or only tags too far away to trust</li>
+ *     <li>Put the robot off the field</li>
+ *     <li>Are older than the history, so there's nothing to compare them to</li>
+ *     <li>Disagree with odometry by more than a wheel could plausibly slip. If that keeps happening it's odometry
+ *     that's wrong, like after being pushed, so after a few in a row the next one is accepted anyway.</li>
+ * </ul>
+ * The ones that are kept are trusted less the further away their tags are, and their heading is barely trusted with a
+ * single tag, where it's the least accurate part of the solve and the gyro is better anyway.
+ * <p>
+ * Cameras call {@link #submit} from their own threads. Poses wait in a small queue until the thread updating odometry
+ * picks them up, so a slow camera never holds up odometry, and odometry never waits on more than a copy.
+ */
+public class VisionIngest {
+    private static final int QUEUE_CAPACITY = 16;
+
+    // 2023 field, plus a little for poses of a robot touching the wall
+    private static final double FIELD_LENGTH_METERS = 16.54;
+    private static final double FIELD_WIDTH_METERS = 8.02;
+    private static final double FIELD_MARGIN_METERS = 0.5;
+
+    private static final double MAX_TAG_DISTANCE_METERS = 6;
+    private static final double MAX_TRANSLATION_ERROR_METERS = 1;
+    private static final double MAX_ROTATION_ERROR_RADIANS = Math.toRadians(15);
+    private static final int TRUST_AFTER_DISAGREEMENTS = 5;
+
+    // Standard deviations at 1 meter from one tag, growing with the square of the distance
+    private static final double XY_STD_DEV_METERS = 0.05;
+    private static final double THETA_STD_DEV_RADIANS = 0.1;
+    private static final double UNTRUSTED_STD_DEV = 1e6;
+
+    // Filled by the cameras, drained by the odometry thread, both under the lock
+    private final Object lock = new Object();
+    private final double[] queuedTimestamps = new double[QUEUE_CAPACITY];
+    private final double[] queuedXs = new double[QUEUE_CAPACITY];
+    private final double[] queuedYs = new double[QUEUE_CAPACITY];
+    private final double[] queuedThetas = new double[QUEUE_CAPACITY];
+    private final int[] queuedTagCounts = new int[QUEUE_CAPACITY];
+    private final double[] queuedDistances = new double[QUEUE_CAPACITY];
+    private int queued = 0;
+
+    // Only touched by the odometry thread
+    private final double[] timestamps = new double[QUEUE_CAPACITY];
+    private final double[] xs = new double[QUEUE_CAPACITY];
+    private final double[] ys = new double[QUEUE_CAPACITY];
+    private final double[] thetas = new double[QUEUE_CAPACITY];
+    private final int[] tagCounts = new int[QUEUE_CAPACITY];
+    private final double[] distances = new double[QUEUE_CAPACITY];
+    private final double[] odometryPose = new double[3];
+    private int disagreements = 0;
+
+    private volatile int acceptedCount = 0;
+    private volatile int rejectedCount = 0;
+    private volatile int droppedCount = 0;
+
+    /**
+     * Queue a robot pose from a camera. Safe to call from any thread, and never blocks for longer than a copy.
+     *
+     * @param captureTimestampSeconds  FPGA time the frame was captured, not when the pose was worked out
+     * @param x                        Field relative, in meters, from the blue alliance wall
+     * @param y                        Field relative, in meters
+     * @param thetaRadians             Counterclockwise from the field's +x
+     * @param tagCount                 How many AprilTags the pose was solved from
+     * @param averageTagDistanceMeters How far away those tags were, on average
+     */
+    public void submit(
+            double captureTimestampSeconds,
+            double x,
+            double y,
+            double thetaRadians,
+            int tagCount,
+            double averageTagDistanceMeters
+    ) {
+        synchronized (lock) {
+            if (queued == QUEUE_CAPACITY) {
+                // Odometry hasn't kept up, the oldest pose is the least useful one
+                System.arraycopy(queuedTimestamps, 1, queuedTimestamps, 0, QUEUE_CAPACITY - 1);
+                System.arraycopy(queuedXs, 1, queuedXs, 0, QUEUE_CAPACITY - 1);
+                System.arraycopy(queuedYs, 1, queuedYs, 0, QUEUE_CAPACITY - 1);
+                System.arraycopy(queuedThetas, 1, queuedThetas, 0, QUEUE_CAPACITY - 1);
+                System.arraycopy(queuedTagCounts, 1, queuedTagCounts, 0, QUEUE_CAPACITY - 1);
+                System.arraycopy(queuedDistances, 1, queuedDistances, 0, QUEUE_CAPACITY - 1);
+                queued--;
+                droppedCount++;
+            }
+            queuedTimestamps[queued] = captureTimestampSeconds;
+            queuedXs[queued] = x;
+            queuedYs[queued] = y;
+            queuedThetas[queued] = thetaRadians;
+            queuedTagCounts[queued] = tagCount;
+            queuedDistances[queued] = averageTagDistanceMeters;
+            queued++;
+        }
+    }
+
+    /**
+     * Check every queued pose against the history and hand the good ones to the estimator. Only call this from the
+     * thread that updates odometry, after the newest pose is in the history.
+     *
+     * @return Whether any pose was fused, so the estimator's pose has moved
+     */
+    boolean apply(PoseHistory history, SwerveDrivePoseEstimator estimator) {
+        int count;
+        synchronized (lock) {
+            count = queued;
+            System.arraycopy(queuedTimestamps, 0, timestamps, 0, count);
+            System.arraycopy(queuedXs, 0, xs, 0, count);
+            System.arraycopy(queuedYs, 0, ys, 0, count);
+            System.arraycopy(queuedThetas, 0, thetas, 0, count);
+            System.arraycopy(queuedTagCounts, 0, tagCounts, 0, count);
+            System.arraycopy(queuedDistances, 0, distances, 0, count);
+            queued = 0;
+        }
+
+        boolean fused = false;
+        for (int i = 0; i < count; i++) {
+            if (!isBelievable(i, history)) {
+                rejectedCount++;
+                continue;
+            }
+
+            double distanceSquared = distances[i] * distances[i];
+            double xyStdDev = XY_STD_DEV_METERS * distanceSquared / tagCounts[i];
+            double thetaStdDev = tagCounts[i] > 1 ? THETA_STD_DEV_RADIANS * distanceSquared / tagCounts[i]
+                    : UNTRUSTED_STD_DEV;
+            // The estimator needs its own objects, but this is only a few times a second, not every sample
+            estimator.addVisionMeasurement(
+                    new Pose2d(xs[i], ys[i], new Rotation2d(thetas[i])),
+                    timestamps[i],
+                    VecBuilder.fill(xyStdDev, xyStdDev, thetaStdDev)
+            );
+            // Move the history along with the estimate, or the next poses get compared to where odometry had the robot
+            // before this correction, and a big one, like after being pushed, would get them all rejected again
+            Pose2d corrected = estimator.getEstimatedPosition();
+            history.moveNewestTo(corrected.getX(), corrected.getY(), corrected.getRotation().getRadians());
+            acceptedCount++;
+            fused = true;
+        }
+        return fused;
+    }
+
+    private boolean isBelievable(int i, PoseHistory history) {
+        if (tagCounts[i] < 1 || distances[i] > MAX_TAG_DISTANCE_METERS) {
+            return false;
+        }
+        if (xs[i] < -FIELD_MARGIN_METERS || xs[i] > FIELD_LENGTH_METERS + FIELD_MARGIN_METERS
+                || ys[i] < -FIELD_MARGIN_METERS || ys[i] > FIELD_WIDTH_METERS + FIELD_MARGIN_METERS) {
+            return false;
+        }
+        if (!history.sample(timestamps[i], odometryPose)) {
+            return false;
+        }
+
+        double translationError = Math.hypot(xs[i] - odometryPose[0], ys[i] - odometryPose[1]);
+        double rotationError = Math.abs(MathUtil.angleModulus(thetas[i] - odometryPose[2]));
+        // A single tag's heading is too noisy to reject on
+        boolean rotationAgrees = tagCounts[i] == 1 || rotationError <= MAX_ROTATION_ERROR_RADIANS;
+        if (translationError <= MAX_TRANSLATION_ERROR_METERS && rotationAgrees) {
+            disagreements = 0;
+            return true;
+        }
+        if (++disagreements > TRUST_AFTER_DISAGREEMENTS) {
+            disagreements = 0;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Forget queued poses and any run of disagreements, for when the pose is reset and nothing from before applies.
+     * Only call this from the thread that updates odometry.
+     */
+    void reset() {
+        synchronized (lock) {
+            queued = 0;
+        }
+        disagreements = 0;
+    }
+
+    /**
+     * @return How many poses have been fused since startup
+     */
+    public int getAcceptedCount() {
+        return acceptedCount;
+    }
+
+    /**
+     * @return How many poses have been thrown out as unbelievable since startup
+     */
+    public int getRejectedCount() {
+        return rejectedCount;
+    }
+
+    /**
+     * @return How many poses were dropped because odometry didn't pick them up in time
+     */
+    public int getDroppedCount() {
+        return droppedCount;
+    }
+}
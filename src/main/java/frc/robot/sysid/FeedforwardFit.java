@@ -0,0 +1,143 @@
+package frc.robot.sysid;
+
+/**
+ * Fits V = kS sgn(v) + kV v + kA a to voltage and velocity samples with ordinary least squares, the same model as
+ * WPILib's SysId.
+ * <p>
+ * Acceleration isn't measured, so it's the change in velocity across a few samples, and the voltage and velocity are
+ * taken from the middle of that window. Only the sums the normal equations need are kept, so this doesn't allocate per
+ * sample and works the same on the robot as on a laptop.
+ */
+public class FeedforwardFit {
+    // At 250 Hz this spans 16 ms, long enough to smooth out encoder noise without blurring the dynamic steps
+    private static final int WINDOW = 4;
+    // Below this the motor is stuck in static friction, and sgn(v) is just noise. In mechanism rotations per second.
+    private static final double MIN_VELOCITY = 0.1;
+
+    /**
+     * Fitted gains, in volts per mechanism rotation per second and per rotation per second squared.
+     */
+    public static final class Result {
+        public final double kS;
+        public final double kV;
+        public final double kA;
+        public final double rSquared;
+        public final int sampleCount;
+
+        Result(double kS, double kV, double kA, double rSquared, int sampleCount) {
+            this.kS = kS;
+            this.kV = kV;
+            this.kA = kA;
+            this.rSquared = rSquared;
+            this.sampleCount = sampleCount;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("kS %.4f kV %.4f kA %.4f, r² %.3f from %d samples",
+                    kS, kV, kA, rSquared, sampleCount);
+        }
+    }
+
+    // The last WINDOW + 1 samples of the current test
+    private final double[] times = new double[WINDOW + 1];
+    private final double[] voltages = new double[WINDOW + 1];
+    private final double[] velocities = new double[WINDOW + 1];
+    private int windowCount = 0;
+    private int lastTest = 0;
+
+    // Sums of x xᵀ and x y for x = (sgn(v), v, a) and y = V
+    private final double[] x = new double[3];
+    private final double[][] xx = new double[3][3];
+    private final double[] xy = new double[3];
+    private double yy = 0;
+    private double ySum = 0;
+    private int count = 0;
+
+    /**
+     * Add the next sample. Samples have to come in time order.
+     *
+     * @param test Which test this sample is from, or 0 between tests. Acceleration is never taken across two tests.
+     */
+    public void add(int test, double timestampSeconds, double volts, double velocity) {
+        if (test != lastTest) {
+            lastTest = test;
+            windowCount = 0;
+        }
+        if (test == 0) {
+            return;
+        }
+
+        System.arraycopy(times, 1, times, 0, WINDOW);
+        System.arraycopy(voltages, 1, voltages, 0, WINDOW);
+        System.arraycopy(velocities, 1, velocities, 0, WINDOW);
+        times[WINDOW] = timestampSeconds;
+        voltages[WINDOW] = volts;
+        velocities[WINDOW] = velocity;
+        if (++windowCount <= WINDOW) {
+            return;
+        }
+
+        double dt = times[WINDOW] - times[0];
+        double v = velocities[WINDOW / 2];
+        if (dt <= 0 || Math.abs(v) < MIN_VELOCITY) {
+            return;
+        }
+        double a = (velocities[WINDOW] - velocities[0]) / dt;
+        double y = voltages[WINDOW / 2];
+
+        x[0] = Math.signum(v);
+        x[1] = v;
+        x[2] = a;
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                xx[i][j] += x[i] * x[j];
+            }
+            xy[i] += x[i] * y;
+        }
+        yy += y * y;
+        ySum += y;
+        count++;
+    }
+
+    /**
+     * @return The best fit, or null if there isn't enough to fit, like when the motor never moved
+     */
+    public Result solve() {
+        if (count < 10) {
+            return null;
+        }
+        double[] beta = solve3(xx, xy);
+        if (beta == null) {
+            return null;
+        }
+
+        double residual = yy - (beta[0] * xy[0] + beta[1] * xy[1] + beta[2] * xy[2]);
+        double total = yy - ySum * ySum / count;
+        double rSquared = total > 0 ? 1 - residual / total : 0;
+        return new Result(beta[0], beta[1], beta[2], rSquared, count);
+    }
+
+    /**
+     * Solve a x = b for a 3 by 3 matrix with Cramer's rule.
+     */
+    private static double[] solve3(double[][] a, double[] b) {
+        double det = determinant(a[0][0], a[0][1], a[0][2], a[1][0], a[1][1], a[1][2], a[2][0], a[2][1], a[2][2]);
+        if (Math.abs(det) < 1e-12) {
+            return null;
+        }
+        return new double[]{
+                determinant(b[0], a[0][1], a[0][2], b[1], a[1][1], a[1][2], b[2], a[2][1], a[2][2]) / det,
+                determinant(a[0][0], b[0], a[0][2], a[1][0], b[1], a[1][2], a[2][0], b[2], a[2][2]) / det,
+                determinant(a[0][0], a[0][1], b[0], a[1][0], a[1][1], b[1], a[2][0], a[2][1], b[2]) / det
+        };
+    }
+
+    private static double determinant(
+            double a, double b, double c,
+            double d, double e, double f,
+            double g, double h, double i
+    ) {
+        return a * (e * i - f * h) - b * (d * i - f * g) + c * (d * h - e * g);
+    }
+}
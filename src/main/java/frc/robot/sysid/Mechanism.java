@@ -0,0 +1,41 @@
+package frc.robot.sysid;
+
+import frc.robot.subsystems.drive.SignalHub;
+
+/**
+ * The motors system identification can run on, with the signals to log for each and how hard to push them. Units are
+ * the TalonFX's mechanism units, wheel rotations for drive and module rotations for steer, so the fitted gains go
+ * straight into drivetrain.json.
+ */
+public enum Mechanism {
+    // The robot drives forward and back, about 4 meters each way at these settings
+    DRIVE("drive", SignalHub.MODULE_DRIVE_POSITION, SignalHub.MODULE_DRIVE_VELOCITY, 0.75, 4, 4, 1),
+    // The robot stays put and the wheels spin in place
+    STEER("steer", SignalHub.MODULE_STEER_POSITION, SignalHub.MODULE_STEER_VELOCITY, 1, 3, 3, 1);
+
+    public final String name;
+    final int positionSignal;
+    final int velocitySignal;
+    public final double rampVoltsPerSecond;
+    public final double quasistaticSeconds;
+    public final double dynamicVolts;
+    public final double dynamicSeconds;
+
+    Mechanism(
+            String name,
+            int positionSignal,
+            int velocitySignal,
+            double rampVoltsPerSecond,
+            double quasistaticSeconds,
+            double dynamicVolts,
+            double dynamicSeconds
+    ) {
+        this.name = name;
+        this.positionSignal = positionSignal;
+        this.velocitySignal = velocitySignal;
+        this.rampVoltsPerSecond = rampVoltsPerSecond;
+        this.quasistaticSeconds = quasistaticSeconds;
+        this.dynamicVolts = dynamicVolts;
+        this.dynamicSeconds = dynamicSeconds;
+    }
+}
@@ -0,0 +1,85 @@
+package frc.robot.sysid;
+
+import edu.wpi.first.util.datalog.DataLog;
+import edu.wpi.first.util.datalog.DoubleArrayLogEntry;
+import edu.wpi.first.wpilibj.DataLogManager;
+import frc.robot.subsystems.drive.SignalHub;
+import frc.robot.subsystems.drive.SwerveOdometry;
+
+/**
+ * Records system identification data for every module at the full odometry rate, not once a loop.
+ * <p>
+ * It listens to every sample on the odometry thread and writes one entry per module to the data log, named
+ * "SysId/FL drive" and so on, holding the test number, the voltage, the position and the velocity. {@code SysIdFit}
+ * fits gains from those entries on a laptop. The same samples also go into a {@link FeedforwardFit} per module here, so
+ * the robot can report gains as soon as the tests finish.
+ * <p>
+ * The voltage is what was asked for. The TalonFX compensates for the battery, so that's what the motor gets unless the
+ * battery sags below it.
+ */
+public class SysIdLogger implements SwerveOdometry.SampleListener {
+    public static final String LOG_PREFIX = "SysId/";
+
+    private final Mechanism mechanism;
+    private final DoubleArrayLogEntry[] entries;
+    private final double[] record = new double[4];
+    private FeedforwardFit[] fits;
+    private int test = 0;
+    private double volts = 0;
+
+    public SysIdLogger(Mechanism mechanism, String[] moduleNames) {
+        this.mechanism = mechanism;
+        DataLog log = DataLogManager.getLog();
+        entries = new DoubleArrayLogEntry[moduleNames.length];
+        for (int i = 0; i < moduleNames.length; i++) {
+            entries[i] = new DoubleArrayLogEntry(log, LOG_PREFIX + moduleNames[i] + " " + mechanism.name);
+        }
+        reset();
+    }
+
+    /**
+     * Throw away what's been fitted so far, for a new run.
+     */
+    public synchronized void reset() {
+        fits = new FeedforwardFit[entries.length];
+        for (int i = 0; i < fits.length; i++) {
+            fits[i] = new FeedforwardFit();
+        }
+        test = 0;
+        volts = 0;
+    }
+
+    /**
+     * Set what's being sent to the motors, from the main thread.
+     *
+     * @param test  Which test is running, or 0 between tests
+     * @param volts The voltage every module's motor was just given
+     */
+    public synchronized void setOutput(int test, double volts) {
+        this.test = test;
+        this.volts = volts;
+    }
+
+    @Override
+    public synchronized void onSample(SignalHub signals) {
+        double timestamp = signals.getSampledTimestampSeconds();
+        long timestampMicros = (long) (timestamp * 1e6);
+        for (int i = 0; i < entries.length; i++) {
+            double velocity = signals.getSampledModuleSignal(i, mechanism.velocitySignal);
+            record[0] = test;
+            record[1] = volts;
+            record[2] = signals.getSampledModuleSignal(i, mechanism.positionSignal);
+            record[3] = velocity;
+            entries[i].append(record, timestampMicros);
+            fits[i].add(test, timestamp, volts, velocity);
+        }
+    }
+
+    /**
+     * @return The fit for one module from everything recorded since the last {@link #reset()}, or null if it can't be
+     * fitted
+     */
+    public synchronized FeedforwardFit.Result fit(int module) {
+        return fits[module].solve();
+    }
+}
@@ -0,0 +1,166 @@
+package frc.robot.telemetry;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.GcInfo;
+import edu.wpi.first.util.datalog.DataLog;
+import edu.wpi.first.util.datalog.DoubleLogEntry;
+import edu.wpi.first.util.datalog.StringLogEntry;
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.RobotController;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Watches for garbage collection pauses, so a loop overrun can be traced back to the collector or ruled out.
+ * <p>
+ * The JVM announces every collection once it's over, on its own notification thread. Each pause goes straight into the
+ * data log as "GC/pause ms", stamped with when it started, along with the collector and cause as "GC/pause cause", and
+ * into the "GC pause" {@link LoopTimer}. Then once a loop, {@link #update()} works out which loops the pauses landed
+ * in and logs how long each of those loops was paused for on the "GC/loop pause overlap" channel, stamped with that
+ * loop's time, so it lines up with everything else that loop logged. A loop with more than one pause gets more than
+ * one entry.
+ * <p>
+ * The JVM only reports pause times to the millisecond, so short pauses show up as 0 ms and don't mark any loop.
+ * Collectors that mostly run alongside the program, like ZGC, report their concurrent cycles separately from their
+ * pauses, and only the pauses are counted here.
+ */
+public final class GcMonitor {
+    private static final int PAUSE_CAPACITY = 16;
+    // About 300 ms of loops. Notifications come in well before that, unless the notification thread is starved.
+    private static final int LOOP_HISTORY = 16;
+
+    private static final TelemetryChannel OVERLAP_CHANNEL = Telemetry.channel("GC/loop pause overlap");
+
+    // Filled by the notification thread, drained by the main thread, both under the lock
+    private static final Object lock = new Object();
+    private static final long[] queuedPauseStarts = new long[PAUSE_CAPACITY];
+    private static final long[] queuedPauseEnds = new long[PAUSE_CAPACITY];
+    private static int queuedPauses = 0;
+    private static volatile long droppedPauses = 0;
+
+    // Only touched by the main thread
+    private static final long[] pauseStarts = new long[PAUSE_CAPACITY];
+    private static final long[] pauseEnds = new long[PAUSE_CAPACITY];
+    private static final long[] loopStarts = new long[LOOP_HISTORY];
+    private static int newestLoop = 0;
+    private static int loopCount = 0;
+
+    // Only touched by the notification thread, once started
+    private static LoopTimer pauseTimer;
+    private static DoubleLogEntry pauseEntry;
+    private static StringLogEntry causeEntry;
+    private static long uptimeOffsetMicros;
+
+    private static boolean started = false;
+
+    /**
+     * Start listening for collections. Call once from robotInit.
+     */
+    public static synchronized void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+
+        pauseTimer = LoopTiming.timer("GC pause");
+        DataLog log = DataLogManager.getLog();
+        pauseEntry = new DoubleLogEntry(log, "GC/pause ms");
+        causeEntry = new StringLogEntry(log, "GC/pause cause");
+        // Collections are timed from JVM start, in ms. Anything finer isn't worth the effort at that resolution.
+        uptimeOffsetMicros = RobotController.getFPGATime()
+                - ManagementFactory.getRuntimeMXBean().getUptime() * 1000;
+
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (collector instanceof NotificationEmitter) {
+                ((NotificationEmitter) collector).addNotificationListener(GcMonitor::handleNotification, null, null);
+            }
+        }
+    }
+
+    /**
+     * Log which loops were paused. Call once a loop from the main thread, after {@link Telemetry#startLoop()}.
+     */
+    public static void update() {
+        newestLoop = (newestLoop + 1) % LOOP_HISTORY;
+        loopStarts[newestLoop] = Telemetry.getLoopTimestampMicros();
+        if (loopCount < LOOP_HISTORY) {
+            loopCount++;
+        }
+
+        int count;
+        synchronized (lock) {
+            count = queuedPauses;
+            System.arraycopy(queuedPauseStarts, 0, pauseStarts, 0, count);
+            System.arraycopy(queuedPauseEnds, 0, pauseEnds, 0, count);
+            queuedPauses = 0;
+        }
+        if (count == 0) {
+            return;
+        }
+
+        long now = RobotController.getFPGATime();
+        for (int i = 0; i < count; i++) {
+            // Newest loop first, it's still running so it ends now
+            long loopEnd = now;
+            for (int age = 0; age < loopCount; age++) {
+                int loop = Math.floorMod(newestLoop - age, LOOP_HISTORY);
+                long loopStart = loopStarts[loop];
+                long overlap = Math.min(pauseEnds[i], loopEnd) - Math.max(pauseStarts[i], loopStart);
+                if (overlap > 0) {
+                    OVERLAP_CHANNEL.logAt(overlap / 1000.0, loopStart);
+                }
+                if (loopStart <= pauseStarts[i]) {
+                    break;
+                }
+                loopEnd = loopStart;
+            }
+        }
+    }
+
+    /**
+     * @return How many pauses weren't matched to loops because the main thread didn't pick them up in time
+     */
+    public static long getDroppedCount() {
+        return droppedPauses;
+    }
+
+    private static void handleNotification(Notification notification, Object handback) {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+            return;
+        }
+        GarbageCollectionNotificationInfo info =
+                GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+        String collector = info.getGcName();
+        if (collector.contains("Cycles") || collector.contains("Concurrent")) {
+            return;
+        }
+
+        GcInfo gc = info.getGcInfo();
+        long start = uptimeOffsetMicros + gc.getStartTime() * 1000;
+        long end = uptimeOffsetMicros + gc.getEndTime() * 1000;
+        pauseEntry.append(gc.getDuration(), start);
+        causeEntry.append(collector + ": " + info.getGcCause(), start);
+        pauseTimer.record(gc.getDuration() * 1_000_000);
+
+        synchronized (lock) {
+            if (queuedPauses == PAUSE_CAPACITY) {
+                // The main thread is stuck, the oldest pause is the least likely to still be in its history
+                System.arraycopy(queuedPauseStarts, 1, queuedPauseStarts, 0, PAUSE_CAPACITY - 1);
+                System.arraycopy(queuedPauseEnds, 1, queuedPauseEnds, 0, PAUSE_CAPACITY - 1);
+                queuedPauses--;
+                droppedPauses++;
+            }
+            queuedPauseStarts[queuedPauses] = start;
+            queuedPauseEnds[queuedPauses] = end;
+            queuedPauses++;
+        }
+    }
+
+    private GcMonitor() {
+        throw new UnsupportedOperationException("This is a utility class!");
+    }
+}
@@ -0,0 +1,57 @@
+package frc.robot.telemetry;
+
+import edu.wpi.first.wpilibj.RobotController;
+
+/**
+ * Measures how late each robot loop starts compared to when it was scheduled, which is the jitter every command sees
+ * on top of its own run time.
+ * <p>
+ * TimedRobot schedules loops on a fixed grid from when it was constructed, one period apart, and runs every one of
+ * them, back to back if it falls behind. So the nth loop was due n periods after construction, and how late it actually
+ * started is the jitter. It's published with the other {@link LoopTimer}s as "Loop start jitter", and logged every
+ * loop in milliseconds, so runs with and without {@link frc.robot.ThreadScheduling} can be compared.
+ * <p>
+ * Create this in the robot's constructor, since that's as close as we can get to TimedRobot's start time. That's a few
+ * microseconds late, so every loop looks that much less late than it was. Main thread only.
+ */
+public class LoopJitter {
+    private static final TelemetryChannel JITTER_CHANNEL = Telemetry.channel("Robot/loop start jitter");
+
+    private final LoopTimer timer = LoopTiming.timer("Loop start jitter");
+    private final long startMicros;
+    private final long periodMicros;
+    private long loops = 0;
+    private long lastJitterMicros = 0;
+
+    /**
+     * @param periodSeconds The robot's loop period
+     */
+    public LoopJitter(double periodSeconds) {
+        startMicros = RobotController.getFPGATime();
+        periodMicros = Math.round(periodSeconds * 1e6);
+    }
+
+    /**
+     * Call first thing in every loop, before anything else can make it later.
+     */
+    public void loopStarted() {
+        long now = RobotController.getFPGATime();
+        loops++;
+        lastJitterMicros = Math.max(now - (startMicros + loops * periodMicros), 0);
+        timer.record(lastJitterMicros * 1000);
+    }
+
+    /**
+     * Log the jitter of this loop. Call after {@link Telemetry#startLoop()}, so it's stamped with this loop's time.
+     */
+    public void log() {
+        JITTER_CHANNEL.log(lastJitterMicros / 1000.0);
+    }
+
+    /**
+     * @return How late this loop started, in microseconds
+     */
+    public long getLastJitterMicros() {
+        return lastJitterMicros;
+    }
+}
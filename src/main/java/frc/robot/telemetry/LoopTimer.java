@@ -0,0 +1,87 @@
+package frc.robot.telemetry;
+
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.NetworkTable;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Times one part of the loop, like a subsystem's periodic or a command's execute. Create these once with
+ * {@link LoopTiming#timer(String)} and keep them in a static field, then wrap the code being timed:
+ * <pre>
+ *     long start = TIMER.start();
+ *     ...
+ *     TIMER.stop(start);
+ * </pre>
+ * Each timer keeps two histograms. Whichever thread owns the timer records into one while {@link LoopTiming} publishes
+ * and clears the other, so a timer can be recorded from a thread other than the main loop, but only from one thread.
+ * A recording that started just before the swap still lands in the old histogram, so each histogram counts the
+ * recordings in progress and publishing waits for them to finish before reading it.
+ */
+public class LoopTimer {
+    private final String name;
+    private final LatencyHistogram[] histograms = {new LatencyHistogram(), new LatencyHistogram()};
+    private volatile int active = 0;
+    private final AtomicIntegerArray writers = new AtomicIntegerArray(2);  // Recordings in progress, per histogram
+
+    private final DoublePublisher p50Publisher;
+    private final DoublePublisher p99Publisher;
+    private final DoublePublisher maxPublisher;
+    private final DoublePublisher countPublisher;
+
+    LoopTimer(String name, NetworkTable table) {
+        this.name = name;
+        NetworkTable timerTable = table.getSubTable(name);
+        p50Publisher = timerTable.getDoubleTopic("p50 ms").publish();
+        p99Publisher = timerTable.getDoubleTopic("p99 ms").publish();
+        maxPublisher = timerTable.getDoubleTopic("max ms").publish();
+        countPublisher = timerTable.getDoubleTopic("count").publish();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return The start time to pass to {@link #stop(long)}
+     */
+    public long start() {
+        return System.nanoTime();
+    }
+
+    public void stop(long start) {
+        record(System.nanoTime() - start);
+    }
+
+    public void record(long nanos) {
+        int histogram = active;
+        writers.incrementAndGet(histogram);
+        // If publish() swapped before this counted as writing, it isn't waiting for us, so use the new histogram
+        while (active != histogram) {
+            writers.decrementAndGet(histogram);
+            histogram = active;
+            writers.incrementAndGet(histogram);
+        }
+        histograms[histogram].record(nanos);
+        writers.decrementAndGet(histogram);
+    }
+
+    /**
+     * Swap histograms, publish everything recorded since the last call and clear it.
+     */
+    void publish() {
+        int published = active;
+        active = 1 - published;
+        // Only ever as long as one record() on the other thread
+        while (writers.get(published) != 0) {
+            Thread.onSpinWait();
+        }
+
+        LatencyHistogram histogram = histograms[published];
+        p50Publisher.set(histogram.getValueAtPercentile(50) / 1e6);
+        p99Publisher.set(histogram.getValueAtPercentile(99) / 1e6);
+        maxPublisher.set(histogram.getMax() / 1e6);
+        countPublisher.set(histogram.getCount());
+        histogram.reset();
+    }
+}
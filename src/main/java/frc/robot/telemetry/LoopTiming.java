@@ -0,0 +1,50 @@
+package frc.robot.telemetry;
+
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.Timer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps track of every {@link LoopTimer} and publishes their p50, p99 and max to NetworkTables under "LoopTiming" once
+ * per second, so we can see which part of the 20 ms budget goes where instead of just getting a loop overrun message.
+ */
+public final class LoopTiming {
+    private static final double PUBLISH_PERIOD_SECONDS = 1.0;
+
+    private static final NetworkTable table = NetworkTableInstance.getDefault().getTable("LoopTiming");
+    private static final List<LoopTimer> timers = new ArrayList<>();
+    private static double lastPublishSeconds = 0;
+
+    /**
+     * Create a timer. Do this once, at startup, and keep the timer around.
+     *
+     * @param name Shown in NetworkTables, use "/" to group timers, such as "Commands/DriveCommand"
+     */
+    public static synchronized LoopTimer timer(String name) {
+        LoopTimer timer = new LoopTimer(name, table);
+        timers.add(timer);
+        return timer;
+    }
+
+    /**
+     * Publish every timer if it's been a second since the last time. Call this once a loop from the main thread.
+     */
+    public static synchronized void publishIfDue() {
+        double now = Timer.getFPGATimestamp();
+        if (now - lastPublishSeconds < PUBLISH_PERIOD_SECONDS) {
+            return;
+        }
+        lastPublishSeconds = now;
+
+        for (int i = 0; i < timers.size(); i++) {
+            timers.get(i).publish();
+        }
+    }
+
+    private LoopTiming() {
+        throw new UnsupportedOperationException("This is a utility class!");
+    }
+}
@@ -0,0 +1,183 @@
+package frc.robot.telemetry;
+
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.util.datalog.DataLog;
+import edu.wpi.first.util.datalog.DoubleLogEntry;
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.RobotController;
+import frc.robot.ThreadScheduling;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Full rate telemetry without slowing down the control loop.
+ * <p>
+ * Logging a value only writes the channel id and value into a ring buffer. A background thread drains the buffer every
+ * {@link #DRAIN_PERIOD_MS} ms into the binary WPILib data log on disk, so the loop never builds strings or talks to
+ * NetworkTables. Channels made with {@link #dashboardChannel(String)} are also published to the SmartDashboard table
+ * by the background thread, at most once per drain, for values someone needs to watch live.
+ * <p>
+ * Use {@link TelemetryCsvExport} to turn a log into a CSV on a laptop.
+ * <p>
+ * The ring buffer has a single producer, so only log from the main robot thread. If the buffer fills up, new values are
+ * dropped and counted instead of blocking the loop.
+ */
+public final class Telemetry {
+    public static final String LOG_PREFIX = "Telemetry/";
+    private static final int DRAIN_PERIOD_MS = 20;
+    private static final int CAPACITY = 1 << 14;  // Must be a power of 2
+    private static final int MASK = CAPACITY - 1;
+
+    // Ring buffer, written by the main thread and read by the drain thread
+    private static final int[] ringIds = new int[CAPACITY];
+    private static final double[] ringValues = new double[CAPACITY];
+    private static final long[] ringTimestamps = new long[CAPACITY];
+    private static volatile long head = 0;  // Next slot to write, only written by the producer
+    private static volatile long tail = 0;  // Next slot to read, only written by the drain thread
+    private static volatile long dropped = 0;
+    private static long loopTimestampMicros = 0;
+
+    // Channel registry. Only changed at startup, and copied on write so the drain thread can read without locking.
+    private static final Map<String, TelemetryChannel> channelsByName = new HashMap<>();
+    private static volatile DoubleLogEntry[] logEntries = new DoubleLogEntry[0];
+    private static volatile DoublePublisher[] dashboardPublishers = new DoublePublisher[0];
+
+    private static Thread drainThread;
+
+    /**
+     * Get the channel with this name, creating it if needed. Do this once, at startup, and keep the channel around.
+     */
+    public static TelemetryChannel channel(String name) {
+        return register(name, false);
+    }
+
+    /**
+     * Same as {@link #channel(String)}, but the latest value also shows up in the SmartDashboard table under this name.
+     */
+    public static TelemetryChannel dashboardChannel(String name) {
+        return register(name, true);
+    }
+
+    private static synchronized TelemetryChannel register(String name, boolean dashboard) {
+        TelemetryChannel channel = channelsByName.get(name);
+        if (channel == null) {
+            channel = new TelemetryChannel(channelsByName.size(), name);
+            channelsByName.put(name, channel);
+
+            DataLog log = DataLogManager.getLog();
+            DoubleLogEntry[] entries = Arrays.copyOf(logEntries, channel.id + 1);
+            entries[channel.id] = new DoubleLogEntry(log, LOG_PREFIX + name);
+            logEntries = entries;
+            dashboardPublishers = Arrays.copyOf(dashboardPublishers, channel.id + 1);
+        }
+
+        if (dashboard && dashboardPublishers[channel.id] == null) {
+            NetworkTable table = NetworkTableInstance.getDefault().getTable("SmartDashboard");
+            DoublePublisher[] publishers = Arrays.copyOf(dashboardPublishers, dashboardPublishers.length);
+            publishers[channel.id] = table.getDoubleTopic(name).publish();
+            dashboardPublishers = publishers;
+        }
+        return channel;
+    }
+
+    /**
+     * Start the background thread that writes the log. Call once from robotInit.
+     */
+    public static synchronized void start() {
+        if (drainThread != null) {
+            return;
+        }
+        drainThread = new Thread(Telemetry::drainLoop, "Telemetry");
+        drainThread.setDaemon(true);
+        drainThread.start();
+    }
+
+    /**
+     * Stamp everything logged from now until the next call with the current time. Call once at the start of every loop,
+     * so reading the clock doesn't happen for every value.
+     */
+    public static void startLoop() {
+        loopTimestampMicros = RobotController.getFPGATime();
+    }
+
+    /**
+     * @return How many values have been dropped because the ring buffer was full
+     */
+    public static long getDroppedCount() {
+        return dropped;
+    }
+
+    /**
+     * @return The time everything logged this loop is stamped with, in FPGA microseconds
+     */
+    public static long getLoopTimestampMicros() {
+        return loopTimestampMicros;
+    }
+
+    static void record(int id, double value) {
+        record(id, value, loopTimestampMicros);
+    }
+
+    static void record(int id, double value, long timestampMicros) {
+        long h = head;
+        if (h - tail >= CAPACITY) {
+            dropped++;
+            return;
+        }
+        int slot = (int) (h & MASK);
+        ringIds[slot] = id;
+        ringValues[slot] = value;
+        ringTimestamps[slot] = timestampMicros;
+        head = h + 1;  // Volatile write publishes the slot to the drain thread
+    }
+
+    private static void drainLoop() {
+        ThreadScheduling.configureCurrentThread(ThreadScheduling.Role.BACKGROUND);
+        double[] latestValues = new double[0];
+        boolean[] updated = new boolean[0];
+
+        while (!Thread.currentThread().isInterrupted()) {
+            // Read head before the registry, so every id in the buffer is already in the arrays we read
+            long h = head;
+            DoubleLogEntry[] entries = logEntries;
+            DoublePublisher[] publishers = dashboardPublishers;
+            if (latestValues.length < publishers.length) {
+                latestValues = Arrays.copyOf(latestValues, publishers.length);
+                updated = Arrays.copyOf(updated, publishers.length);
+            }
+
+            for (long t = tail; t < h; t++) {
+                int slot = (int) (t & MASK);
+                int id = ringIds[slot];
+                double value = ringValues[slot];
+                entries[id].append(value, ringTimestamps[slot]);
+                if (publishers[id] != null) {
+                    latestValues[id] = value;
+                    updated[id] = true;
+                }
+            }
+            tail = h;
+
+            for (int id = 0; id < publishers.length; id++) {
+                if (updated[id]) {
+                    publishers[id].set(latestValues[id]);
+                    updated[id] = false;
+                }
+            }
+
+            try {
+                Thread.sleep(DRAIN_PERIOD_MS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private Telemetry() {
+        throw new UnsupportedOperationException("This is a utility class!");
+    }
+}
@@ -0,0 +1,37 @@
+package frc.robot.telemetry;
+
+/**
+ * A handle to one telemetry value, created once with {@link Telemetry#channel(String)} so that logging in the loop
+ * never has to build a string or look anything up.
+ */
+public class TelemetryChannel {
+    final int id;
+    final String name;
+
+    TelemetryChannel(int id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    /**
+     * Record a value for this loop. Only call this from the main robot thread.
+     */
+    public void log(double value) {
+        Telemetry.record(id, value);
+    }
+
+    /**
+     * Record a value for an earlier loop, for things that are only known after the fact. Only call this from the main
+     * robot thread.
+     *
+     * @param timestampMicros FPGA time to stamp it with, usually an earlier loop's
+     *                        {@link Telemetry#getLoopTimestampMicros()}
+     */
+    public void logAt(double value, long timestampMicros) {
+        Telemetry.record(id, value, timestampMicros);
+    }
+
+    public String getName() {
+        return name;
+    }
+}
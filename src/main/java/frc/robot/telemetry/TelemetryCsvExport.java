@@ -0,0 +1,61 @@
+package frc.robot.telemetry;
+
+import edu.wpi.first.util.datalog.DataLogReader;
+import edu.wpi.first.util.datalog.DataLogRecord;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Desktop tool that turns the {@link Telemetry} channels in a data log into a CSV with one row per value:
+ * timestamp in seconds, channel name and value. Other entries in the log are skipped.
+ * <p>
+ * Run it with {@code ./gradlew telemetryCsv -Plog=FRC_20230101_000000.wpilog}, which writes a .csv next to the log.
+ */
+public final class TelemetryCsvExport {
+    public static void main(String... args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: TelemetryCsvExport <log.wpilog> [out.csv]");
+            System.exit(1);
+        }
+        Path logPath = Paths.get(args[0]);
+        Path csvPath = args.length > 1
+                ? Paths.get(args[1])
+                : Paths.get(logPath.toString().replaceFirst("\\.wpilog$", "") + ".csv");
+
+        DataLogReader reader = new DataLogReader(logPath.toString());
+        if (!reader.isValid()) {
+            throw new IOException(logPath + " is not a WPILib data log");
+        }
+
+        Map<Integer, String> channelNames = new HashMap<>();
+        long rows = 0;
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(csvPath))) {
+            out.println("timestamp,channel,value");
+            for (DataLogRecord record : reader) {
+                if (record.isStart()) {
+                    DataLogRecord.StartRecordData start = record.getStartData();
+                    if (start.name.startsWith(Telemetry.LOG_PREFIX) && "double".equals(start.type)) {
+                        channelNames.put(start.entry, start.name.substring(Telemetry.LOG_PREFIX.length()));
+                    }
+                } else if (!record.isControl()) {
+                    String name = channelNames.get(record.getEntry());
+                    if (name != null) {
+                        out.println(record.getTimestamp() / 1e6 + "," + name + "," + record.getDouble());
+                        rows++;
+                    }
+                }
+            }
+        }
+        System.out.println("Wrote " + rows + " values from " + channelNames.size() + " channels to " + csvPath);
+    }
+
+    private TelemetryCsvExport() {
+        throw new UnsupportedOperationException("This is a utility class!");
+    }
+}
@@ -0,0 +1,96 @@
+package frc.robot.trajectory;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.wpilibj.Filesystem;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A trajectory baked at build time by {@code TrajectoryBaker}, memory mapped from the deploy directory. Nothing is
+ * parsed or copied when loading, and sampling reads straight out of the mapping without allocating.
+ */
+public class MappedTrajectory {
+    private final String name;
+    private final MappedByteBuffer buffer;
+    private final int sampleCount;
+    private final double dtSeconds;
+
+    private MappedTrajectory(String name, MappedByteBuffer buffer) throws IOException {
+        this.name = name;
+        this.buffer = buffer;
+        if (buffer.capacity() < TrajectoryFile.HEADER_BYTES || buffer.getInt(0) != TrajectoryFile.MAGIC) {
+            throw new IOException(name + " is not a trajectory file");
+        }
+        sampleCount = buffer.getInt(Integer.BYTES);
+        dtSeconds = buffer.getDouble(2 * Integer.BYTES);
+        long expectedBytes = TrajectoryFile.HEADER_BYTES + (long) sampleCount * TrajectoryFile.SAMPLE_BYTES;
+        if (sampleCount < 1 || dtSeconds <= 0 || buffer.capacity() != expectedBytes) {
+            throw new IOException(name + " is truncated or corrupt");
+        }
+    }
+
+    /**
+     * Map a trajectory from the deploy directory. Do this at startup.
+     *
+     * @param name The path's name in {@link PathDefinitions}
+     */
+    public static MappedTrajectory load(String name) throws IOException {
+        Path file = Filesystem.getDeployDirectory().toPath()
+                .resolve(TrajectoryFile.DIRECTORY)
+                .resolve(name + TrajectoryFile.EXTENSION);
+        return load(name, file);
+    }
+
+    public static MappedTrajectory load(String name, Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            return new MappedTrajectory(name, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getTotalTimeSeconds() {
+        return (sampleCount - 1) * dtSeconds;
+    }
+
+    /**
+     * Interpolate the trajectory at a time. Times before the start or after the end give the first or last sample.
+     *
+     * @param out Filled in with the sample
+     */
+    public void sample(double timeSeconds, TrajectorySample out) {
+        double position = MathUtil.clamp(timeSeconds / dtSeconds, 0, sampleCount - 1);
+        int index = (int) position;
+        int next = Math.min(index + 1, sampleCount - 1);
+        double t = position - index;
+
+        out.xMeters = interpolate(index, next, TrajectoryFile.X, t);
+        out.yMeters = interpolate(index, next, TrajectoryFile.Y, t);
+        out.vxMetersPerSecond = interpolate(index, next, TrajectoryFile.VX, t);
+        out.vyMetersPerSecond = interpolate(index, next, TrajectoryFile.VY, t);
+        out.omegaRadiansPerSecond = interpolate(index, next, TrajectoryFile.OMEGA, t);
+
+        // Interpolate the heading the short way around
+        double start = get(index, TrajectoryFile.HEADING);
+        double change = MathUtil.angleModulus(get(next, TrajectoryFile.HEADING) - start);
+        out.headingRadians = MathUtil.angleModulus(start + change * t);
+    }
+
+    private double interpolate(int index, int next, int field, double t) {
+        double start = get(index, field);
+        return start + (get(next, field) - start) * t;
+    }
+
+    private double get(int sample, int field) {
+        return buffer.getDouble(
+                TrajectoryFile.HEADER_BYTES + sample * TrajectoryFile.SAMPLE_BYTES + field * Double.BYTES
+        );
+    }
+}
@@ -0,0 +1,76 @@
+package frc.robot.trajectory;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+
+import java.util.List;
+
+/**
+ * Every path the robot can follow. {@code TrajectoryBaker} turns these into trajectory files at build time, so adding
+ * a path here is all it takes to be able to {@link MappedTrajectory#load(String)} it on the robot.
+ * <p>
+ * Poses are field relative, in meters, with the robot starting at the origin facing +x. A waypoint's rotation is the
+ * direction the robot is travelling through it, which a swerve drive doesn't have to be facing.
+ */
+public final class PathDefinitions {
+    public static final String LEAVE_AND_TURN = "LeaveAndTurn";
+    public static final String S_CURVE = "SCurve";
+
+    private static final double MAX_VELOCITY_METERS_PER_SECOND = 3;
+    private static final double MAX_ACCELERATION_METERS_PER_SECOND_SQUARED = 2;
+
+    public static final List<PathDefinition> ALL = List.of(
+            new PathDefinition(
+                    LEAVE_AND_TURN,
+                    List.of(
+                            new Pose2d(0, 0, Rotation2d.fromDegrees(0)),
+                            new Pose2d(3.5, 0, Rotation2d.fromDegrees(0))
+                    ),
+                    0, 180,
+                    MAX_VELOCITY_METERS_PER_SECOND, MAX_ACCELERATION_METERS_PER_SECOND_SQUARED
+            ),
+            new PathDefinition(
+                    S_CURVE,
+                    List.of(
+                            new Pose2d(0, 0, Rotation2d.fromDegrees(0)),
+                            new Pose2d(1.5, 0.75, Rotation2d.fromDegrees(45)),
+                            new Pose2d(3, 1.5, Rotation2d.fromDegrees(0))
+                    ),
+                    0, 90,
+                    MAX_VELOCITY_METERS_PER_SECOND, MAX_ACCELERATION_METERS_PER_SECOND_SQUARED
+            )
+    );
+
+    private PathDefinitions() {
+    }
+
+    public static final class PathDefinition {
+        public final String name;
+        public final List<Pose2d> waypoints;
+        public final double startHeadingDegrees;
+        public final double endHeadingDegrees;
+        public final double maxVelocityMetersPerSecond;
+        public final double maxAccelerationMetersPerSecondSquared;
+
+        /**
+         * @param waypoints           Where the path goes, with the direction of travel through each point
+         * @param startHeadingDegrees Which way the robot faces at the start, counterclockwise positive
+         * @param endHeadingDegrees   Which way the robot faces at the end, it turns smoothly along the way
+         */
+        public PathDefinition(
+                String name,
+                List<Pose2d> waypoints,
+                double startHeadingDegrees,
+                double endHeadingDegrees,
+                double maxVelocityMetersPerSecond,
+                double maxAccelerationMetersPerSecondSquared
+        ) {
+            this.name = name;
+            this.waypoints = waypoints;
+            this.startHeadingDegrees = startHeadingDegrees;
+            this.endHeadingDegrees = endHeadingDegrees;
+            this.maxVelocityMetersPerSecond = maxVelocityMetersPerSecond;
+            this.maxAccelerationMetersPerSecondSquared = maxAccelerationMetersPerSecondSquared;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package frc.robot.trajectory;
+
+/**
+ * The binary trajectory format, written by {@code TrajectoryBaker} and read by {@link MappedTrajectory}.
+ * <p>
+ * A header of a magic number, the sample count and the time between samples, followed by the samples, each one being
+ * {@link #FIELDS_PER_SAMPLE} doubles: x, y, heading, vx, vy and omega. Samples are evenly spaced starting at time 0,
+ * so finding one is just a division. Everything is big endian.
+ */
+final class TrajectoryFile {
+    static final int MAGIC = 0x54524A31;  // "TRJ1"
+    static final int HEADER_BYTES = Integer.BYTES + Integer.BYTES + Double.BYTES;
+    static final int FIELDS_PER_SAMPLE = 6;
+    static final int SAMPLE_BYTES = FIELDS_PER_SAMPLE * Double.BYTES;
+
+    static final int X = 0;
+    static final int Y = 1;
+    static final int HEADING = 2;
+    static final int VX = 3;
+    static final int VY = 4;
+    static final int OMEGA = 5;
+
+    static final String DIRECTORY = "trajectories";
+    static final String EXTENSION = ".traj";
+
+    private TrajectoryFile() {
+    }
+}
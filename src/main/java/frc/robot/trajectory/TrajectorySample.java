@@ -0,0 +1,15 @@
+package frc.robot.trajectory;
+
+/**
+ * Where the robot should be and how fast it should be going at one point in a trajectory. Everything is field
+ * relative. {@link MappedTrajectory#sample(double, TrajectorySample)} fills one of these in place, so keep one around
+ * instead of making a new one every loop.
+ */
+public class TrajectorySample {
+    public double xMeters;
+    public double yMeters;
+    public double headingRadians;
+    public double vxMetersPerSecond;
+    public double vyMetersPerSecond;
+    public double omegaRadiansPerSecond;
+}
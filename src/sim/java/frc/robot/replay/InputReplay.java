@@ -0,0 +1,221 @@
+package frc.robot.replay;
+
+import edu.wpi.first.wpilibj.TimedRobot;
+import frc.robot.RobotContainer;
+import frc.robot.commands.DriveCommand;
+import frc.robot.sim.Headless;
+import frc.robot.subsystems.SwerveSubsystem;
+import frc.robot.subsystems.drive.DrivetrainConfig;
+import frc.robot.subsystems.drive.DrivetrainConfigStore;
+import frc.robot.subsystems.drive.FakeSignalBackend;
+import frc.robot.subsystems.drive.SimModuleIO;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Plays a recording from {@link InputRecorder} back through DriveCommand and the swerve subsystem on the desktop, and
+ * checks that they send the modules the same thing they did on the robot.
+ * <p>
+ * Every loop gets the recorded controller and sensor values, then runs the subsystem's periodic and, if it ran on the
+ * robot that loop, DriveCommand. Loops where something else drove, like an auto, replay that command's recorded speeds
+ * instead, so the setpoint generator comes out of them in the same state it did on the robot. DriveCommand is
+ * initialized at the end of the loop before the first one it runs in, like the scheduler does with a default command.
+ * The power budget works from samples that aren't recorded, so its recorded scale is used as is. There's no clock
+ * involved, so it runs as fast as the frames can be read.
+ * <p>
+ * For every loop DriveCommand ran in, the chassis speeds and the module speeds, angles and steer rates are compared to
+ * the recording. Anything off by more than {@link #TOLERANCE} is a mismatch: either the code changed how it drives,
+ * or it depends on something that isn't recorded. Replaying with a different drivetrain config than the robot had is
+ * also a mismatch, so pass the one the robot was using.
+ * <p>
+ * Gaps in the recording, loops that were dropped or overran, are counted. The loops right after a gap can mismatch just
+ * because the loops in the gap are missing. Only enabled loops are recorded, so every time the robot was disabled
+ * shows up as a gap too, but those don't mismatch: nothing drives while disabled, and DriveCommand is initialized
+ * again on the first enabled loop like on the robot.
+ * <p>
+ * Usage: {@code InputReplay <recording> [drivetrain json] [diff csv]}, or
+ * {@code ./gradlew replayInputs -Precording=...}. Exits with 1 if anything mismatched.
+ */
+public final class InputReplay {
+    // Not 0, Math.sin and friends can differ in the last bit between the roboRIO and a desktop
+    private static final double TOLERANCE = 1e-6;
+    private static final double GAP_SECONDS = 1.5 * TimedRobot.kDefaultPeriod;
+
+    private InputReplay() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: InputReplay <recording> [drivetrain json] [diff csv]");
+            System.exit(2);
+        }
+        // Nothing replayed should read the clock, pausing it makes sure anything that does at least sees it stand still
+        Headless.start();
+
+        DrivetrainConfig config = args.length > 1 && !args[1].isEmpty()
+                ? DrivetrainConfig.load(Paths.get(args[1]))
+                : DrivetrainConfig.defaults();
+        PrintStream diff = args.length > 2 ? new PrintStream(Files.newOutputStream(Paths.get(args[2])), false) : null;
+
+        boolean matched;
+        Path recording = Paths.get(args[0]);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(recording)))) {
+            matched = replay(in, config, diff);
+        } finally {
+            if (diff != null) {
+                diff.close();
+            }
+        }
+
+        Headless.exit(matched ? 0 : 1);
+    }
+
+    private static boolean replay(DataInputStream in, DrivetrainConfig config, PrintStream diff) throws IOException {
+        InputLog layout = InputLog.readHeader(in);
+        int moduleCount = layout.getModuleCount();
+        if (moduleCount != config.getModuleCount()) {
+            throw new IOException("Recording has " + moduleCount + " modules, the config has "
+                    + config.getModuleCount());
+        }
+
+        SimModuleIO[] moduleIOs = new SimModuleIO[moduleCount];
+        for (int i = 0; i < moduleCount; i++) {
+            moduleIOs[i] = new SimModuleIO();
+            moduleIOs[i].applyConfig(config, i);
+        }
+        FakeSignalBackend signals = new FakeSignalBackend(moduleCount);
+        SwerveSubsystem swerveSubsystem = new SwerveSubsystem(config, moduleIOs, signals, null);
+        DriverInputs inputs = new DriverInputs(0);
+        DriveCommand driveCommand = RobotContainer.createDriveCommand(
+                swerveSubsystem,
+                inputs,
+                DrivetrainConfigStore.fixed(config)
+        );
+
+        int apply = layout.getApplyIndex();
+        int outputCount = 3 + 3 * moduleCount;  // vx, vy, omega, then the modules
+        int driveCommandRanIndex = layout.getDriveCommandRanIndex();
+        double[] frame = new double[layout.getFrameLength()];
+        double[] next = new double[layout.getFrameLength()];
+        double[] replayed = new double[1 + outputCount];
+        double[] maxErrors = new double[6];  // vx, vy, omega, speed, angle, steer rate
+
+        if (diff != null) {
+            diff.println("loop,timestampSeconds,vxError,vyError,omegaError,maxSpeedError,maxAngleError,"
+                    + "maxSteerRateError");
+        }
+
+        int loops = 0;
+        int driveLoops = 0;
+        int mismatches = 0;
+        int gaps = 0;
+        int firstMismatch = -1;
+        double lastTimestamp = Double.NaN;
+        long start = System.nanoTime();
+        boolean more = readFrame(in, frame);
+        if (more && frame[driveCommandRanIndex] != 0) {
+            // Recording started with it already running
+            driveCommand.initialize();
+        }
+        while (more) {
+            more = readFrame(in, next);
+            double timestamp = frame[InputLog.LOOP_TIMESTAMP];
+            if (timestamp - lastTimestamp > GAP_SECONDS) {
+                gaps++;
+            }
+            lastTimestamp = timestamp;
+
+            inputs.set(timestamp, (int) frame[InputLog.BUTTONS], (int) frame[InputLog.POV], frame, InputLog.AXES);
+            signals.setValues(frame, InputLog.HUB_VALUES, frame[InputLog.HUB_TIMESTAMP]);
+            swerveSubsystem.setPowerScaleOverride(frame[apply]);
+
+            swerveSubsystem.periodic();
+            boolean driveCommandRan = frame[driveCommandRanIndex] != 0;
+            if (driveCommandRan) {
+                driveCommand.execute();
+            } else if (frame[layout.getAppliedIndex()] != 0) {
+                swerveSubsystem.apply(frame[apply + 1], frame[apply + 2], frame[apply + 3]);
+            }
+
+            if (driveCommandRan) {
+                driveLoops++;
+                swerveSubsystem.copyLastApply(replayed, 0);
+                double vxError = Math.abs(replayed[1] - frame[apply + 1]);
+                double vyError = Math.abs(replayed[2] - frame[apply + 2]);
+                double omegaError = Math.abs(replayed[3] - frame[apply + 3]);
+                double speedError = 0;
+                double angleError = 0;
+                double steerRateError = 0;
+                for (int i = 0; i < moduleCount; i++) {
+                    int module = 4 + 3 * i;
+                    speedError = Math.max(speedError, Math.abs(replayed[module] - frame[apply + module]));
+                    angleError = Math.max(angleError, Math.abs(replayed[module + 1] - frame[apply + module + 1]));
+                    steerRateError = Math.max(steerRateError,
+                            Math.abs(replayed[module + 2] - frame[apply + module + 2]));
+                }
+
+                maxErrors[0] = Math.max(maxErrors[0], vxError);
+                maxErrors[1] = Math.max(maxErrors[1], vyError);
+                maxErrors[2] = Math.max(maxErrors[2], omegaError);
+                maxErrors[3] = Math.max(maxErrors[3], speedError);
+                maxErrors[4] = Math.max(maxErrors[4], angleError);
+                maxErrors[5] = Math.max(maxErrors[5], steerRateError);
+                double worst = Math.max(Math.max(Math.max(vxError, vyError), Math.max(omegaError, speedError)),
+                        Math.max(angleError, steerRateError));
+                if (worst > TOLERANCE) {
+                    mismatches++;
+                    if (firstMismatch < 0) {
+                        firstMismatch = loops;
+                    }
+                }
+                if (diff != null) {
+                    diff.println(loops + "," + timestamp + "," + vxError + "," + vyError + "," + omegaError + ","
+                            + speedError + "," + angleError + "," + steerRateError);
+                }
+            }
+            if (more && !driveCommandRan && next[driveCommandRanIndex] != 0) {
+                driveCommand.initialize();
+            }
+
+            double[] swap = frame;
+            frame = next;
+            next = swap;
+            loops++;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.println("Replayed " + loops + " loops in " + seconds + " s (" + Math.round(loops / seconds)
+                + " loops/s), DriveCommand ran in " + driveLoops);
+        System.out.println("Gaps in the recording: " + gaps);
+        System.out.println("Max error: vx " + maxErrors[0] + " m/s, vy " + maxErrors[1] + " m/s, omega "
+                + maxErrors[2] + " rad/s, module speed " + maxErrors[3] + " m/s, angle " + maxErrors[4]
+                + " deg, steer rate " + maxErrors[5] + " deg/s");
+        if (mismatches == 0) {
+            System.out.println("Outputs match the recording");
+        } else {
+            System.out.println(mismatches + " loops mismatched, the first at loop " + firstMismatch);
+        }
+        return mismatches == 0;
+    }
+
+    /**
+     * @return False at the end of the recording. A frame cut short, by the robot losing power mid write, also ends it.
+     */
+    private static boolean readFrame(DataInputStream in, double[] frame) throws IOException {
+        try {
+            for (int i = 0; i < frame.length; i++) {
+                frame[i] = in.readDouble();
+            }
+            return true;
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package frc.robot.sim;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import frc.robot.subsystems.SwerveSubsystem;
+import frc.robot.subsystems.drive.DrivetrainConfig;
+import frc.robot.subsystems.drive.SimSwerveDrive;
+
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Drives the simulated robot as hard as it goes, full speed reversals while spinning, against batteries from fresh to
+ * worn out, with and without the {@link frc.robot.subsystems.drive.PowerBudget}, and reports how far the battery
+ * sagged.
+ * <p>
+ * The rest of the robot draws a steady current from the same battery the whole time, like an intake running, so the
+ * drivetrain doesn't have the battery to itself. The roboRIO browns out below {@link #BROWNOUT_VOLTAGE}, which the
+ * simulation doesn't do, so the time spent there is counted instead. With the budget on, the battery should never go
+ * below the config's minimum for more than a loop or two, at the cost of some distance covered. The budget keeps
+ * the config's battery resistance throughout, so the worn out batteries also show how it copes with that being wrong.
+ * <p>
+ * Usage: {@code BrownoutBenchmark [results csv]}, or {@code ./gradlew simBrownout}. Without a file the CSV goes to
+ * stdout.
+ */
+public final class BrownoutBenchmark {
+    private static final double[] BATTERY_RESISTANCES_OHMS = {0.015, 0.025, 0.035, 0.05};
+    private static final double OTHER_CURRENT_DRAW_AMPS = 40;
+    private static final double BROWNOUT_VOLTAGE = 6.8;
+    private static final double LOOP_PERIOD_SECONDS = 0.02;
+    // Each leg drives one way at full speed, then the next turns straight around
+    private static final double LEG_SECONDS = 1.5;
+    private static final int LEG_COUNT = 6;
+    private static final double SPIN_FRACTION = 0.5;
+
+    private BrownoutBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Headless.start();
+
+        PrintStream out = args.length > 0
+                ? new PrintStream(Files.newOutputStream(Paths.get(args[0])), true)
+                : System.out;
+        out.println("batteryResistanceOhms,powerBudget,minBatteryVoltage,secondsBelowMinimum,secondsBelowBrownout,"
+                + "minPowerScale,distanceMeters");
+        for (double resistance : BATTERY_RESISTANCES_OHMS) {
+            out.println(run(resistance, false));
+            out.println(run(resistance, true));
+        }
+        if (out != System.out) {
+            out.close();
+        }
+
+        Headless.exit(0);
+    }
+
+    private static String run(double batteryResistanceOhms, boolean powerBudget) {
+        DrivetrainConfig config = DrivetrainConfig.defaults();
+        double minimumVoltage = config.getMinimumBatteryVoltage();
+        if (!powerBudget) {
+            config = config.withMinimumBatteryVoltage(0);
+        }
+        SwerveSubsystem swerveSubsystem = SwerveSubsystem.createSimulated(config);
+        SimSwerveDrive simulation = swerveSubsystem.getSimulation();
+        simulation.setBatteryResistance(batteryResistanceOhms);
+        simulation.setOtherCurrentDraw(OTHER_CURRENT_DRAW_AMPS);
+
+        double speed = config.getMaxSpeedMetersPerSecond();
+        double spin = config.getMaxSpinRadiansPerSecond() * SPIN_FRACTION;
+        double secondsBelowMinimum = 0;
+        double secondsBelowBrownout = 0;
+        double minPowerScale = 1;
+        double distance = 0;
+        Pose2d lastPose = simulation.getTruePose();
+
+        int steps = (int) Math.round(LEG_COUNT * LEG_SECONDS / LOOP_PERIOD_SECONDS);
+        for (int step = 0; step < steps; step++) {
+            SimHooks.stepTiming(LOOP_PERIOD_SECONDS);
+            swerveSubsystem.periodic();
+
+            // Field relative, the same as DriveCommand, reversing every leg
+            int leg = (int) (step * LOOP_PERIOD_SECONDS / LEG_SECONDS);
+            double direction = leg % 2 == 0 ? 1 : -1;
+            double heading = Math.toRadians(swerveSubsystem.getYawDegrees());
+            swerveSubsystem.apply(
+                    direction * speed * Math.cos(heading),
+                    -direction * speed * Math.sin(heading),
+                    spin
+            );
+
+            simulation.update(LOOP_PERIOD_SECONDS);
+            double voltage = simulation.getBatteryVoltage();
+            if (voltage < minimumVoltage) {
+                secondsBelowMinimum += LOOP_PERIOD_SECONDS;
+            }
+            if (voltage < BROWNOUT_VOLTAGE) {
+                secondsBelowBrownout += LOOP_PERIOD_SECONDS;
+            }
+            minPowerScale = Math.min(minPowerScale, swerveSubsystem.getPowerScale());
+            Pose2d pose = simulation.getTruePose();
+            distance += pose.getTranslation().getDistance(lastPose.getTranslation());
+            lastPose = pose;
+        }
+
+        return String.join(",",
+                Double.toString(batteryResistanceOhms),
+                powerBudget ? "on" : "off",
+                Double.toString(simulation.getMinBatteryVoltage()),
+                Double.toString(secondsBelowMinimum),
+                Double.toString(secondsBelowBrownout),
+                Double.toString(minPowerScale),
+                Double.toString(distance)
+        );
+    }
+}
@@ -0,0 +1,86 @@
+package frc.robot.sim;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import frc.robot.subsystems.SwerveSubsystem;
+import frc.robot.subsystems.drive.DrivetrainConfig;
+import frc.robot.subsystems.drive.SimSwerveDrive;
+
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Measures how far the robot drifts off a straight line when it translates and spins at the same time, with first and
+ * second order kinematics, at a few loop rates.
+ * <p>
+ * Each run drives field relative along +x while spinning, the way DriveCommand does with both sticks pushed, and
+ * tracks the simulation's true pose rather than odometry, so odometry error doesn't hide or add to the drift. With first
+ * order kinematics the path bends toward the direction of rotation, and more so the slower the loop.
+ * <p>
+ * Usage: {@code DriftBenchmark [results csv]}, or {@code ./gradlew simDrift}. Without a file the CSV goes to stdout.
+ */
+public final class DriftBenchmark {
+    private static final double[] LOOP_PERIODS_SECONDS = {0.005, 0.01, 0.02, 0.04};
+    private static final double SPEED_METERS_PER_SECOND = 2;
+    private static final double SPIN_RADIANS_PER_SECOND = Math.PI;
+    private static final double DURATION_SECONDS = 3;
+
+    private DriftBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Headless.start();
+
+        PrintStream out = args.length > 0
+                ? new PrintStream(Files.newOutputStream(Paths.get(args[0])), true)
+                : System.out;
+        out.println("loopPeriodSeconds,kinematics,finalX,finalY,maxCrossTrackMeters,travelDirectionErrorDegrees");
+        for (double period : LOOP_PERIODS_SECONDS) {
+            out.println(run(period, false));
+            out.println(run(period, true));
+        }
+        if (out != System.out) {
+            out.close();
+        }
+
+        Headless.exit(0);
+    }
+
+    private static String run(double periodSeconds, boolean secondOrder) {
+        SwerveSubsystem swerveSubsystem = SwerveSubsystem.createSimulated(DrivetrainConfig.defaults());
+        swerveSubsystem.setLoopPeriod(periodSeconds);
+        swerveSubsystem.setSecondOrderKinematics(secondOrder);
+        SimSwerveDrive simulation = swerveSubsystem.getSimulation();
+
+        double maxCrossTrack = 0;
+        int steps = (int) Math.round(DURATION_SECONDS / periodSeconds);
+        for (int step = 0; step < steps; step++) {
+            SimHooks.stepTiming(periodSeconds);
+            swerveSubsystem.periodic();
+
+            // Same field to robot relative rotation as DriveCommand
+            double heading = Math.toRadians(swerveSubsystem.getYawDegrees());
+            double cos = Math.cos(heading);
+            double sin = Math.sin(heading);
+            swerveSubsystem.apply(
+                    SPEED_METERS_PER_SECOND * cos,
+                    -SPEED_METERS_PER_SECOND * sin,
+                    SPIN_RADIANS_PER_SECOND
+            );
+
+            simulation.update(periodSeconds);
+            maxCrossTrack = Math.max(maxCrossTrack, Math.abs(simulation.getTruePose().getY()));
+        }
+
+        Pose2d pose = simulation.getTruePose();
+        return String.join(",",
+                Double.toString(periodSeconds),
+                secondOrder ? "second order" : "first order",
+                Double.toString(pose.getX()),
+                Double.toString(pose.getY()),
+                Double.toString(maxCrossTrack),
+                Double.toString(Math.toDegrees(Math.atan2(pose.getY(), pose.getX())))
+        );
+    }
+}
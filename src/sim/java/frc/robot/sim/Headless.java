@@ -0,0 +1,31 @@
+package frc.robot.sim;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+
+/**
+ * Start up and shut down for the desktop tools that run robot code outside of a robot program. The clock is paused, so
+ * each tool steps it itself and runs as fast as the CPU allows instead of in real time.
+ */
+public final class Headless {
+    private Headless() {
+    }
+
+    /**
+     * Initialize the HAL and pause the clock. Call this before building anything that touches the HAL.
+     */
+    public static void start() {
+        if (!HAL.initialize(500, 0)) {
+            throw new IllegalStateException("Failed to initialize the HAL");
+        }
+        SimHooks.pauseTiming();
+    }
+
+    /**
+     * Exit the JVM with the given status, once the tool's output is written.
+     */
+    public static void exit(int status) {
+        // Notifiers and NetworkTables keep threads around, don't wait on them
+        System.exit(status);
+    }
+}
@@ -0,0 +1,134 @@
+package frc.robot.sim;
+
+import java.util.Arrays;
+
+/**
+ * One configuration for the headless simulation to try: steering gains, drive speed and a scripted joystick.
+ * <p>
+ * Written as a single line of whitespace separated fields, so scenario files are easy to generate and each scenario
+ * can be handed to a worker JVM as command line arguments:
+ * <pre>
+ * name steerKP steerKD speedMultiplier durationSeconds time:x,y,spin time:x,y,spin ...
+ * </pre>
+ * The steering gains are in the original percent output per degree units, so the robot's gains are 0.0095 and
+ * 0.00015. Each keyframe sets the joystick (all -1 to 1) from its time until the next keyframe.
+ */
+public final class Scenario {
+    public final String name;
+    public final double steerKP;
+    public final double steerKD;
+    public final double speedMultiplier;
+    public final double durationSeconds;
+
+    private final double[] keyframeTimes;
+    private final double[] movementX;
+    private final double[] movementY;
+    private final double[] spin;
+
+    private Scenario(
+            String name,
+            double steerKP,
+            double steerKD,
+            double speedMultiplier,
+            double durationSeconds,
+            double[] keyframeTimes,
+            double[] movementX,
+            double[] movementY,
+            double[] spin
+    ) {
+        this.name = name;
+        this.steerKP = steerKP;
+        this.steerKD = steerKD;
+        this.speedMultiplier = speedMultiplier;
+        this.durationSeconds = durationSeconds;
+        this.keyframeTimes = keyframeTimes;
+        this.movementX = movementX;
+        this.movementY = movementY;
+        this.spin = spin;
+    }
+
+    /**
+     * @param fields A scenario line split on whitespace
+     */
+    public static Scenario parse(String[] fields) {
+        if (fields.length < 6) {
+            throw new IllegalArgumentException("Scenario needs a name, gains, speed, duration and keyframes: "
+                    + String.join(" ", fields));
+        }
+        int keyframeCount = fields.length - 5;
+        double[] times = new double[keyframeCount];
+        double[] x = new double[keyframeCount];
+        double[] y = new double[keyframeCount];
+        double[] spin = new double[keyframeCount];
+        for (int i = 0; i < keyframeCount; i++) {
+            String keyframe = fields[i + 5];
+            int colon = keyframe.indexOf(':');
+            String[] axes = keyframe.substring(colon + 1).split(",");
+            if (colon < 0 || axes.length != 3) {
+                throw new IllegalArgumentException("Keyframe should be time:x,y,spin, not " + keyframe);
+            }
+            times[i] = Double.parseDouble(keyframe.substring(0, colon));
+            x[i] = Double.parseDouble(axes[0]);
+            y[i] = Double.parseDouble(axes[1]);
+            spin[i] = Double.parseDouble(axes[2]);
+            if (i > 0 && times[i] < times[i - 1]) {
+                throw new IllegalArgumentException("Keyframes are out of order: " + keyframe);
+            }
+        }
+        return new Scenario(
+                fields[0],
+                Double.parseDouble(fields[1]),
+                Double.parseDouble(fields[2]),
+                Double.parseDouble(fields[3]),
+                Double.parseDouble(fields[4]),
+                times, x, y, spin
+        );
+    }
+
+    public static Scenario parse(String line) {
+        return parse(line.trim().split("\\s+"));
+    }
+
+    /**
+     * @return The fields to pass to {@link #parse(String[])} to get this scenario back
+     */
+    public String[] toFields() {
+        String[] fields = new String[5 + keyframeTimes.length];
+        fields[0] = name;
+        fields[1] = Double.toString(steerKP);
+        fields[2] = Double.toString(steerKD);
+        fields[3] = Double.toString(speedMultiplier);
+        fields[4] = Double.toString(durationSeconds);
+        for (int i = 0; i < keyframeTimes.length; i++) {
+            fields[i + 5] = keyframeTimes[i] + ":" + movementX[i] + "," + movementY[i] + "," + spin[i];
+        }
+        return fields;
+    }
+
+    /**
+     * @return Which keyframe is active at the time, or -1 before the first one
+     */
+    public int keyframeAt(double timeSeconds) {
+        int index = Arrays.binarySearch(keyframeTimes, timeSeconds);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    /**
+     * @return When the joystick last changes, which is where settling time is measured from
+     */
+    public double getLastKeyframeTime() {
+        return keyframeTimes[keyframeTimes.length - 1];
+    }
+
+    public double getMovementX(int keyframe) {
+        return keyframe < 0 ? 0 : movementX[keyframe];
+    }
+
+    public double getMovementY(int keyframe) {
+        return keyframe < 0 ? 0 : movementY[keyframe];
+    }
+
+    public double getSpin(int keyframe) {
+        return keyframe < 0 ? 0 : spin[keyframe];
+    }
+}
@@ -0,0 +1,161 @@
+package frc.robot.sim;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a batch of {@link Scenario}s in simulation, one JVM per scenario and as many at once as there are cores, and
+ * writes each scenario's settling time and tracking error to a CSV.
+ * <p>
+ * Usage: {@code ScenarioRunner [scenario file] [results csv]}. Without a scenario file (or with an empty path) it
+ * sweeps the steering gains and speed multiplier around the robot's current values. In a scenario file, blank lines
+ * and lines starting with # are skipped, everything else is a scenario in the format described in {@link Scenario}.
+ */
+public final class ScenarioRunner {
+    private static final long SCENARIO_TIMEOUT_SECONDS = 120;
+
+    private ScenarioRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<Scenario> scenarios = args.length > 0 && !args[0].isEmpty() ? readScenarios(Paths.get(args[0])) : defaultScenarios();
+        PrintStream out = args.length > 1
+                ? new PrintStream(Files.newOutputStream(Paths.get(args[1])), true, StandardCharsets.UTF_8)
+                : System.out;
+
+        long start = System.nanoTime();
+        int workers = Runtime.getRuntime().availableProcessors();
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        List<Future<String>> results = new ArrayList<>();
+        for (Scenario scenario : scenarios) {
+            results.add(pool.submit(() -> runInNewJvm(scenario)));
+        }
+        pool.shutdown();
+
+        int failures = 0;
+        out.println(ScenarioWorker.RESULT_HEADER);
+        for (int i = 0; i < scenarios.size(); i++) {
+            try {
+                out.println(results.get(i).get());
+            } catch (Exception e) {
+                failures++;
+                System.err.println("Scenario " + scenarios.get(i).name + " failed: " + e.getCause());
+            }
+        }
+        System.err.printf("Ran %d scenarios on %d workers in %.1f s, %d failed%n",
+                scenarios.size(), workers, (System.nanoTime() - start) / 1e9, failures);
+        if (out != System.out) {
+            out.close();
+        }
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static String runInNewJvm(Scenario scenario) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-Djava.library.path=" + System.getProperty("java.library.path"));
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(ScenarioWorker.class.getName());
+        command.addAll(List.of(scenario.toFields()));
+
+        // The output goes to a file rather than a pipe, so the worker never blocks on a full pipe and nothing has to
+        // read it while we wait, which leaves the timeout free to cut off a worker that hangs
+        Path outputFile = Files.createTempFile("scenario-", ".log");
+        try {
+            Process process = new ProcessBuilder(command)
+                    .redirectErrorStream(true)
+                    .redirectOutput(outputFile.toFile())
+                    .redirectInput(ProcessBuilder.Redirect.from(new File(nullDevice())))
+                    .start();
+            if (!process.waitFor(SCENARIO_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                // Wait for it to die so it lets go of the output file
+                process.destroyForcibly().waitFor();
+                throw new IOException("Timed out after " + SCENARIO_TIMEOUT_SECONDS + " s:\n" + readOutput(outputFile));
+            }
+
+            // Keep the rest of the output around for error messages
+            String result = null;
+            StringBuilder output = new StringBuilder();
+            for (String line : readOutput(outputFile).split("\\R")) {
+                if (line.startsWith(ScenarioWorker.RESULT_PREFIX)) {
+                    result = line.substring(ScenarioWorker.RESULT_PREFIX.length());
+                } else {
+                    output.append(line).append('\n');
+                }
+            }
+            if (result == null) {
+                throw new IOException("No result, exit code " + process.exitValue() + ":\n" + output);
+            }
+            return result;
+        } finally {
+            Files.deleteIfExists(outputFile);
+        }
+    }
+
+    /**
+     * @return Everything the worker wrote. Unlike reading lines, this doesn't throw on output that was cut off partway
+     * through a character by a crash or a kill
+     */
+    private static String readOutput(Path outputFile) throws IOException {
+        return new String(Files.readAllBytes(outputFile), StandardCharsets.UTF_8);
+    }
+
+    private static String nullDevice() {
+        return System.getProperty("os.name").startsWith("Windows") ? "NUL" : "/dev/null";
+    }
+
+    private static List<Scenario> readScenarios(Path file) throws IOException {
+        List<Scenario> scenarios = new ArrayList<>();
+        for (String line : Files.readAllLines(file)) {
+            String trimmed = line.trim();
+            if (!trimmed.isEmpty() && !trimmed.startsWith("#")) {
+                scenarios.add(Scenario.parse(trimmed));
+            }
+        }
+        return scenarios;
+    }
+
+    /**
+     * Every combination of a few steering gains and speeds around the current ones, each driving a step forward and
+     * then strafing while spinning.
+     */
+    private static List<Scenario> defaultScenarios() {
+        double[] steerKPs = {0.006, 0.0095, 0.013};
+        double[] steerKDs = {0, 0.00015, 0.0003};
+        double[] speedMultipliers = {2, 4};
+        String[] scripts = {
+                "forward 3 0:1,0,0 1.5:0,0,0",
+                "strafe-spin 4 0:0,1,0 1:0,1,1 2.5:0,0,0"
+        };
+
+        List<Scenario> scenarios = new ArrayList<>();
+        for (String script : scripts) {
+            String[] parts = script.split(" ", 3);
+            for (double kP : steerKPs) {
+                for (double kD : steerKDs) {
+                    for (double speedMultiplier : speedMultipliers) {
+                        String name = parts[0] + "-kP" + kP + "-kD" + kD + "-speed" + speedMultiplier;
+                        scenarios.add(Scenario.parse(
+                                name + " " + kP + " " + kD + " " + speedMultiplier + " " + parts[1] + " " + parts[2]
+                        ));
+                    }
+                }
+            }
+        }
+        return scenarios;
+    }
+}
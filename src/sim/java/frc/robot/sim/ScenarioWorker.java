@@ -0,0 +1,121 @@
+package frc.robot.sim;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.commands.DriveCommand;
+import frc.robot.subsystems.SwerveSubsystem;
+import frc.robot.subsystems.drive.DrivetrainConfig;
+import frc.robot.subsystems.drive.DrivetrainConfigStore;
+import frc.robot.subsystems.drive.SimModuleIO;
+import frc.robot.subsystems.drive.SimSwerveDrive;
+
+/**
+ * Runs one {@link Scenario} on the simulated drivetrain and prints its metrics. The clock is paused and stepped one
+ * robot period at a time, so a scenario runs as fast as the CPU allows instead of in real time.
+ * <p>
+ * The HAL, the command scheduler and the subsystems are all process wide, so each scenario gets its own JVM, started
+ * by {@link ScenarioRunner}.
+ */
+public final class ScenarioWorker {
+    static final String RESULT_PREFIX = "RESULT ";
+    static final String RESULT_HEADER = "name,steerKP,steerKD,speedMultiplier,settlingSeconds,"
+            + "driveRmsErrorMetersPerSecond,steerRmsErrorDegrees,maxSteerErrorDegrees,finalX,finalY,finalHeadingDegrees";
+
+    // What counts as settled
+    private static final double DRIVE_TOLERANCE_METERS_PER_SECOND = 0.1;
+    private static final double STEER_TOLERANCE_DEGREES = 2;
+
+    // The robot's gains are per degree of percent output, the module's are per rotation of volts
+    private static final double GAIN_TO_VOLTS_PER_ROTATION = 360 * 12;
+
+    private ScenarioWorker() {
+    }
+
+    public static void main(String[] args) {
+        Scenario scenario = Scenario.parse(args);
+        Headless.start();
+        DriverStationSim.setEnabled(true);
+        DriverStationSim.notifyNewData();
+
+        System.out.println(RESULT_PREFIX + run(scenario));
+        System.out.flush();
+
+        Headless.exit(0);
+    }
+
+    private static String run(Scenario scenario) {
+        DrivetrainConfig config = DrivetrainConfig.defaults().withMaxSpeed(scenario.speedMultiplier);
+        SwerveSubsystem swerveSubsystem = SwerveSubsystem.createSimulated(config);
+        SimSwerveDrive simulation = swerveSubsystem.getSimulation();
+        for (int i = 0; i < simulation.getModuleCount(); i++) {
+            simulation.getModule(i).setSteerGains(
+                    scenario.steerKP * GAIN_TO_VOLTS_PER_ROTATION,
+                    scenario.steerKD * GAIN_TO_VOLTS_PER_ROTATION
+            );
+        }
+
+        double[] time = new double[1];
+        swerveSubsystem.setDefaultCommand(new DriveCommand(
+                swerveSubsystem,
+                swerveSubsystem::getYawDegrees,
+                () -> scenario.getSpin(scenario.keyframeAt(time[0])),
+                () -> scenario.getMovementX(scenario.keyframeAt(time[0])),
+                () -> scenario.getMovementY(scenario.keyframeAt(time[0])),
+                DrivetrainConfigStore.fixed(config)
+        ));
+
+        CommandScheduler scheduler = CommandScheduler.getInstance();
+        double driveSquaredError = 0;
+        double steerSquaredError = 0;
+        double maxSteerError = 0;
+        int samples = 0;
+        double lastUnsettledTime = scenario.getLastKeyframeTime();
+
+        int steps = (int) Math.round(scenario.durationSeconds / TimedRobot.kDefaultPeriod);
+        for (int step = 0; step < steps; step++) {
+            time[0] = step * TimedRobot.kDefaultPeriod;
+            SimHooks.stepTiming(TimedRobot.kDefaultPeriod);
+            scheduler.run();
+
+            boolean settled = true;
+            for (int i = 0; i < simulation.getModuleCount(); i++) {
+                SimModuleIO module = simulation.getModule(i);
+                double driveError = module.getDriveErrorMetersPerSecond();
+                double steerError = module.getSteerErrorDegrees();
+                driveSquaredError += driveError * driveError;
+                steerSquaredError += steerError * steerError;
+                maxSteerError = Math.max(maxSteerError, Math.abs(steerError));
+                samples++;
+                settled &= Math.abs(driveError) < DRIVE_TOLERANCE_METERS_PER_SECOND
+                        && Math.abs(steerError) < STEER_TOLERANCE_DEGREES;
+            }
+            if (!settled && time[0] >= scenario.getLastKeyframeTime()) {
+                lastUnsettledTime = time[0];
+            }
+        }
+
+        // Never settling is reported as NaN rather than as the scenario length
+        double endTime = (steps - 1) * TimedRobot.kDefaultPeriod;
+        double settlingSeconds = lastUnsettledTime >= endTime
+                ? Double.NaN
+                : lastUnsettledTime - scenario.getLastKeyframeTime();
+
+        Pose2d pose = swerveSubsystem.getPose();
+        return String.join(",",
+                scenario.name,
+                Double.toString(scenario.steerKP),
+                Double.toString(scenario.steerKD),
+                Double.toString(scenario.speedMultiplier),
+                Double.toString(settlingSeconds),
+                Double.toString(Math.sqrt(driveSquaredError / Math.max(samples, 1))),
+                Double.toString(Math.sqrt(steerSquaredError / Math.max(samples, 1))),
+                Double.toString(maxSteerError),
+                Double.toString(pose.getX()),
+                Double.toString(pose.getY()),
+                Double.toString(pose.getRotation().getDegrees())
+        );
+    }
+}
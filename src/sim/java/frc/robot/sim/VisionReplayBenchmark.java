@@ -0,0 +1,214 @@
+package frc.robot.sim;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import frc.robot.subsystems.SwerveSubsystem;
+import frc.robot.subsystems.drive.DrivetrainConfig;
+import frc.robot.subsystems.drive.SimSwerveDrive;
+import frc.robot.subsystems.drive.VisionIngest;
+
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Replays recorded tag detections into the simulated robot while it drives, and measures how well vision pulls a wrong
+ * starting pose back to the truth and how many detections get thrown out.
+ * <p>
+ * Every run drives the same wandering path, field relative while turning, starting from {@link #START}. The odometry is
+ * started off by a few different amounts, like a robot placed carelessly or pushed before the match, and each start is
+ * run once with the camera and once without. Errors are against the simulation's true pose.
+ * <p>
+ * If the detections file doesn't exist, one is recorded first: the true pose at 30 frames per second with noise that
+ * grows with tag distance, 30 to 100 ms of latency, and every {@link #OUTLIER_EVERY}th frame a bad solve a few meters
+ * off. It's seeded, so it's the same every time. Detections recorded from the robot's own log can be dropped in
+ * instead, as long as they were taken driving this same path.
+ * <p>
+ * Usage: {@code VisionReplayBenchmark <detections csv> [results csv]}, or {@code ./gradlew simVision}. Without a
+ * results file the CSV goes to stdout.
+ */
+public final class VisionReplayBenchmark {
+    private static final Pose2d START = new Pose2d(3, 4, new Rotation2d());
+    private static final double[] START_ERRORS_METERS = {0, 0.5, 1.5};
+    private static final double LOOP_PERIOD_SECONDS = 0.02;
+    private static final double DURATION_SECONDS = 10;
+    private static final double CONVERGED_METERS = 0.1;
+
+    private static final double FRAME_PERIOD_SECONDS = 1.0 / 30;
+    private static final int OUTLIER_EVERY = 20;
+    private static final long SEED = 2023;
+
+    private VisionReplayBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: VisionReplayBenchmark <detections csv> [results csv]");
+            System.exit(2);
+        }
+        Headless.start();
+
+        Path detections = Paths.get(args[0]);
+        if (!Files.exists(detections)) {
+            record(detections);
+            System.err.println("Recorded detections to " + detections);
+        }
+
+        PrintStream out = args.length > 1
+                ? new PrintStream(Files.newOutputStream(Paths.get(args[1])), true)
+                : System.out;
+        out.println("startErrorMeters,vision,finalErrorMeters,maxErrorLastSecondMeters,secondsToConverge,"
+                + "accepted,rejected");
+        for (double startError : START_ERRORS_METERS) {
+            out.println(run(startError, null));
+            out.println(run(startError, detections));
+        }
+        if (out != System.out) {
+            out.close();
+        }
+
+        Headless.exit(0);
+    }
+
+    /**
+     * Drive the path with perfect odometry and write out what a camera would have seen.
+     */
+    private static void record(Path file) throws Exception {
+        SwerveSubsystem swerveSubsystem = SwerveSubsystem.createSimulated(DrivetrainConfig.defaults());
+        SimSwerveDrive simulation = swerveSubsystem.getSimulation();
+        Random random = new Random(SEED);
+
+        // At most one frame a loop, since the camera is slower than the loop
+        int steps = (int) Math.round(DURATION_SECONDS / LOOP_PERIOD_SECONDS);
+        double[] captures = new double[steps];
+        double[] latencies = new double[steps];
+        double[] xs = new double[steps];
+        double[] ys = new double[steps];
+        double[] thetas = new double[steps];
+        int[] tagCounts = new int[steps];
+        double[] distances = new double[steps];
+
+        int frames = 0;
+        double nextFrame = 0;
+        double lastArrival = 0;
+        for (int step = 0; step < steps; step++) {
+            drive(swerveSubsystem, simulation, step * LOOP_PERIOD_SECONDS);
+
+            // The physics after this step is what odometry samples at the start of the loop after next, so that's when
+            // this frame was captured, counting from when the replay starts
+            double capture = (step + 2) * LOOP_PERIOD_SECONDS;
+            if (capture < nextFrame) {
+                continue;
+            }
+            nextFrame += FRAME_PERIOD_SECONDS;
+
+            Pose2d truth = fieldPose(simulation.getTruePose());
+            double distance = 1.5 + 3.5 * random.nextDouble();
+            int tagCount = 1 + random.nextInt(3);
+            double noise = 0.03 * distance * distance / tagCount;
+            captures[frames] = capture;
+            // A camera processes frames in order, so one never arrives before the frame ahead of it
+            lastArrival = Math.max(lastArrival, capture + 0.03 + 0.07 * random.nextDouble());
+            latencies[frames] = lastArrival - capture;
+            xs[frames] = truth.getX() + noise * random.nextGaussian();
+            ys[frames] = truth.getY() + noise * random.nextGaussian();
+            thetas[frames] = truth.getRotation().getDegrees() + 2 * random.nextGaussian();
+            if (frames % OUTLIER_EVERY == OUTLIER_EVERY - 1) {
+                xs[frames] += 3;
+                ys[frames] -= 2;
+            }
+            tagCounts[frames] = tagCount;
+            distances[frames] = distance;
+            frames++;
+        }
+        ReplayCamera.write(
+                file,
+                Arrays.copyOf(captures, frames),
+                Arrays.copyOf(latencies, frames),
+                Arrays.copyOf(xs, frames),
+                Arrays.copyOf(ys, frames),
+                Arrays.copyOf(thetas, frames),
+                Arrays.copyOf(tagCounts, frames),
+                Arrays.copyOf(distances, frames)
+        );
+    }
+
+    private static String run(double startErrorMeters, Path detections) throws Exception {
+        SwerveSubsystem swerveSubsystem = SwerveSubsystem.createSimulated(DrivetrainConfig.defaults());
+        SimSwerveDrive simulation = swerveSubsystem.getSimulation();
+        VisionIngest vision = swerveSubsystem.getVisionIngest();
+        // Off diagonally, so both x and y have to be corrected
+        double offset = startErrorMeters / Math.sqrt(2);
+        swerveSubsystem.resetPose(new Pose2d(START.getX() + offset, START.getY() - offset, START.getRotation()));
+
+        ReplayCamera camera = null;
+        if (detections != null) {
+            camera = ReplayCamera.load(detections, vision);
+            camera.restart(Timer.getFPGATimestamp());
+        }
+
+        double maxErrorLastSecond = 0;
+        double lastUnconverged = 0;
+        double error = startErrorMeters;
+        int steps = (int) Math.round(DURATION_SECONDS / LOOP_PERIOD_SECONDS);
+        for (int step = 0; step < steps; step++) {
+            double time = step * LOOP_PERIOD_SECONDS;
+            if (camera != null) {
+                camera.poll(Timer.getFPGATimestamp());
+            }
+            drive(swerveSubsystem, simulation, time);
+
+            Pose2d truth = fieldPose(simulation.getTruePose());
+            error = swerveSubsystem.getPose().getTranslation().getDistance(truth.getTranslation());
+            if (error > CONVERGED_METERS) {
+                lastUnconverged = time + LOOP_PERIOD_SECONDS;
+            }
+            if (time >= DURATION_SECONDS - 1) {
+                maxErrorLastSecond = Math.max(maxErrorLastSecond, error);
+            }
+        }
+
+        return String.join(",",
+                Double.toString(startErrorMeters),
+                detections != null ? "on" : "off",
+                Double.toString(error),
+                Double.toString(maxErrorLastSecond),
+                // Never converging is NaN rather than the run length, same as the scenario settling time
+                Double.toString(lastUnconverged >= DURATION_SECONDS ? Double.NaN : lastUnconverged),
+                Integer.toString(vision.getAcceptedCount()),
+                Integer.toString(vision.getRejectedCount())
+        );
+    }
+
+    /**
+     * One loop: refresh, drive the path field relative, step the physics.
+     */
+    private static void drive(SwerveSubsystem swerveSubsystem, SimSwerveDrive simulation, double time) {
+        SimHooks.stepTiming(LOOP_PERIOD_SECONDS);
+        swerveSubsystem.periodic();
+
+        double fieldX = 1.5 * Math.cos(0.6 * time);
+        double fieldY = 1.2 * Math.sin(0.9 * time);
+        double heading = Math.toRadians(swerveSubsystem.getYawDegrees());
+        double cos = Math.cos(heading);
+        double sin = Math.sin(heading);
+        swerveSubsystem.apply(fieldX * cos + fieldY * sin, -fieldX * sin + fieldY * cos, 0.5);
+
+        simulation.update(LOOP_PERIOD_SECONDS);
+    }
+
+    /**
+     * The simulation starts at the origin, the path starts at {@link #START}.
+     */
+    private static Pose2d fieldPose(Pose2d simulated) {
+        return new Pose2d(
+                simulated.getTranslation().plus(START.getTranslation()),
+                simulated.getRotation().plus(START.getRotation())
+        );
+    }
+}
@@ -0,0 +1,49 @@
+package frc.robot.subsystems.drive;
+
+import java.util.List;
+
+/**
+ * Mocked module hardware. It only remembers the last setpoints, so benchmarks and tests measure our code and not the
+ * CAN stack. Pair it with a {@link FakeSignalBackend} for the sensor side.
+ */
+public class NoopModuleIO implements SwerveModuleIO {
+    public double driveVelocity;
+    public double steerPosition;
+    public double driveDutyCycle;
+    public double driveVoltage;
+    public double steerVoltage;
+
+    @Override
+    public List<DeviceConfig> getDeviceConfigs() {
+        return List.of();
+    }
+
+    @Override
+    public void applyConfig(DrivetrainConfig config, int module) {
+    }
+
+    @Override
+    public void setDriveVelocity(double wheelRotationsPerSecond) {
+        driveVelocity = wheelRotationsPerSecond;
+    }
+
+    @Override
+    public void setSteerPosition(double moduleRotations, double moduleRotationsPerSecond) {
+        steerPosition = moduleRotations;
+    }
+
+    @Override
+    public void setDriveDutyCycle(double dutyCycle) {
+        driveDutyCycle = dutyCycle;
+    }
+
+    @Override
+    public void setDriveVoltage(double volts) {
+        driveVoltage = volts;
+    }
+
+    @Override
+    public void setSteerVoltage(double volts) {
+        steerVoltage = volts;
+    }
+}
@@ -0,0 +1,66 @@
+package frc.robot.sysid;
+
+import edu.wpi.first.util.datalog.DataLogReader;
+import edu.wpi.first.util.datalog.DataLogRecord;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Desktop tool that fits feedforward gains from the {@link SysIdLogger} entries in a data log, with the same fit the
+ * robot runs. Use it to refit a run after the fact, or to combine runs by passing several logs.
+ * <p>
+ * Run it with {@code ./gradlew sysidFit -Plog=FRC_20230101_000000.wpilog}, with several logs separated by commas.
+ */
+public final class SysIdFit {
+    public static void main(String... args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: SysIdFit <log.wpilog>...");
+            System.exit(1);
+        }
+
+        // Keyed by entry name so the same module from several logs goes into one fit
+        Map<String, FeedforwardFit> fits = new TreeMap<>();
+        for (String path : args) {
+            DataLogReader reader = new DataLogReader(path);
+            if (!reader.isValid()) {
+                throw new IOException(path + " is not a WPILib data log");
+            }
+
+            Map<Integer, FeedforwardFit> fitsByEntry = new TreeMap<>();
+            for (DataLogRecord record : reader) {
+                if (record.isStart()) {
+                    DataLogRecord.StartRecordData start = record.getStartData();
+                    if (start.name.startsWith(SysIdLogger.LOG_PREFIX) && "double[]".equals(start.type)) {
+                        String name = start.name.substring(SysIdLogger.LOG_PREFIX.length());
+                        fitsByEntry.put(start.entry, fits.computeIfAbsent(name, n -> new FeedforwardFit()));
+                    }
+                } else if (!record.isControl()) {
+                    FeedforwardFit fit = fitsByEntry.get(record.getEntry());
+                    if (fit != null) {
+                        double[] values = record.getDoubleArray();
+                        fit.add((int) values[0], record.getTimestamp() / 1e6, values[1], values[3]);
+                    }
+                }
+            }
+            // A new log starts a new run, don't take acceleration across the gap
+            for (FeedforwardFit fit : fitsByEntry.values()) {
+                fit.add(0, 0, 0, 0);
+            }
+        }
+
+        if (fits.isEmpty()) {
+            System.out.println("No system identification data in the log");
+            return;
+        }
+        for (Map.Entry<String, FeedforwardFit> entry : fits.entrySet()) {
+            FeedforwardFit.Result result = entry.getValue().solve();
+            System.out.println(entry.getKey() + ": " + (result == null ? "not enough data to fit" : result));
+        }
+    }
+
+    private SysIdFit() {
+        throw new UnsupportedOperationException("This is a utility class!");
+    }
+}
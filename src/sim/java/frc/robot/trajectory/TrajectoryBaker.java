@@ -0,0 +1,93 @@
+package frc.robot.trajectory;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.trajectory.Trajectory;
+import edu.wpi.first.math.trajectory.TrajectoryConfig;
+import edu.wpi.first.math.trajectory.TrajectoryGenerator;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Generates every path in {@link PathDefinitions} and writes it in the {@link TrajectoryFile} format. This runs on the
+ * desktop as part of the build ({@code ./gradlew generateTrajectories}), so the robot never generates splines itself.
+ * <p>
+ * The translation follows WPILib's spline trajectory. The heading is independent of the direction of travel and eases
+ * from the start heading to the end heading over the whole path, with no angular velocity at either end.
+ */
+public final class TrajectoryBaker {
+    // One sample per robot loop
+    static final double SAMPLE_PERIOD_SECONDS = 0.02;
+
+    private TrajectoryBaker() {
+    }
+
+    /**
+     * @param args The directory to write the trajectories into
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: TrajectoryBaker <output directory>");
+            System.exit(2);
+        }
+        Path directory = Paths.get(args[0]);
+        Files.createDirectories(directory);
+        for (PathDefinitions.PathDefinition path : PathDefinitions.ALL) {
+            Path file = directory.resolve(path.name + TrajectoryFile.EXTENSION);
+            int samples = bake(path, file);
+            System.out.printf("%s: %d samples%n", file, samples);
+        }
+    }
+
+    /**
+     * @return How many samples were written
+     */
+    static int bake(PathDefinitions.PathDefinition path, Path file) throws IOException {
+        Trajectory trajectory = TrajectoryGenerator.generateTrajectory(
+                path.waypoints,
+                new TrajectoryConfig(path.maxVelocityMetersPerSecond, path.maxAccelerationMetersPerSecondSquared)
+        );
+        double totalTime = trajectory.getTotalTimeSeconds();
+        int sampleCount = (int) Math.ceil(totalTime / SAMPLE_PERIOD_SECONDS) + 1;
+
+        double startHeading = Math.toRadians(path.startHeadingDegrees);
+        double headingChange = MathUtil.angleModulus(Math.toRadians(path.endHeadingDegrees) - startHeading);
+        // Turning exactly 180 degrees is ambiguous, angleModulus picks -180, prefer the direction given
+        if (Math.abs(Math.abs(headingChange) - Math.PI) < 1e-9) {
+            headingChange = Math.copySign(Math.PI, path.endHeadingDegrees - path.startHeadingDegrees);
+        }
+
+        // Write to a temporary file and move it into place, so the deploy never picks up half a trajectory
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(TrajectoryFile.MAGIC);
+            out.writeInt(sampleCount);
+            out.writeDouble(SAMPLE_PERIOD_SECONDS);
+
+            for (int i = 0; i < sampleCount; i++) {
+                double time = Math.min(i * SAMPLE_PERIOD_SECONDS, totalTime);
+                Trajectory.State state = trajectory.sample(time);
+                double direction = state.poseMeters.getRotation().getRadians();
+
+                // Smoothstep, 3u^2 - 2u^3, and its derivative
+                double u = totalTime > 0 ? time / totalTime : 1;
+                double heading = startHeading + headingChange * (3 * u * u - 2 * u * u * u);
+                double omega = totalTime > 0 ? headingChange * (6 * u - 6 * u * u) / totalTime : 0;
+
+                out.writeDouble(state.poseMeters.getX());
+                out.writeDouble(state.poseMeters.getY());
+                out.writeDouble(MathUtil.angleModulus(heading));
+                out.writeDouble(state.velocityMetersPerSecond * Math.cos(direction));
+                out.writeDouble(state.velocityMetersPerSecond * Math.sin(direction));
+                out.writeDouble(omega);
+            }
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return sampleCount;
+    }
+}
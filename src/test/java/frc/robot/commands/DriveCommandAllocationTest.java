@@ -0,0 +1,94 @@
+package frc.robot.commands;
+
+import com.sun.management.ThreadMXBean;
+import edu.wpi.first.hal.HAL;
+import frc.robot.subsystems.SwerveSubsystem;
+import frc.robot.subsystems.drive.DrivetrainConfig;
+import frc.robot.subsystems.drive.DrivetrainConfigStore;
+import frc.robot.subsystems.drive.FakeSignalBackend;
+import frc.robot.subsystems.drive.HeadingProvider;
+import frc.robot.subsystems.drive.NoopModuleIO;
+import frc.robot.subsystems.drive.SignalHub;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The drive path, from DriveCommand's execute through SwerveSubsystem's apply to the modules, must not allocate once
+ * it's warmed up, or the garbage it makes turns into collector pauses mid match.
+ * <p>
+ * Odometry runs on its own thread like on the robot, so the pose estimator's allocations don't count against the main
+ * thread. Only the main thread's allocations are measured.
+ */
+class DriveCommandAllocationTest {
+    // Enough for the JIT to compile and inline the whole path, so escape analysis has had its chance
+    private static final int WARMUP_LOOPS = 50_000;
+    private static final int LOOPS = 10_000;
+
+    @BeforeAll
+    static void initializeHal() {
+        assertTrue(HAL.initialize(500, 0));
+    }
+
+    @Test
+    void drivingDoesNotAllocate() {
+        NoopModuleIO[] moduleIOs = {new NoopModuleIO(), new NoopModuleIO(), new NoopModuleIO(), new NoopModuleIO()};
+        FakeSignalBackend signalBackend = new FakeSignalBackend(moduleIOs.length);
+        SwerveSubsystem swerveSubsystem = new SwerveSubsystem(moduleIOs, signalBackend);
+        swerveSubsystem.startOdometryThread();
+
+        // Spinning from the stick some loops and holding or snapping the heading others, so every branch is covered
+        double[] spin = {0};
+        double[] snap = {Double.NaN};
+        HeadingProvider heading = swerveSubsystem.getHeading();
+        DriveCommand driveCommand = new DriveCommand(
+                swerveSubsystem,
+                heading::getContinuousDegrees,
+                () -> spin[0],
+                () -> 0.8,
+                () -> -0.25,
+                () -> snap[0],
+                DrivetrainConfigStore.fixed(DrivetrainConfig.defaults())
+        );
+        driveCommand.initialize();
+
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        runLoops(swerveSubsystem, signalBackend, driveCommand, spin, snap, 0, WARMUP_LOOPS);
+
+        // Reading the counter can allocate by itself, take that out of the measurement
+        long overheadStart = threads.getThreadAllocatedBytes(thread);
+        long overhead = threads.getThreadAllocatedBytes(thread) - overheadStart;
+
+        long before = threads.getThreadAllocatedBytes(thread);
+        runLoops(swerveSubsystem, signalBackend, driveCommand, spin, snap, WARMUP_LOOPS, LOOPS);
+        long allocated = threads.getThreadAllocatedBytes(thread) - before - overhead;
+
+        assertEquals(0, allocated, "Bytes allocated over " + LOOPS + " loops after warmup");
+    }
+
+    private static void runLoops(
+            SwerveSubsystem swerveSubsystem,
+            FakeSignalBackend signalBackend,
+            DriveCommand driveCommand,
+            double[] spin,
+            double[] snap,
+            int firstLoop,
+            int loops
+    ) {
+        for (int loop = firstLoop; loop < firstLoop + loops; loop++) {
+            int phase = loop % 300;
+            spin[0] = phase < 100 ? 0.3 : 0;
+            snap[0] = phase >= 200 ? 90 : Double.NaN;
+
+            signalBackend.setGyroSignal(SignalHub.GYRO_YAW, loop * 0.05);
+            signalBackend.setTimestampSeconds(loop * 0.02);
+            swerveSubsystem.periodic();
+            driveCommand.execute();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package frc.robot.subsystems.drive;
+
+import edu.wpi.first.math.MathUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HeadingControllerTest {
+    private static final double EPSILON = 1e-9;
+    private static final double PERIOD_SECONDS = 0.02;
+    private static final int LOOPS = 150;
+
+    private HeadingController controller;
+
+    @BeforeEach
+    void setup() {
+        controller = new HeadingController(PERIOD_SECONDS);
+        controller.setConstraints(Math.PI, 2 * Math.PI);
+    }
+
+    @Test
+    void profileLandsOnTheGoalWithoutOvershooting() {
+        controller.reset(0, 0);
+        controller.setGoal(Math.PI / 2);
+
+        // Accelerating to pi rad/s takes a quarter turn over half a second, and so does stopping again
+        int loopsToGoal = (int) Math.round(1 / PERIOD_SECONDS);
+        double previous = 0;
+        for (int loop = 1; loop <= LOOPS; loop++) {
+            controller.calculate(controller.getSetpointRadians(), 0);
+            double setpoint = controller.getSetpointRadians();
+            assertTrue(setpoint >= previous, "Setpoint went back from " + previous + " to " + setpoint);
+            assertTrue(setpoint <= Math.PI / 2, "Setpoint overshot to " + setpoint + " on loop " + loop);
+            if (loop >= loopsToGoal) {
+                assertEquals(Math.PI / 2, setpoint, "Loop " + loop);
+            }
+            previous = setpoint;
+        }
+
+        // Sitting still on the goal, there's nothing left to do
+        assertEquals(0, controller.calculate(Math.PI / 2, 0));
+    }
+
+    @Test
+    void setGoalPicksTheNearestTurn() {
+        controller.reset(Math.toRadians(179), 0);
+        controller.setGoal(Math.toRadians(-179));
+        assertEquals(Math.toRadians(181), controller.getGoalRadians(), EPSILON);
+
+        // Two whole turns in, 0 is the turn the robot's already on
+        controller.reset(4 * Math.PI + 0.1, 0);
+        controller.setGoal(0);
+        assertEquals(4 * Math.PI, controller.getGoalRadians(), EPSILON);
+
+        controller.reset(-0.1, 0);
+        controller.setGoal(6 * Math.PI);
+        assertEquals(0, controller.getGoalRadians(), EPSILON);
+    }
+
+    @Test
+    void snapAcrossTheWrapTurnsTwoDegreesNotThreeHundredFiftyEight() {
+        controller.reset(Math.toRadians(179), 0);
+        controller.setGoal(Math.toRadians(-179));
+
+        // The robot turns exactly as fast as it's told, and the controller only sees the heading wrapped
+        double heading = Math.toRadians(179);
+        double rate = 0;
+        for (int loop = 0; loop < LOOPS; loop++) {
+            rate = controller.calculate(MathUtil.angleModulus(heading), rate);
+            heading += rate * PERIOD_SECONDS;
+            double degrees = Math.toDegrees(heading);
+            assertTrue(degrees >= 179 && degrees <= 181.5, "Heading " + degrees + " on loop " + loop);
+        }
+        assertEquals(181, Math.toDegrees(heading), 0.05);
+    }
+
+    @Test
+    void holdWhereStoppingSlowsDownWithoutSwingingBack() {
+        double maxAcceleration = 4 * Math.PI;
+        controller.setConstraints(Math.PI, maxAcceleration);
+        double rate = 2;
+        controller.reset(0, rate);
+        controller.holdWhereStopping();
+        double stoppingDistance = rate * rate / (2 * maxAcceleration);
+        assertEquals(stoppingDistance, controller.getGoalRadians(), EPSILON);
+
+        double heading = 0;
+        for (int loop = 0; loop < LOOPS; loop++) {
+            rate = controller.calculate(heading, rate);
+            heading += rate * PERIOD_SECONDS;
+            assertTrue(rate >= 0, "Turned back at " + rate + " rad/s on loop " + loop);
+            assertTrue(heading <= stoppingDistance + 1e-3, "Went past the goal to " + heading);
+        }
+        assertEquals(stoppingDistance, heading, 1e-3);
+    }
+
+    @Test
+    void outputIsClampedToTheMaxVelocity() {
+        controller.setConstraints(1, 2);
+        controller.reset(0, 0);
+
+        // Far enough from the profile that the feedback alone asks for more than the max
+        assertEquals(1, controller.calculate(-1.5, 0));
+        assertEquals(-1, controller.calculate(1.5, 0));
+        // Turning much faster than the profile, the damping asks for more than the max the other way
+        assertEquals(-1, controller.calculate(0, 50));
+    }
+}
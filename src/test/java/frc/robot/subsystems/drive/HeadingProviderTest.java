@@ -0,0 +1,86 @@
+package frc.robot.subsystems.drive;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HeadingProviderTest {
+    private static final double EPSILON = 1e-9;
+
+    @Test
+    void normalizeWrapsIntoOneTurn() {
+        assertEquals(0, HeadingProvider.normalizeDegrees(0));
+        assertEquals(0, HeadingProvider.normalizeDegrees(360));
+        assertEquals(359, HeadingProvider.normalizeDegrees(-1));
+        assertEquals(0.5, HeadingProvider.normalizeDegrees(720.5));
+        assertEquals(0, HeadingProvider.normalizeDegrees(-360));
+        assertEquals(359, HeadingProvider.normalizeDegrees(-721));
+    }
+
+    @Test
+    void normalizeTinyNegativeYawIsZeroNotOneTurn() {
+        assertEquals(0, HeadingProvider.normalizeDegrees(-1e-15));
+    }
+
+    @Test
+    void normalizeVeryLargeYaws() {
+        // 1e9 is 2777777 turns and 280 degrees, all of which doubles hold exactly
+        assertEquals(325, HeadingProvider.normalizeDegrees(1e9 + 45));
+        assertEquals(35, HeadingProvider.normalizeDegrees(-1e9 - 45));
+        // Far enough out that a double can't tell the turns apart, but it still lands in range
+        double huge = HeadingProvider.normalizeDegrees(1e18);
+        assertTrue(huge >= 0 && huge < 360, "Heading " + huge);
+    }
+
+    @Test
+    void headingFollowsUpdates() {
+        HeadingProvider heading = new HeadingProvider();
+        heading.update(725, 0, 1);
+        assertEquals(725, heading.getContinuousDegrees());
+        assertEquals(5, heading.getDegrees(), EPSILON);
+
+        heading.update(-10, 0, 1.02);
+        assertEquals(-10, heading.getContinuousDegrees());
+        assertEquals(350, heading.getDegrees(), EPSILON);
+    }
+
+    @Test
+    void extrapolatesAlongTheYawRate() {
+        HeadingProvider heading = new HeadingProvider();
+        heading.update(350, 200, 1);
+
+        assertEquals(350, heading.getContinuousDegreesAt(1), EPSILON);
+        assertEquals(355, heading.getContinuousDegreesAt(1.025), EPSILON);
+        // Wraps once it's moved forward, not before
+        assertEquals(5, heading.getDegreesAt(1.075), EPSILON);
+    }
+
+    @Test
+    void extrapolatesBackwardsWhenTurningClockwise() {
+        HeadingProvider heading = new HeadingProvider();
+        heading.update(5, -100, 2);
+
+        assertEquals(0, heading.getContinuousDegreesAt(2.05), EPSILON);
+        assertEquals(355, heading.getDegreesAt(2.1), EPSILON);
+    }
+
+    @Test
+    void extrapolationIsCappedAtOneHundredMilliseconds() {
+        HeadingProvider heading = new HeadingProvider();
+        heading.update(350, 200, 1);
+
+        assertEquals(370, heading.getContinuousDegreesAt(1.1), EPSILON);
+        assertEquals(370, heading.getContinuousDegreesAt(1.5), EPSILON);
+        assertEquals(10, heading.getDegreesAt(5), EPSILON);
+    }
+
+    @Test
+    void doesNotExtrapolateBeforeTheSample() {
+        HeadingProvider heading = new HeadingProvider();
+        heading.update(90, 200, 1);
+
+        assertEquals(90, heading.getContinuousDegreesAt(0.9), EPSILON);
+        assertEquals(90, heading.getDegreesAt(0), EPSILON);
+    }
+}
@@ -0,0 +1,150 @@
+package frc.robot.subsystems.drive;
+
+import edu.wpi.first.hal.HAL;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the power budget against a battery that's a resting voltage behind a resistance, the same model the budget
+ * assumes. The drive motors draw current in proportion to the scale the budget last handed out, like they would with
+ * the drive commands scaled down, and every sample is fed back in at the odometry rate.
+ */
+class PowerBudgetTest {
+    private static final int MODULES = 4;
+    private static final double SAMPLE_SECONDS = 1 / SwerveOdometry.FREQUENCY_HZ;
+    private static final double RESTING_VOLTAGE = 12.5;
+    private static final double STEER_CURRENT_AMPS = 2;  // Per module
+    // The budget reacts to the sample after the current goes up, so a rising request dips a little below the minimum
+    private static final double VOLTAGE_TOLERANCE = 0.15;
+    // Requests ramp up like a driver pushing the stick, a step straight to a huge current would sag the model to 0 V
+    private static final double RAMP_SECONDS = 0.5;
+
+    private DrivetrainConfig config;
+    private FakeSignalBackend backend;
+    private SignalHub signals;
+    private PowerBudget powerBudget;
+    private double timestampSeconds;
+    private double batteryVoltage;
+
+    @BeforeAll
+    static void initializeHal() {
+        assertTrue(HAL.initialize(500, 0));
+    }
+
+    @BeforeEach
+    void setup() {
+        config = DrivetrainConfig.defaults();
+        backend = new FakeSignalBackend(MODULES);
+        signals = new SignalHub(MODULES, backend);
+        powerBudget = new PowerBudget(config);
+        timestampSeconds = 0;
+    }
+
+    @Test
+    void scalesDownToKeepTheBatteryAboveTheMinimum() {
+        // Twice what the battery can give before it sags to the minimum
+        double requested = 2 * currentToMinimum();
+
+        double lowest = Double.MAX_VALUE;
+        for (int i = 0; i < SwerveOdometry.FREQUENCY_HZ; i++) {
+            step(ramp(requested, i));
+            assertScaleInRange();
+            lowest = Math.min(lowest, batteryVoltage);
+        }
+
+        assertEquals(0.5, powerBudget.getScale(), 0.01);
+        assertTrue(lowest >= config.getMinimumBatteryVoltage() - VOLTAGE_TOLERANCE,
+                "Battery sagged to " + lowest + " V");
+    }
+
+    @Test
+    void leavesTheDrivetrainAloneWhenTheBatteryCanKeepUp() {
+        double requested = 0.5 * currentToMinimum();
+
+        for (int i = 0; i < SwerveOdometry.FREQUENCY_HZ; i++) {
+            step(requested);
+            assertEquals(1, powerBudget.getScale());
+        }
+    }
+
+    @Test
+    void neverScalesBelowTheMinimumScale() {
+        double requested = 8 * currentToMinimum();
+
+        for (int i = 0; i < SwerveOdometry.FREQUENCY_HZ; i++) {
+            step(ramp(requested, i));
+            assertScaleInRange();
+        }
+
+        assertEquals(PowerBudget.MIN_SCALE, powerBudget.getScale(), 1e-9);
+    }
+
+    @Test
+    void recoversNoFasterThanTheRecoveryRate() {
+        double heavy = 3 * currentToMinimum();
+        for (int i = 0; i < SwerveOdometry.FREQUENCY_HZ; i++) {
+            step(ramp(heavy, i));
+        }
+        assertTrue(powerBudget.getScale() < 0.5, "Scale " + powerBudget.getScale());
+
+        // Still driving, but well within what the battery can take
+        double light = 0.3 * currentToMinimum();
+        double maxStep = PowerBudget.RECOVERY_PER_SECOND * SAMPLE_SECONDS;
+        double previous = powerBudget.getScale();
+        for (int i = 0; i < 2 * SwerveOdometry.FREQUENCY_HZ; i++) {
+            step(light);
+            assertScaleInRange();
+            double scale = powerBudget.getScale();
+            assertTrue(scale - previous <= maxStep + 1e-9,
+                    "Scale went from " + previous + " to " + scale + " in one sample");
+            previous = scale;
+        }
+
+        assertEquals(1, powerBudget.getScale(), 1e-9);
+    }
+
+    /**
+     * @return The total drive current that sags the battery to exactly the minimum, with the steer motors drawing too
+     */
+    private double currentToMinimum() {
+        return (RESTING_VOLTAGE - config.getMinimumBatteryVoltage()) / config.getBatteryResistanceOhms()
+                - MODULES * STEER_CURRENT_AMPS;
+    }
+
+    /**
+     * @return The request for the given sample, ramping up to amps over {@link #RAMP_SECONDS}
+     */
+    private static double ramp(double amps, int sample) {
+        return amps * Math.min(1, (sample + 1) * SAMPLE_SECONDS / RAMP_SECONDS);
+    }
+
+    /**
+     * One sample: the drive motors draw the requested current scaled by the budget's last scale, the battery sags, and
+     * the budget sees the result.
+     *
+     * @param requestedDriveAmps Total drive current, across every module, at a scale of 1
+     */
+    private void step(double requestedDriveAmps) {
+        double driveAmps = requestedDriveAmps * powerBudget.getScale();
+        batteryVoltage = RESTING_VOLTAGE
+                - config.getBatteryResistanceOhms() * (driveAmps + MODULES * STEER_CURRENT_AMPS);
+        for (int i = 0; i < MODULES; i++) {
+            backend.setModuleSignal(i, SignalHub.MODULE_DRIVE_SUPPLY_CURRENT, driveAmps / MODULES);
+            backend.setModuleSignal(i, SignalHub.MODULE_STEER_SUPPLY_CURRENT, STEER_CURRENT_AMPS);
+            backend.setModuleSignal(i, SignalHub.MODULE_SUPPLY_VOLTAGE, batteryVoltage);
+        }
+        timestampSeconds += SAMPLE_SECONDS;
+        backend.setTimestampSeconds(timestampSeconds);
+        signals.sample();
+        powerBudget.onSample(signals);
+    }
+
+    private void assertScaleInRange() {
+        double scale = powerBudget.getScale();
+        assertTrue(scale >= PowerBudget.MIN_SCALE && scale <= 1, "Scale " + scale);
+    }
+}
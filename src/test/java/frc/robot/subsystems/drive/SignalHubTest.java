@@ -0,0 +1,106 @@
+package frc.robot.subsystems.drive;
+
+import edu.wpi.first.hal.HAL;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Sampling and refreshing are split so a faster thread can own the bus. Whatever it samples must only reach the main
+ * loop's values on the next refresh, so everything in one loop sees the same sample.
+ */
+class SignalHubTest {
+    private static final int MODULES = 4;
+
+    private FakeSignalBackend backend;
+    private SignalHub signals;
+
+    @BeforeAll
+    static void initializeHal() {
+        assertTrue(HAL.initialize(500, 0));
+    }
+
+    @BeforeEach
+    void setup() {
+        backend = new FakeSignalBackend(MODULES);
+        signals = new SignalHub(MODULES, backend);
+    }
+
+    @Test
+    void refreshSamplesItselfWithoutASamplingThread() {
+        backend.setModuleSignal(2, SignalHub.MODULE_DRIVE_POSITION, 12.5);
+        backend.setGyroSignal(SignalHub.GYRO_YAW, 45);
+        backend.setTimestampSeconds(3);
+
+        signals.refresh();
+
+        assertEquals(12.5, signals.getModuleSignal(2, SignalHub.MODULE_DRIVE_POSITION));
+        assertEquals(45, signals.getYawDegrees());
+        assertEquals(3, signals.getTimestampSeconds());
+    }
+
+    @Test
+    void samplesOnlyReachTheLoopOnRefresh() {
+        signals.setSampledExternally(true);
+        backend.setGyroSignal(SignalHub.GYRO_YAW, 10);
+        backend.setTimestampSeconds(1);
+        signals.sample();
+        signals.refresh();
+        assertEquals(10, signals.getYawDegrees());
+
+        backend.setGyroSignal(SignalHub.GYRO_YAW, 20);
+        backend.setTimestampSeconds(1.004);
+        assertEquals(1.004, signals.sample());
+
+        // The sampling thread sees the new sample right away, the loop keeps the one it refreshed
+        assertEquals(20, signals.getSampledGyroSignal(SignalHub.GYRO_YAW));
+        assertEquals(1.004, signals.getSampledTimestampSeconds());
+        assertEquals(10, signals.getYawDegrees());
+        assertEquals(1, signals.getTimestampSeconds());
+
+        signals.refresh();
+        assertEquals(20, signals.getYawDegrees());
+        assertEquals(1.004, signals.getTimestampSeconds());
+    }
+
+    @Test
+    void refreshDoesNotSampleWhileSampledExternally() {
+        signals.setSampledExternally(true);
+        backend.setModuleSignal(0, SignalHub.MODULE_STEER_ABSOLUTE, 0.25);
+
+        signals.refresh();
+
+        assertEquals(0, signals.getModuleSignal(0, SignalHub.MODULE_STEER_ABSOLUTE));
+    }
+
+    @Test
+    void refreshTakesTheNewestOfSeveralSamples() {
+        signals.setSampledExternally(true);
+        for (int i = 1; i <= 5; i++) {
+            backend.setModuleSignal(3, SignalHub.MODULE_DRIVE_VELOCITY, i);
+            backend.setTimestampSeconds(i);
+            signals.sample();
+        }
+
+        signals.refresh();
+
+        assertEquals(5, signals.getModuleSignal(3, SignalHub.MODULE_DRIVE_VELOCITY));
+        assertEquals(5, signals.getTimestampSeconds());
+    }
+
+    @Test
+    void copyValuesMatchesTheLayout() {
+        backend.setModuleSignal(1, SignalHub.MODULE_SUPPLY_VOLTAGE, 11.8);
+        backend.setGyroSignal(SignalHub.GYRO_YAW_RATE, -90);
+        signals.refresh();
+
+        double[] copy = new double[SignalHub.size(MODULES) + 2];
+        signals.copyValues(copy, 2);
+
+        assertEquals(11.8, copy[2 + SignalHub.moduleIndex(1, SignalHub.MODULE_SUPPLY_VOLTAGE)]);
+        assertEquals(-90, copy[2 + SignalHub.gyroIndex(MODULES, SignalHub.GYRO_YAW_RATE)]);
+    }
+}
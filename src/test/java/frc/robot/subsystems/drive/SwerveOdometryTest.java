@@ -0,0 +1,85 @@
+package frc.robot.subsystems.drive;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import frc.robot.subsystems.SwerveSubsystem;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Odometry only sees where the modules are pointing when it samples them, so while the robot spins it integrates each
+ * module's movement in a direction that's already out of date. The faster it samples, the less that adds up.
+ * <p>
+ * Two odometries watch the same simulated drivetrain, one at {@link SwerveOdometry#FREQUENCY_HZ} and one once a loop,
+ * and both are compared to the simulation's true pose.
+ */
+class SwerveOdometryTest {
+    private static final double LOOP_SECONDS = 0.02;
+    private static final int SAMPLES_PER_LOOP = (int) Math.round(SwerveOdometry.FREQUENCY_HZ * LOOP_SECONDS);
+    private static final double SPEED_METERS_PER_SECOND = 2;
+    private static final double SPIN_RADIANS_PER_SECOND = Math.PI;
+    private static final int LOOPS_PER_SIDE = 50;
+    private static final int SIDES = 4;
+
+    @BeforeAll
+    static void initializeHal() {
+        assertTrue(HAL.initialize(500, 0));
+        SimHooks.pauseTiming();
+    }
+
+    @AfterAll
+    static void resumeTiming() {
+        SimHooks.resumeTiming();
+    }
+
+    @Test
+    void fastOdometryTracksBetterWhileSpinningAndTranslating() {
+        DrivetrainConfig config = DrivetrainConfig.defaults();
+        SwerveSubsystem swerveSubsystem = SwerveSubsystem.createSimulated(config);
+        SimSwerveDrive simulation = swerveSubsystem.getSimulation();
+
+        Translation2d[] positions = new Translation2d[config.getModuleCount()];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = config.getModulePosition(i);
+        }
+        SwerveDriveKinematics kinematics = new SwerveDriveKinematics(positions);
+        SignalHub fastSignals = new SignalHub(positions.length, simulation);
+        SignalHub loopSignals = new SignalHub(positions.length, simulation);
+        SwerveOdometry fastOdometry = new SwerveOdometry(fastSignals, kinematics);
+        SwerveOdometry loopOdometry = new SwerveOdometry(loopSignals, kinematics);
+
+        double sampleSeconds = LOOP_SECONDS / SAMPLES_PER_LOOP;
+        for (int loop = 0; loop < LOOPS_PER_SIDE * SIDES; loop++) {
+            swerveSubsystem.periodic();
+
+            // Drive a square field relative while spinning the whole time, like DriveCommand with both sticks pushed
+            double direction = Math.PI / 2 * (loop / LOOPS_PER_SIDE);
+            double heading = Math.toRadians(swerveSubsystem.getYawDegrees());
+            swerveSubsystem.apply(
+                    SPEED_METERS_PER_SECOND * Math.cos(direction - heading),
+                    SPEED_METERS_PER_SECOND * Math.sin(direction - heading),
+                    SPIN_RADIANS_PER_SECOND
+            );
+
+            for (int sample = 0; sample < SAMPLES_PER_LOOP; sample++) {
+                SimHooks.stepTiming(sampleSeconds);
+                simulation.update(sampleSeconds);
+                fastSignals.sample();
+                fastOdometry.update();
+            }
+            loopSignals.sample();
+            loopOdometry.update();
+        }
+
+        Translation2d truth = simulation.getTruePose().getTranslation();
+        double fastError = fastOdometry.getPose().getTranslation().getDistance(truth);
+        double loopError = loopOdometry.getPose().getTranslation().getDistance(truth);
+        assertTrue(fastError < loopError, SwerveOdometry.FREQUENCY_HZ + " Hz odometry is off by " + fastError
+                + " m, " + 1 / LOOP_SECONDS + " Hz odometry by " + loopError + " m");
+    }
+}
@@ -0,0 +1,244 @@
+package frc.robot.subsystems.drive;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.geometry.Twist2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SwerveSetpointGeneratorTest {
+    private static final double EPSILON = 1e-9;
+    private static final double PERIOD_SECONDS = 0.02;
+    // Long enough for any request here to get through the acceleration limits and the modules to finish turning
+    private static final int SETTLE_LOOPS = 200;
+
+    private DrivetrainConfig config;
+    private double[] moduleX;
+    private double[] moduleY;
+    private SwerveDriveKinematics kinematics;
+    private SwerveSetpointGenerator generator;
+    private double[] speeds;
+    private double[] angles;
+    private double[] steerRates;
+
+    @BeforeEach
+    void setup() {
+        config = DrivetrainConfig.defaults();
+        int modules = config.getModuleCount();
+        moduleX = new double[modules];
+        moduleY = new double[modules];
+        Translation2d[] positions = new Translation2d[modules];
+        for (int i = 0; i < modules; i++) {
+            positions[i] = config.getModulePosition(i);
+            moduleX[i] = positions[i].getX();
+            moduleY[i] = positions[i].getY();
+        }
+        kinematics = new SwerveDriveKinematics(positions);
+        generator = new SwerveSetpointGenerator(moduleX, moduleY, PERIOD_SECONDS);
+        generator.setLimits(config);
+        speeds = new double[modules];
+        angles = new double[modules];
+        steerRates = new double[modules];
+    }
+
+    @Test
+    void oneSaturatedWheelScalesEveryWheelAndKeepsTheDirection() {
+        // First order, so what each module is sent is exactly the kinematics of the chassis speeds
+        generator.setSecondOrder(false);
+        double vx = 6;
+        double vy = 1;
+        double omega = 3;
+        for (int loop = 0; loop < SETTLE_LOOPS; loop++) {
+            calculate(vx, vy, omega);
+        }
+
+        double fastest = 0;
+        for (int i = 0; i < moduleX.length; i++) {
+            fastest = Math.max(fastest, Math.hypot(vx - omega * moduleY[i], vy + omega * moduleX[i]));
+        }
+        assertTrue(fastest > config.getMaxModuleSpeedMetersPerSecond(), "The request has to saturate a wheel");
+        double scale = config.getMaxModuleSpeedMetersPerSecond() / fastest;
+
+        double fastestSent = 0;
+        for (int i = 0; i < moduleX.length; i++) {
+            fastestSent = Math.max(fastestSent, Math.abs(speeds[i]));
+            // Every wheel scaled by the same amount is the same chassis motion, only slower
+            double angle = Math.toRadians(angles[i]);
+            assertEquals(scale * (vx - omega * moduleY[i]), speeds[i] * Math.cos(angle), EPSILON);
+            assertEquals(scale * (vy + omega * moduleX[i]), speeds[i] * Math.sin(angle), EPSILON);
+        }
+        assertEquals(config.getMaxModuleSpeedMetersPerSecond(), fastestSent, EPSILON);
+    }
+
+    @Test
+    void stepInTranslationIsLimitedToMaxAccelerationEachLoop() {
+        double vx = 1.8;
+        double vy = 2.4;
+        double speed = Math.hypot(vx, vy);
+        // Already facing the right way, so steering doesn't slow the wheels down
+        double direction = Math.toDegrees(Math.atan2(vy, vx));
+        resetTo(direction);
+
+        double speedStep = config.getMaxAccelerationMetersPerSecondSquared() * PERIOD_SECONDS;
+        for (int loop = 1; loop <= SETTLE_LOOPS; loop++) {
+            calculate(vx, vy, 0);
+            double expected = Math.min(loop * speedStep, speed);
+            for (int i = 0; i < speeds.length; i++) {
+                assertEquals(expected, speeds[i], EPSILON, "Loop " + loop);
+                assertEquals(direction, angles[i], EPSILON, "Loop " + loop);
+            }
+        }
+    }
+
+    @Test
+    void stepInRotationIsLimitedToMaxAngularAccelerationEachLoop() {
+        double omega = Math.PI;
+        // Each module drives at right angles to its position when spinning in place
+        double[] directions = new double[moduleX.length];
+        for (int i = 0; i < directions.length; i++) {
+            directions[i] = Math.toDegrees(Math.atan2(moduleX[i], -moduleY[i]));
+        }
+        generator.reset(directions);
+
+        double omegaStep = config.getMaxAngularAccelerationRadiansPerSecondSquared() * PERIOD_SECONDS;
+        for (int loop = 1; loop <= SETTLE_LOOPS; loop++) {
+            calculate(0, 0, omega);
+            double expectedOmega = Math.min(loop * omegaStep, omega);
+            for (int i = 0; i < speeds.length; i++) {
+                assertEquals(expectedOmega * Math.hypot(moduleX[i], moduleY[i]), speeds[i], EPSILON, "Loop " + loop);
+                assertEquals(directions[i], angles[i], EPSILON, "Loop " + loop);
+            }
+        }
+    }
+
+    @Test
+    void steeringIsLimitedAndSlowsTheWheelsUntilItCatchesUp() {
+        double maxSteerStep = config.getMaxSteerRateRotationsPerSecond() * 360 * PERIOD_SECONDS;
+        double speedStep = config.getMaxAccelerationMetersPerSecondSquared() * PERIOD_SECONDS;
+        double direction = 80;
+        assertTrue(direction > 2 * maxSteerStep && direction < 3 * maxSteerStep, "Should take three loops to turn");
+        double vx = Math.cos(Math.toRadians(direction));
+        double vy = Math.sin(Math.toRadians(direction));
+
+        for (int loop = 1; loop <= 3; loop++) {
+            calculate(vx, vy, 0);
+            double expectedAngle = Math.min(loop * maxSteerStep, direction);
+            double stillToTurn = Math.toRadians(direction - expectedAngle);
+            for (int i = 0; i < speeds.length; i++) {
+                assertEquals(expectedAngle, angles[i], EPSILON, "Loop " + loop);
+                assertEquals(loop * speedStep * Math.cos(stillToTurn), speeds[i], EPSILON, "Loop " + loop);
+                if (loop < 3) {
+                    // Still catching up, the setpoint moves at the limit
+                    assertEquals(maxSteerStep / PERIOD_SECONDS, steerRates[i], EPSILON, "Loop " + loop);
+                }
+            }
+        }
+    }
+
+    @Test
+    void stoppingKeepsTheLastAngles() {
+        double direction = 120;
+        resetTo(direction);
+        double speed = 0.1;
+        for (int loop = 0; loop < SETTLE_LOOPS; loop++) {
+            calculate(speed * Math.cos(Math.toRadians(direction)), speed * Math.sin(Math.toRadians(direction)), 0);
+        }
+
+        for (int loop = 0; loop < SETTLE_LOOPS; loop++) {
+            calculate(0, 0, 0);
+            for (int i = 0; i < speeds.length; i++) {
+                assertEquals(0, speeds[i]);
+                assertEquals(0, steerRates[i]);
+                assertEquals(direction, angles[i], EPSILON, "Loop " + loop);
+            }
+        }
+    }
+
+    @Test
+    void discretizedSpeedsLandOnTheRequestedPoseAfterOneLoop() {
+        double vx = 2;
+        double vy = 1;
+        double omega = 2;
+        for (int loop = 0; loop < SETTLE_LOOPS; loop++) {
+            calculate(vx, vy, omega);
+        }
+
+        // Holding the module setpoints for a loop drives the robot along the arc Pose2d.exp gives for them
+        Pose2d end = new Pose2d().exp(sentTwist());
+        assertEquals(vx * PERIOD_SECONDS, end.getX(), EPSILON);
+        assertEquals(vy * PERIOD_SECONDS, end.getY(), EPSILON);
+        assertEquals(omega * PERIOD_SECONDS, end.getRotation().getRadians(), EPSILON);
+    }
+
+    @Test
+    void secondOrderDriftsLessThanFirstOrderWhileSpinning() {
+        double secondOrderDrift = driftWhileSpinning(true);
+        double firstOrderDrift = driftWhileSpinning(false);
+        assertTrue(firstOrderDrift > 0.01, "First order drifted " + firstOrderDrift + " m");
+        assertTrue(secondOrderDrift < firstOrderDrift / 100,
+                "Second order drifted " + secondOrderDrift + " m, first order " + firstOrderDrift + " m");
+    }
+
+    /**
+     * Drive straight along the field's x axis while spinning, field relative like DriveCommand, holding each loop's
+     * module setpoints for the whole loop.
+     *
+     * @return How far the robot wandered off the x axis once it was up to speed
+     */
+    private double driftWhileSpinning(boolean secondOrder) {
+        generator.setSecondOrder(secondOrder);
+        double speed = 2;
+        double omega = Math.PI / 2;
+        // Leave the acceleration limits out of it, they ramp in the robot's frame and bend the path on their own
+        int warmupLoops = 50;
+        int loops = 150;
+
+        Pose2d pose = new Pose2d();
+        double startY = 0;
+        for (int loop = 0; loop < loops; loop++) {
+            double heading = pose.getRotation().getRadians();
+            calculate(speed * Math.cos(heading), -speed * Math.sin(heading), omega);
+            pose = pose.exp(sentTwist());
+            if (loop == warmupLoops - 1) {
+                startY = pose.getY();
+            }
+        }
+        return Math.abs(pose.getY() - startY);
+    }
+
+    /**
+     * @return How far the robot moves in one loop with the last module setpoints, in its own frame at the start of the
+     * loop
+     */
+    private Twist2d sentTwist() {
+        SwerveModuleState[] states = new SwerveModuleState[speeds.length];
+        for (int i = 0; i < states.length; i++) {
+            states[i] = new SwerveModuleState(speeds[i], Rotation2d.fromDegrees(angles[i]));
+        }
+        ChassisSpeeds chassisSpeeds = kinematics.toChassisSpeeds(states);
+        return new Twist2d(
+                chassisSpeeds.vxMetersPerSecond * PERIOD_SECONDS,
+                chassisSpeeds.vyMetersPerSecond * PERIOD_SECONDS,
+                chassisSpeeds.omegaRadiansPerSecond * PERIOD_SECONDS
+        );
+    }
+
+    private void resetTo(double angleDegrees) {
+        double[] start = new double[moduleX.length];
+        Arrays.fill(start, angleDegrees);
+        generator.reset(start);
+    }
+
+    private void calculate(double vx, double vy, double omega) {
+        generator.calculate(vx, vy, omega, speeds, angles, steerRates);
+    }
+}